@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.ql.udf.generic.AbstractGenericUDAFResolver;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationBuffer;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.Mode;
+import org.apache.hadoop.hive.ql.udf.generic.SimpleGenericUDAFParameterInfo;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils.ObjectInspectorCopyOption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Drives a UDAF evaluator directly through the same calls Hive makes:
+ * init/iterate/terminatePartial on the map side and init/merge/terminate on the reduce side.
+ * Results are reported per input row (iterate) and per incoming partial (merge),
+ * so running with the GC profiler (-prof gc) gives allocation per row and per partial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("deprecation")
+public abstract class EvaluatorBenchmark {
+
+  static final int ROWS = 1 << 16;
+  static final int PARTIALS = 64;
+
+  @Param({"UNIFORM", "ZIPF"})
+  public KeyDistribution distribution;
+
+  @Param({"1000", "1000000"})
+  public int cardinality;
+
+  private GenericUDAFEvaluator mapEvaluator_;
+  private GenericUDAFEvaluator reduceEvaluator_;
+  private Object[][] rows_;
+  private Object[] partials_;
+
+  /**
+   * @return resolver of the UDAF under test
+   */
+  protected abstract AbstractGenericUDAFResolver getResolver();
+
+  /**
+   * @return inspectors of the original input columns
+   */
+  protected abstract ObjectInspector[] getInputInspectors();
+
+  /**
+   * Converts a generated key into an input row of Hive writables
+   * @param key generated key
+   * @return input row
+   */
+  protected abstract Object[] toRow(long key);
+
+  @Setup
+  public void setup() throws Exception {
+    final ObjectInspector[] inputInspectors = getInputInspectors();
+    mapEvaluator_ = newEvaluator(inputInspectors);
+    final ObjectInspector intermediateInspector = mapEvaluator_.init(Mode.PARTIAL1, inputInspectors);
+    reduceEvaluator_ = newEvaluator(inputInspectors);
+    reduceEvaluator_.init(Mode.FINAL, new ObjectInspector[] {intermediateInspector});
+
+    final long[] keys = distribution.generate(ROWS, cardinality, new Random(0));
+    rows_ = new Object[ROWS][];
+    for (int i = 0; i < ROWS; i++) {
+      rows_[i] = toRow(keys[i]);
+    }
+
+    // each partial is built from a different slice of keys as if produced by a separate mapper
+    partials_ = new Object[PARTIALS];
+    final Random random = new Random(1);
+    for (int i = 0; i < PARTIALS; i++) {
+      final long[] mapperKeys = distribution.generate(ROWS / 16, cardinality, random);
+      final AggregationBuffer buf = mapEvaluator_.getNewAggregationBuffer();
+      for (final long key: mapperKeys) {
+        mapEvaluator_.iterate(buf, toRow(key));
+      }
+      // terminatePartial reuses its output objects, so each partial is copied as if it was sent
+      partials_[i] = ObjectInspectorUtils.copyToStandardObject(mapEvaluator_.terminatePartial(buf),
+          intermediateInspector, ObjectInspectorCopyOption.WRITABLE);
+    }
+  }
+
+  private GenericUDAFEvaluator newEvaluator(final ObjectInspector[] inputInspectors) throws Exception {
+    return getResolver().getEvaluator(new SimpleGenericUDAFParameterInfo(inputInspectors, false, false));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public Object iterate() throws Exception {
+    final AggregationBuffer buf = mapEvaluator_.getNewAggregationBuffer();
+    for (final Object[] row: rows_) {
+      mapEvaluator_.iterate(buf, row);
+    }
+    return mapEvaluator_.terminatePartial(buf);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PARTIALS)
+  public Object merge() throws Exception {
+    final AggregationBuffer buf = reduceEvaluator_.getNewAggregationBuffer();
+    for (final Object partial: partials_) {
+      reduceEvaluator_.merge(buf, partial);
+    }
+    return reduceEvaluator_.terminate(buf);
+  }
+
+}
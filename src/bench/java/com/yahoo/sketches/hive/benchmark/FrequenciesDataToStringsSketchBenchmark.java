@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.benchmark;
+
+import org.apache.hadoop.hive.ql.udf.generic.AbstractGenericUDAFResolver;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+
+import com.yahoo.sketches.hive.frequencies.DataToStringsSketchUDAF;
+
+public class FrequenciesDataToStringsSketchBenchmark extends EvaluatorBenchmark {
+
+  private static final IntWritable MAX_MAP_SIZE = new IntWritable(1024);
+
+  @Override
+  protected AbstractGenericUDAFResolver getResolver() {
+    return new DataToStringsSketchUDAF();
+  }
+
+  @Override
+  protected ObjectInspector[] getInputInspectors() {
+    return new ObjectInspector[] {
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.STRING),
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(TypeInfoFactory.intTypeInfo,
+          MAX_MAP_SIZE)
+    };
+  }
+
+  @Override
+  protected Object[] toRow(final long key) {
+    return new Object[] {new Text("item" + key), MAX_MAP_SIZE};
+  }
+
+}
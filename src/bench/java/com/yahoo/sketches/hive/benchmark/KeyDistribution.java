@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Key distributions used to generate benchmark input.
+ * UNIFORM gives every key in the domain the same chance, ZIPF models the usual
+ * "few heavy hitters and a long tail" shape of user and item identifiers.
+ */
+public enum KeyDistribution {
+
+  UNIFORM {
+    @Override
+    long[] generate(final int numKeys, final int cardinality, final Random random) {
+      final long[] keys = new long[numKeys];
+      for (int i = 0; i < numKeys; i++) {
+        keys[i] = random.nextInt(cardinality);
+      }
+      return keys;
+    }
+  },
+
+  ZIPF {
+    private static final double EXPONENT = 1.1;
+
+    @Override
+    long[] generate(final int numKeys, final int cardinality, final Random random) {
+      final double[] cdf = new double[cardinality];
+      double sum = 0;
+      for (int i = 0; i < cardinality; i++) {
+        sum += 1.0 / Math.pow(i + 1, EXPONENT);
+        cdf[i] = sum;
+      }
+      final long[] keys = new long[numKeys];
+      for (int i = 0; i < numKeys; i++) {
+        final int pos = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+        keys[i] = pos >= 0 ? pos : -pos - 1;
+      }
+      return keys;
+    }
+  };
+
+  /**
+   * Generates keys from the domain [0, cardinality)
+   * @param numKeys number of keys to generate
+   * @param cardinality size of the key domain
+   * @param random source of randomness
+   * @return generated keys
+   */
+  abstract long[] generate(int numKeys, int cardinality, Random random);
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.benchmark;
+
+import org.apache.hadoop.hive.ql.udf.generic.AbstractGenericUDAFResolver;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+
+import com.yahoo.sketches.hive.quantiles.DataToDoublesSketchUDAF;
+
+public class QuantilesDataToDoublesSketchBenchmark extends EvaluatorBenchmark {
+
+  @Override
+  protected AbstractGenericUDAFResolver getResolver() {
+    return new DataToDoublesSketchUDAF();
+  }
+
+  @Override
+  protected ObjectInspector[] getInputInspectors() {
+    return new ObjectInspector[] {
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.DOUBLE)
+    };
+  }
+
+  // keys are used as latency-like values: mostly small with a long tail
+  @Override
+  protected Object[] toRow(final long key) {
+    return new Object[] {new DoubleWritable(key * 0.001)};
+  }
+
+}
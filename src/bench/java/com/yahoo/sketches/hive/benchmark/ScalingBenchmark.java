@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs a whole simulated job (mappers, combiners and a reducer) for each sketch family
+ * on a thread pool of varying size, so that families can be compared under the same load
+ * and the effect of the number of cores on the map and merge phases can be seen.
+ * A report of the last run of each trial (bytes per phase, peak buffer size) is printed
+ * to standard output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScalingBenchmark {
+
+  static final int ROWS_PER_MAPPER = 1 << 14;
+
+  public enum Family {
+    THETA(new ThetaDataToSketchBenchmark()),
+    HLL(new HllDataToSketchBenchmark()),
+    QUANTILES(new QuantilesDataToDoublesSketchBenchmark()),
+    FREQUENCIES(new FrequenciesDataToStringsSketchBenchmark()),
+    TUPLE(new TupleDataToArrayOfDoublesSketchBenchmark());
+
+    // reused only for its resolver, inspectors and row conversion
+    final EvaluatorBenchmark definition;
+
+    Family(final EvaluatorBenchmark definition) {
+      this.definition = definition;
+    }
+  }
+
+  @Param({"THETA", "HLL", "QUANTILES", "FREQUENCIES", "TUPLE"})
+  public Family family;
+
+  @Param({"1", "2", "4", "8"})
+  public int threads;
+
+  @Param({"256"})
+  public int mappers;
+
+  @Param({"16"})
+  public int combinerFanIn;
+
+  @Param({"ZIPF"})
+  public KeyDistribution distribution;
+
+  @Param({"1000000"})
+  public int cardinality;
+
+  private MapReduceSimulator simulator_;
+  private Object[][][] rows_;
+  private MapReduceSimulator.Report lastReport_;
+
+  @Setup
+  public void setup() {
+    simulator_ = new MapReduceSimulator(family.definition.getResolver(), family.definition.getInputInspectors(),
+        mappers, combinerFanIn, threads);
+    rows_ = new Object[mappers][][];
+    final Random random = new Random(0);
+    for (int i = 0; i < mappers; i++) {
+      final long[] keys = distribution.generate(ROWS_PER_MAPPER, cardinality, random);
+      rows_[i] = new Object[ROWS_PER_MAPPER][];
+      for (int j = 0; j < ROWS_PER_MAPPER; j++) {
+        rows_[i][j] = family.definition.toRow(keys[j]);
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.out.println();
+    System.out.println(family + ", " + threads + " threads: " + lastReport_);
+  }
+
+  @Benchmark
+  public Object job() throws Exception {
+    lastReport_ = simulator_.run(mapper -> Arrays.asList(rows_[mapper]));
+    return lastReport_.getResult();
+  }
+
+}
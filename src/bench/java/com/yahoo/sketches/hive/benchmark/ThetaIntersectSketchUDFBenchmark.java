@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.BytesWritable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.sketches.hive.theta.IntersectSketchUDF;
+import com.yahoo.sketches.theta.UpdateSketch;
+
+/**
+ * Intersects a sketch that changes every row with a second sketch that is either
+ * different in every row or the same in all rows, as the sketch of a single-row table in a map join.
+ * The arguments are set into the same two writables for every row, the same as Hive converts them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThetaIntersectSketchUDFBenchmark {
+
+  static final int ROWS = 1 << 10;
+
+  public enum SecondSketch { DISTINCT, REPEATED }
+
+  @Param({"DISTINCT", "REPEATED"})
+  public SecondSketch secondSketch;
+
+  // entries of each sketch
+  @Param({"16", "4096"})
+  public int entries;
+
+  private IntersectSketchUDF udf_;
+  private byte[][] firstSketches_;
+  private byte[][] secondSketches_;
+  private final BytesWritable firstArg_ = new BytesWritable();
+  private final BytesWritable secondArg_ = new BytesWritable();
+
+  @Setup
+  public void setup() {
+    udf_ = new IntersectSketchUDF();
+    firstSketches_ = new byte[ROWS][];
+    secondSketches_ = new byte[ROWS][];
+    for (int i = 0; i < ROWS; i++) {
+      // consecutive sketches overlap by half of their keys
+      firstSketches_[i] = toSketch((long) i * entries / 2);
+      secondSketches_[i] = secondSketch == SecondSketch.DISTINCT
+          ? toSketch((long) (i + ROWS) * entries / 2) : toSketch(0);
+    }
+  }
+
+  private byte[] toSketch(final long firstKey) {
+    final UpdateSketch sketch = UpdateSketch.builder().setNominalEntries(entries * 2).build();
+    for (int i = 0; i < entries; i++) {
+      sketch.update(firstKey + i);
+    }
+    return sketch.compact(true, null).toByteArray();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public long intersect() {
+    long size = 0;
+    for (int i = 0; i < ROWS; i++) {
+      firstArg_.set(firstSketches_[i], 0, firstSketches_[i].length);
+      secondArg_.set(secondSketches_[i], 0, secondSketches_[i].length);
+      size += udf_.evaluate(firstArg_, secondArg_).getLength();
+    }
+    return size;
+  }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.benchmark;
+
+import org.apache.hadoop.hive.ql.udf.generic.AbstractGenericUDAFResolver;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.BytesWritable;
+
+import com.yahoo.sketches.hive.theta.UnionSketchUDAF;
+import com.yahoo.sketches.theta.UpdateSketch;
+
+/**
+ * Merges serialized sketches, so that both iterate and merge measure
+ * the deserialization of ordered compact sketches into a union.
+ */
+public class ThetaUnionSketchBenchmark extends EvaluatorBenchmark {
+
+  private static final int KEYS_PER_SKETCH = 16;
+
+  @Override
+  protected AbstractGenericUDAFResolver getResolver() {
+    return new UnionSketchUDAF();
+  }
+
+  @Override
+  protected ObjectInspector[] getInputInspectors() {
+    return new ObjectInspector[] {
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.BINARY)
+    };
+  }
+
+  @Override
+  protected Object[] toRow(final long key) {
+    final UpdateSketch sketch = UpdateSketch.builder().build();
+    for (int i = 0; i < KEYS_PER_SKETCH; i++) {
+      sketch.update(key * KEYS_PER_SKETCH + i);
+    }
+    return new Object[] {new BytesWritable(sketch.compact(true, null).toByteArray())};
+  }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.benchmark;
+
+import org.apache.hadoop.hive.ql.udf.generic.AbstractGenericUDAFResolver;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+
+import com.yahoo.sketches.hive.tuple.DataToArrayOfDoublesSketchUDAF;
+
+public class TupleDataToArrayOfDoublesSketchBenchmark extends EvaluatorBenchmark {
+
+  @Override
+  protected AbstractGenericUDAFResolver getResolver() {
+    return new DataToArrayOfDoublesSketchUDAF();
+  }
+
+  @Override
+  protected ObjectInspector[] getInputInspectors() {
+    return new ObjectInspector[] {
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.STRING),
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.DOUBLE)
+    };
+  }
+
+  @Override
+  protected Object[] toRow(final long key) {
+    return new Object[] {new Text("user" + key), new DoubleWritable(1)};
+  }
+
+}
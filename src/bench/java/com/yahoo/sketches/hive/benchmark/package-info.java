@@ -0,0 +1,10 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+/**
+ * JMH benchmarks for the Hive UDAF evaluators and UDFs.
+ * Built only with the benchmark profile: mvn -Pbenchmark test-compile exec:exec
+ */
+package com.yahoo.sketches.hive.benchmark;
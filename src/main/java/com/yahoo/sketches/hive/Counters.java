@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive;
+
+import org.apache.hadoop.hive.ql.exec.MapredContext;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * Optional Hadoop counters for the sketch evaluators, published under a group per sketch family.
+ * They are published only if {@value #ENABLED_CONF} is set to true.
+ * Otherwise the evaluators use the shared disabled instance, which does nothing.
+ *
+ * <p>Values are accumulated locally and published at the end of each group
+ * (in terminate and terminatePartial) to keep the per-row cost low.</p>
+ */
+public final class Counters {
+
+  public static final String ENABLED_CONF = "sketches.counters.enabled";
+
+  public static final Counters DISABLED = new Counters(null, null);
+
+  private final MapredContext context_;
+  private final String group_;
+
+  private long rowsIngested_;
+  private long nullRowsSkipped_;
+  private long partialsMerged_;
+  private long bytesSerialized_;
+  private long bytesDeserialized_;
+  private long iterateNanos_;
+  private long mergeNanos_;
+  private long terminatePartialNanos_;
+  private long terminateNanos_;
+
+  private Counters(final MapredContext context, final String group) {
+    context_ = context;
+    group_ = group;
+  }
+
+  /**
+   * @param context context of the task, null if not known
+   * @param group name of the counter group
+   * @return counters publishing to the given group, or the disabled instance
+   */
+  public static Counters getInstance(final MapredContext context, final String group) {
+    if (context == null || !context.getJobConf().getBoolean(ENABLED_CONF, false)) {
+      return DISABLED;
+    }
+    return new Counters(context, group);
+  }
+
+  public long start() {
+    return context_ == null ? 0 : System.nanoTime();
+  }
+
+  public void rowIngested(final long startNanos) {
+    if (context_ == null) { return; }
+    rowsIngested_++;
+    iterateNanos_ += System.nanoTime() - startNanos;
+  }
+
+  public void nullRowSkipped() {
+    if (context_ == null) { return; }
+    nullRowsSkipped_++;
+  }
+
+  public void partialMerged(final long startNanos, final int bytes) {
+    if (context_ == null) { return; }
+    partialsMerged_++;
+    bytesDeserialized_ += bytes;
+    mergeNanos_ += System.nanoTime() - startNanos;
+  }
+
+  public void partialTerminated(final long startNanos, final int bytes) {
+    if (context_ == null) { return; }
+    bytesSerialized_ += bytes;
+    terminatePartialNanos_ += System.nanoTime() - startNanos;
+    publish();
+  }
+
+  public void terminated(final long startNanos) {
+    if (context_ == null) { return; }
+    terminateNanos_ += System.nanoTime() - startNanos;
+    publish();
+  }
+
+  // the reporter is set on the context after the evaluators are configured
+  private void publish() {
+    final Reporter reporter = context_.getReporter();
+    if (reporter == null) { return; }
+    increment(reporter, "ROWS_INGESTED", rowsIngested_);
+    increment(reporter, "NULL_ROWS_SKIPPED", nullRowsSkipped_);
+    increment(reporter, "PARTIALS_MERGED", partialsMerged_);
+    increment(reporter, "BYTES_SERIALIZED", bytesSerialized_);
+    increment(reporter, "BYTES_DESERIALIZED", bytesDeserialized_);
+    increment(reporter, "ITERATE_NANOS", iterateNanos_);
+    increment(reporter, "MERGE_NANOS", mergeNanos_);
+    increment(reporter, "TERMINATE_PARTIAL_NANOS", terminatePartialNanos_);
+    increment(reporter, "TERMINATE_NANOS", terminateNanos_);
+    rowsIngested_ = 0;
+    nullRowsSkipped_ = 0;
+    partialsMerged_ = 0;
+    bytesSerialized_ = 0;
+    bytesDeserialized_ = 0;
+    iterateNanos_ = 0;
+    mergeNanos_ = 0;
+    terminatePartialNanos_ = 0;
+    terminateNanos_ = 0;
+  }
+
+  private void increment(final Reporter reporter, final String name, final long value) {
+    if (value != 0) {
+      reporter.incrCounter(group_, name, value);
+    }
+  }
+
+}
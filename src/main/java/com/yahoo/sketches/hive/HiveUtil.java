@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive;
+
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.io.BytesWritable;
+
+import com.yahoo.memory.Memory;
+
+/**
+ * Helpers for the arguments given by Hive, shared by the UDFs of all sketch families.
+ */
+public final class HiveUtil {
+
+  private HiveUtil() {}
+
+  /**
+   * Wraps the content of a BytesWritable without copying.
+   * The backing array may be longer than the content, so only the first getLength() bytes are wrapped.
+   * @param bytes serialized sketch
+   * @return read-only region of the content
+   */
+  public static Memory wrap(final BytesWritable bytes) {
+    return Memory.wrap(bytes.getBytes()).region(0, bytes.getLength());
+  }
+
+  /**
+   * Values of the constant arguments at the positions they have in a row,
+   * so that they can be parsed once like the row itself.
+   * @param inspectors inspectors of all arguments
+   * @param firstConstant position of the first constant argument
+   * @return values or null if any of them is not known before the first row
+   */
+  public static Object[] getConstantValues(final ObjectInspector[] inspectors, final int firstConstant) {
+    final Object[] values = new Object[inspectors.length];
+    for (int i = firstConstant; i < inspectors.length; i++) {
+      if (!(inspectors[i] instanceof ConstantObjectInspector)) { return null; }
+      values[i] = ((ConstantObjectInspector) inspectors[i]).getWritableConstantValue();
+      if (values[i] == null) { return null; }
+    }
+    return values;
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.apache.hadoop.hive.ql.exec.MapredContext;
+
+import com.yahoo.memory.WritableDirectHandle;
+import com.yahoo.memory.WritableMemory;
+
+/**
+ * Direct (off-heap) memory for the unions of the theta and HLL evaluators.
+ * It is used only if {@value #ENABLED_CONF} is set to true.
+ * Otherwise the evaluators get no instance and keep their unions on the heap.
+ *
+ * <p>Each union state frees its memory when it is reset, re-initialized or its final result
+ * has been serialized. Hive does not reset every buffer (for instance after a hash aggregation
+ * is flushed), but it takes the result of each one first. Whatever is still allocated
+ * is freed when the evaluator is closed at the end of the task.</p>
+ */
+public final class OffHeapMemory {
+
+  public static final String ENABLED_CONF = "sketches.offheap.enabled";
+
+  private final Set<WritableDirectHandle> handles_ =
+      Collections.newSetFromMap(new IdentityHashMap<WritableDirectHandle, Boolean>());
+
+  private OffHeapMemory() {}
+
+  /**
+   * @param context context of the task, null if not known
+   * @return an instance if unions are to be kept off the heap, otherwise null
+   */
+  public static OffHeapMemory getInstance(final MapredContext context) {
+    if (context == null || !context.getJobConf().getBoolean(ENABLED_CONF, false)) {
+      return null;
+    }
+    return new OffHeapMemory();
+  }
+
+  /**
+   * @param bytes size of the memory
+   * @return handle of the allocated memory, freed by free() or freeAll()
+   */
+  public WritableDirectHandle allocate(final long bytes) {
+    final WritableDirectHandle handle = WritableMemory.allocateDirect(bytes);
+    handles_.add(handle);
+    return handle;
+  }
+
+  /**
+   * Frees memory allocated by this instance. Other handles are ignored.
+   * @param handle handle returned by allocate()
+   */
+  public void free(final WritableDirectHandle handle) {
+    if (handles_.remove(handle)) {
+      handle.close();
+    }
+  }
+
+  /**
+   * Frees all memory allocated by this instance and not freed yet
+   */
+  public void freeAll() {
+    for (final WritableDirectHandle handle: handles_) {
+      handle.close();
+    }
+    handles_.clear();
+  }
+
+}
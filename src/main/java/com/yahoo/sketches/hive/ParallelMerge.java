@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hive.ql.exec.MapredContext;
+
+/**
+ * Optional parallel merging of serialized partial sketches in PARTIAL2 and FINAL modes.
+ * It is used only if {@value #PARALLELISM_CONF} is set to more than 1.
+ * Otherwise the evaluators get no instance and merge partials one by one as they arrive.
+ *
+ * <p>A union state merges the first {@value #THRESHOLD} partials of a group directly,
+ * so small groups never leave the calling thread. After that it queues the partials and
+ * hands over a batch of {@value #BATCH_SIZE} (or whatever is left at the end of the group)
+ * to be merged as a tree reduction: ranges of up to {@value #LEAF_SIZE} partials are unioned
+ * by separate tasks, then the results are unioned pairwise up the tree.
+ * The tasks run in one fork-join pool shared by all evaluators in the JVM,
+ * created when it is first needed with the parallelism configured at that time.
+ * A JVM that is reused for later tasks keeps that pool, so a different parallelism
+ * requested by a later task is not applied, and a warning is logged instead.</p>
+ */
+public final class ParallelMerge {
+
+  public static final String PARALLELISM_CONF = "sketches.merge.parallelism";
+
+  public static final int THRESHOLD = 64;
+  public static final int BATCH_SIZE = 256;
+  static final int LEAF_SIZE = 16;
+
+  private static final Log LOG = LogFactory.getLog(ParallelMerge.class);
+
+  private static ForkJoinPool pool_;
+
+  private final int parallelism_;
+  private boolean warned_;
+
+  private ParallelMerge(final int parallelism) {
+    parallelism_ = parallelism;
+  }
+
+  /**
+   * @param context context of the task, null if not known
+   * @return an instance if partials are to be merged in parallel, otherwise null
+   */
+  public static ParallelMerge getInstance(final MapredContext context) {
+    if (context == null) { return null; }
+    final int parallelism = context.getJobConf().getInt(PARALLELISM_CONF, 1);
+    if (parallelism < 2) { return null; }
+    return new ParallelMerge(parallelism);
+  }
+
+  /**
+   * Unions of one sketch family, called from the merge tasks.
+   * @param <S> type of the merged sketches
+   */
+  public interface Merger<S> {
+
+    /**
+     * @param partials serialized partial sketches
+     * @return union of the partials
+     */
+    S merge(List<byte[]> partials);
+
+    /**
+     * @param first merged sketch
+     * @param second merged sketch
+     * @return union of the two
+     */
+    S merge(S first, S second);
+
+  }
+
+  /**
+   * @param <S> type of the merged sketches
+   * @param partials serialized partial sketches
+   * @param merger unions of their sketch family
+   * @return union of the partials
+   */
+  public <S> S merge(final List<byte[]> partials, final Merger<S> merger) {
+    final MergeTask<S> task = new MergeTask<>(partials, merger);
+    // a single leaf is not worth a hand-over to the pool
+    if (partials.size() <= LEAF_SIZE) { return task.compute(); }
+    final ForkJoinPool pool = getPool(parallelism_);
+    if (pool.getParallelism() != parallelism_ && !warned_) {
+      LOG.warn(PARALLELISM_CONF + " = " + parallelism_ + " is ignored, partials are merged by the pool"
+          + " created earlier in this JVM with parallelism " + pool.getParallelism());
+      warned_ = true;
+    }
+    return pool.invoke(task);
+  }
+
+  // the first parallelism configured in the JVM wins
+  private static synchronized ForkJoinPool getPool(final int parallelism) {
+    if (pool_ == null) {
+      pool_ = new ForkJoinPool(parallelism);
+    }
+    return pool_;
+  }
+
+  private static final class MergeTask<S> extends RecursiveTask<S> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<byte[]> partials_;
+    private final Merger<S> merger_;
+
+    MergeTask(final List<byte[]> partials, final Merger<S> merger) {
+      partials_ = partials;
+      merger_ = merger;
+    }
+
+    @Override
+    protected S compute() {
+      if (partials_.size() <= LEAF_SIZE) {
+        return merger_.merge(partials_);
+      }
+      final int middle = partials_.size() / 2;
+      final MergeTask<S> first = new MergeTask<>(partials_.subList(0, middle), merger_);
+      first.fork();
+      final MergeTask<S> second = new MergeTask<>(partials_.subList(middle, partials_.size()), merger_);
+      final S secondResult = second.compute();
+      return merger_.merge(first.join(), secondResult);
+    }
+
+  }
+
+}
@@ -17,6 +17,7 @@ import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
 
 import com.yahoo.sketches.ArrayOfItemsSerDe;
+import com.yahoo.sketches.hive.HiveUtil;
 
 /**
  * This is a generic implementation to be specialized in subclasses
@@ -56,6 +57,11 @@ public abstract class DataToItemsSketchUDAF<T> extends AbstractGenericUDAFResolv
 
     private PrimitiveObjectInspector maxMapSizeObjectInspector;
 
+    // FOR PARTIAL1 and COMPLETE modes: resolved once in init if the argument is a constant
+    // with a known value, otherwise read from the first row of each group
+    private boolean maxMapSizeResolved;
+    private int maxMapSize;
+
     public DataToItemsSketchEvaluator(final ArrayOfItemsSerDe<T> serDe) {
       super(serDe);
     }
@@ -71,6 +77,11 @@ public abstract class DataToItemsSketchUDAF<T> extends AbstractGenericUDAFResolv
       if (mode == Mode.PARTIAL1 || mode == Mode.COMPLETE) {
         if (parameters.length > 1) {
           maxMapSizeObjectInspector = (PrimitiveObjectInspector) parameters[1];
+          final Object[] constantValues = HiveUtil.getConstantValues(parameters, 1);
+          maxMapSizeResolved = constantValues != null;
+          if (maxMapSizeResolved) {
+            maxMapSize = PrimitiveObjectInspectorUtils.getInt(constantValues[1], maxMapSizeObjectInspector);
+          }
         }
       }
 
@@ -80,14 +91,21 @@ public abstract class DataToItemsSketchUDAF<T> extends AbstractGenericUDAFResolv
     @SuppressWarnings("deprecation")
     @Override
     public void iterate(final AggregationBuffer buf, final Object[] data) throws HiveException {
-      if (data[0] == null) { return; }
+      if (data[0] == null) {
+        counters.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters.start();
       @SuppressWarnings("unchecked")
       final ItemsState<T> state = (ItemsState<T>) buf;
       if (!state.isInitialized()) {
-        final int maxMapSize = PrimitiveObjectInspectorUtils.getInt(data[1], maxMapSizeObjectInspector);
+        if (!maxMapSizeResolved) {
+          maxMapSize = PrimitiveObjectInspectorUtils.getInt(data[1], maxMapSizeObjectInspector);
+        }
         state.init(maxMapSize);
       }
       state.update(extractValue(data[0], inputObjectInspector));
+      counters.rowIngested(startNanos);
     }
 
     public abstract T extractValue(final Object data, final ObjectInspector objectInspector)
@@ -19,10 +19,10 @@ import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
 import com.yahoo.sketches.ArrayOfStringsSerDe;
 import com.yahoo.sketches.frequencies.ErrorType;
 import com.yahoo.sketches.frequencies.ItemsSketch;
+import com.yahoo.sketches.hive.HiveUtil;
 
 @Description(name = "GetFrequentItems", value = "_FUNC_(sketch, errorType) - "
     + "Returns a list of frequent items in descending order by estimated frequency."
@@ -79,7 +79,7 @@ public class GetFrequentItemsFromStringsSketchUDTF extends GenericUDTF {
     final BytesWritable serializedSketch =
         (BytesWritable) inputObjectInspector.getPrimitiveWritableObject(data[0]);
     final ItemsSketch<String> sketch = ItemsSketch.getInstance(
-        Memory.wrap(serializedSketch.getBytes()), new ArrayOfStringsSerDe());
+        HiveUtil.wrap(serializedSketch), new ArrayOfStringsSerDe());
     ErrorType errorType = ErrorType.NO_FALSE_POSITIVES;
     if (data.length > 1) {
       errorType = ErrorType.valueOf((String) errorTypeObjectInspector.getPrimitiveJavaObject(data[1]));
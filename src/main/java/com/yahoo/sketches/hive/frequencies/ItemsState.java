@@ -6,16 +6,27 @@
 package com.yahoo.sketches.hive.frequencies;
 
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AbstractAggregationBuffer;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
 
 import com.yahoo.memory.Memory;
 import com.yahoo.sketches.ArrayOfItemsSerDe;
+import com.yahoo.sketches.ArrayOfStringsSerDe;
+import com.yahoo.sketches.Util;
 import com.yahoo.sketches.frequencies.ItemsSketch;
 
+@AggregationType(estimable = true)
 class ItemsState<T> extends AbstractAggregationBuffer {
 
+  // size of every 1024th item is sampled to estimate the average size of items in the map
+  private static final int ITEM_SAMPLING_MASK = 0x3FF;
+
   private int maxMapSize_;
   private final ArrayOfItemsSerDe<T> serDe_;
   private ItemsSketch<T> sketch;
+  private long numUpdates_;
+  private long sampledItemBytes_;
+  private int numSampledItems_;
 
   ItemsState(final ArrayOfItemsSerDe<T> serDe) {
     serDe_ = serDe;
@@ -34,15 +45,31 @@ class ItemsState<T> extends AbstractAggregationBuffer {
 
   void update(final T value) {
     sketch.update(value);
+    if ((numUpdates_++ & ITEM_SAMPLING_MASK) == 0) {
+      sampledItemBytes_ += value instanceof String
+          ? JavaDataModel.get().lengthForStringOfLength(((String) value).length())
+          : JavaDataModel.get().object();
+      numSampledItems_++;
+    }
   }
 
-  void update(final byte[] serializedSketch) {
-    final ItemsSketch<T> incomingSketch = ItemsSketch.getInstance(Memory.wrap(serializedSketch), serDe_);
+  void update(final Memory serializedSketch) {
+    final ItemsSketch<T> incomingSketch = ItemsSketch.getInstance(serializedSketch, serDe_);
     if (sketch == null) {
       sketch = incomingSketch;
     } else {
       sketch.merge(incomingSketch);
     }
+    // no cheap access to the incoming items, so their size is approximated from the serialized form,
+    // where each active item comes with a long count
+    final int numItems = incomingSketch.getNumActiveItems();
+    if (numItems > 0) {
+      final int itemBytes = Math.max(0, (int) serializedSketch.getCapacity() / numItems - Long.BYTES);
+      sampledItemBytes_ += serDe_ instanceof ArrayOfStringsSerDe
+          ? JavaDataModel.get().lengthForStringOfLength(Math.max(0, itemBytes - Integer.BYTES))
+          : JavaDataModel.get().object() + itemBytes;
+      numSampledItems_++;
+    }
   }
 
   public ItemsSketch<T> getResult() {
@@ -51,6 +78,22 @@ class ItemsState<T> extends AbstractAggregationBuffer {
 
   void reset() {
     sketch = null;
+    numUpdates_ = 0;
+    sampledItemBytes_ = 0;
+    numSampledItems_ = 0;
+  }
+
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    if (sketch == null) { return model.object(); }
+    // the map holds parallel arrays of items, counts and states, and is kept at most 75% full
+    final int mapLength = Util.ceilingPowerOf2(sketch.getCurrentMapCapacity() * 4 / 3);
+    final long averageItemBytes =
+        numSampledItems_ == 0 ? model.object() : sampledItemBytes_ / numSampledItems_;
+    return model.object() * 3 + model.lengthForObjectArrayOfSize(mapLength)
+        + model.lengthForLongArrayOfSize(mapLength) + model.array() + mapLength * 2
+        + (int) (sketch.getNumActiveItems() * averageItemBytes);
   }
 
 }
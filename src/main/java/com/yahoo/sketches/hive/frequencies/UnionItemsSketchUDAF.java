@@ -14,8 +14,10 @@ import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFParameterInfo;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.io.BytesWritable;
 
 import com.yahoo.sketches.ArrayOfItemsSerDe;
+import com.yahoo.sketches.hive.HiveUtil;
 
 /**
  * This is a generic implementation to be specialized in subclasses
@@ -52,7 +54,17 @@ public abstract class UnionItemsSketchUDAF<T> extends AbstractGenericUDAFResolve
     @SuppressWarnings("deprecation")
     @Override
     public void iterate(final AggregationBuffer buf, final Object[] data) throws HiveException {
-      merge(buf, data[0]);
+      if (data[0] == null) {
+        counters.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters.start();
+      @SuppressWarnings("unchecked")
+      final ItemsState<T> state = (ItemsState<T>) buf;
+      final BytesWritable serializedSketch =
+          (BytesWritable) inputObjectInspector.getPrimitiveWritableObject(data[0]);
+      state.update(HiveUtil.wrap(serializedSketch));
+      counters.rowIngested(startNanos);
     }
 
   }
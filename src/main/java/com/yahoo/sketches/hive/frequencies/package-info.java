@@ -10,6 +10,10 @@
  * An implementation for strings is provided: DataToStringsSketchUDAF and UnionStringsSketchUDAF.
  * GetFrequentItemsFromStringsSketchUDTF is to obtain results from sketches.
  *
+ * <p>Setting sketches.counters.enabled to true publishes Hadoop counters for the UDAFs
+ * in this package under the group "Sketches: frequencies": rows ingested, null rows skipped,
+ * partials merged, bytes serialized and deserialized, and nanoseconds spent in each phase.
+ *
  * @author Alexander Saydakov
  */
 package com.yahoo.sketches.hive.frequencies;
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.hll;
+
+import static com.yahoo.sketches.hive.hll.SketchEvaluator.DEFAULT_HLL_TYPE;
+import static com.yahoo.sketches.hive.hll.SketchEvaluator.DEFAULT_LG_K;
+import static com.yahoo.sketches.hive.hll.SketchEvaluator.HLL_TYPE_FIELD;
+import static com.yahoo.sketches.hive.hll.SketchEvaluator.LG_K_FIELD;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.MapredContext;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.ql.udf.generic.AbstractGenericUDAFResolver;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFParameterInfo;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+
+import com.yahoo.sketches.hive.Counters;
+import com.yahoo.sketches.hive.HiveUtil;
+import com.yahoo.sketches.hll.TgtHllType;
+
+/**
+ * Hive UDAF to create an HllSketch from raw data for each value of several dimensions in one pass.
+ *
+ * <p>Strings are hashed according to {@value DataToSketchUDAF#HASH_UTF8_BYTES_CONF},
+ * the same as in DataToSketchUDAF.</p>
+ */
+@Description(
+    name = "dataToSketchMap",
+    value = "_FUNC_(expr, dimensions, lgK, type) - "
+        + "Compute a sketch on data 'expr' for each value of the given dimensions",
+    extended = "Example:\n"
+    + "> SELECT dataToSketchMap(user_id, array(country, device, app)) FROM src;\n"
+    + "> SELECT dataToSketchMap(user_id, named_struct('country', country, 'device', device)) FROM src;\n"
+    + "The return value is a map from dimension values to binary blobs that can be operated on"
+    + " by other sketch related functions. It is the same as running dataToSketch(expr, lgK, type)"
+    + " grouped by each dimension separately, but in one pass over the data."
+    + " Dimensions can be given as an array of primitive values, which are used as map keys as they are,"
+    + " or as a struct of primitive values, in which case the map keys are 'name=value'."
+    + " Null values and dimensions are skipped."
+    + " The lgK and target type are optional, have the same meaning and defaults"
+    + " as in dataToSketch, and apply to every sketch in the map.")
+public class DataToSketchMapUDAF extends AbstractGenericUDAFResolver {
+
+  static final String SKETCHES_FIELD = "sketches";
+
+  @Override
+  public GenericUDAFEvaluator getEvaluator(final GenericUDAFParameterInfo info) throws SemanticException {
+    final ObjectInspector[] inspectors = info.getParameterObjectInspectors();
+
+    if (inspectors.length < 2) {
+      throw new UDFArgumentException("Please specify at least 2 arguments");
+    }
+
+    if (inspectors.length > 4) {
+      throw new UDFArgumentException("Please specify no more than 4 arguments");
+    }
+
+    ObjectInspectorValidator.validateCategoryPrimitive(inspectors[0], 0);
+
+    switch (inspectors[1].getCategory()) {
+    case LIST:
+      ObjectInspectorValidator.validateCategoryPrimitive(
+          ((ListObjectInspector) inspectors[1]).getListElementObjectInspector(), 1);
+      break;
+    case STRUCT:
+      for (final StructField field: ((StructObjectInspector) inspectors[1]).getAllStructFieldRefs()) {
+        ObjectInspectorValidator.validateCategoryPrimitive(field.getFieldObjectInspector(), 1);
+      }
+      break;
+    default:
+      throw new UDFArgumentTypeException(1, "Array or struct of dimensions expected, but "
+          + inspectors[1].getCategory().name() + " was received as parameter 2");
+    }
+
+    if (inspectors.length > 2) {
+      ObjectInspectorValidator.validateIntegralParameter(inspectors[2], 2);
+      if (!ObjectInspectorUtils.isConstantObjectInspector(inspectors[2])) {
+        throw new UDFArgumentTypeException(2, "The third argument must be a constant");
+      }
+    }
+
+    if (inspectors.length > 3) {
+      ObjectInspectorValidator.validateGivenPrimitiveCategory(inspectors[3], 3, PrimitiveCategory.STRING);
+      if (!ObjectInspectorUtils.isConstantObjectInspector(inspectors[3])) {
+        throw new UDFArgumentTypeException(3, "The fourth argument must be a constant");
+      }
+    }
+
+    return new DataToSketchMapEvaluator();
+  }
+
+  public static class DataToSketchMapEvaluator extends GenericUDAFEvaluator {
+
+    // FOR PARTIAL1 and COMPLETE modes: ObjectInspectors for original data
+    private PrimitiveObjectInspector inputInspector_;
+    private ObjectInspector dimensionsInspector_;
+    private PrimitiveObjectInspector lgKInspector_;
+    private PrimitiveObjectInspector hllTypeInspector_;
+
+    // FOR PARTIAL1 and COMPLETE modes: feeds the original data into the sketches
+    private KeyUpdater keyUpdater_;
+    private boolean hashUtf8Bytes_;
+
+    // FOR PARTIAL1 and COMPLETE modes: parameters of new sketches,
+    // resolved once in init if the arguments are constants with known values
+    private boolean parametersResolved_;
+    private int lgK_;
+    private TgtHllType hllType_;
+
+    // FOR PARTIAL2 and FINAL modes: ObjectInspectors for partial aggregations
+    private StructObjectInspector intermediateInspector_;
+    private MapObjectInspector sketchesInspector_;
+
+    private Counters counters_ = Counters.DISABLED;
+
+    @Override
+    public void configure(final MapredContext context) {
+      counters_ = Counters.getInstance(context, "Sketches: hll");
+      hashUtf8Bytes_ = context.getJobConf().getBoolean(DataToSketchUDAF.HASH_UTF8_BYTES_CONF, false);
+      if (inputInspector_ != null) {
+        keyUpdater_ = KeyUpdater.getInstance(inputInspector_, hashUtf8Bytes_);
+      }
+    }
+
+    @Override
+    public ObjectInspector init(final Mode mode, final ObjectInspector[] parameters) throws HiveException {
+      super.init(mode, parameters);
+      if ((mode == Mode.PARTIAL1) || (mode == Mode.COMPLETE)) {
+        // input is original data
+        inputInspector_ = (PrimitiveObjectInspector) parameters[0];
+        keyUpdater_ = KeyUpdater.getInstance(inputInspector_, hashUtf8Bytes_);
+        dimensionsInspector_ = parameters[1];
+        if (parameters.length > 2) {
+          lgKInspector_ = (PrimitiveObjectInspector) parameters[2];
+        }
+        if (parameters.length > 3) {
+          hllTypeInspector_ = (PrimitiveObjectInspector) parameters[3];
+        }
+        final Object[] constantValues = HiveUtil.getConstantValues(parameters, 2);
+        parametersResolved_ = constantValues != null;
+        if (parametersResolved_) {
+          resolveParameters(constantValues);
+        }
+      } else {
+        // input for PARTIAL2 and FINAL is the output from PARTIAL1
+        intermediateInspector_ = (StructObjectInspector) parameters[0];
+        sketchesInspector_ = (MapObjectInspector) intermediateInspector_
+            .getStructFieldRef(SKETCHES_FIELD).getFieldObjectInspector();
+      }
+
+      final ObjectInspector sketchesInspector = ObjectInspectorFactory.getStandardMapObjectInspector(
+          PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.STRING),
+          PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.BINARY)
+      );
+      if ((mode == Mode.PARTIAL1) || (mode == Mode.PARTIAL2)) {
+        // intermediate results need to include the lgK and the target HLL type
+        return ObjectInspectorFactory.getStandardStructObjectInspector(
+          Arrays.asList(LG_K_FIELD, HLL_TYPE_FIELD, SKETCHES_FIELD),
+          Arrays.asList(
+            PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.INT),
+            PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.STRING),
+            sketchesInspector
+          )
+        );
+      }
+      // final results include just the sketches
+      return sketchesInspector;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+      return new SketchMapState();
+    }
+
+    @Override
+    public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer agg,
+        final Object[] parameters) throws HiveException {
+      if (parameters[0] == null || parameters[1] == null) {
+        counters_.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters_.start();
+      final SketchMapState state = (SketchMapState) agg;
+      if (!state.isInitialized()) {
+        if (!parametersResolved_) {
+          resolveParameters(parameters);
+        }
+        state.init(lgK_, hllType_);
+      }
+      if (dimensionsInspector_ instanceof ListObjectInspector) {
+        final ListObjectInspector listInspector = (ListObjectInspector) dimensionsInspector_;
+        final PrimitiveObjectInspector elementInspector =
+            (PrimitiveObjectInspector) listInspector.getListElementObjectInspector();
+        final int length = listInspector.getListLength(parameters[1]);
+        for (int i = 0; i < length; i++) {
+          final Object dimension = listInspector.getListElement(parameters[1], i);
+          if (dimension == null) { continue; }
+          state.update(PrimitiveObjectInspectorUtils.getString(dimension, elementInspector),
+              parameters[0], keyUpdater_);
+        }
+      } else {
+        final StructObjectInspector structInspector = (StructObjectInspector) dimensionsInspector_;
+        for (final StructField field: structInspector.getAllStructFieldRefs()) {
+          final Object dimension = structInspector.getStructFieldData(parameters[1], field);
+          if (dimension == null) { continue; }
+          state.update(field.getFieldName() + "=" + PrimitiveObjectInspectorUtils.getString(dimension,
+              (PrimitiveObjectInspector) field.getFieldObjectInspector()), parameters[0], keyUpdater_);
+        }
+      }
+      counters_.rowIngested(startNanos);
+    }
+
+    // reads the parameters from a row or from the values of the constant arguments
+    private void resolveParameters(final Object[] parameters) {
+      lgK_ = DEFAULT_LG_K;
+      if (lgKInspector_ != null) {
+        lgK_ = PrimitiveObjectInspectorUtils.getInt(parameters[2], lgKInspector_);
+      }
+      hllType_ = DEFAULT_HLL_TYPE;
+      if (hllTypeInspector_ != null) {
+        hllType_ = TgtHllType.valueOf(
+            PrimitiveObjectInspectorUtils.getString(parameters[3], hllTypeInspector_));
+      }
+    }
+
+    @Override
+    public Object terminatePartial(final @SuppressWarnings("deprecation") AggregationBuffer agg)
+        throws HiveException {
+      final SketchMapState state = (SketchMapState) agg;
+      if (!state.isInitialized()) { return null; }
+      final long startNanos = counters_.start();
+      final Map<Text, BytesWritable> sketches = state.getResult();
+      counters_.partialTerminated(startNanos, getTotalLength(sketches));
+      return Arrays.<Object>asList(
+        new IntWritable(state.getLgK()),
+        new Text(state.getType().toString()),
+        sketches
+      );
+    }
+
+    private static int getTotalLength(final Map<Text, BytesWritable> sketches) {
+      int length = 0;
+      for (final BytesWritable serializedSketch: sketches.values()) {
+        length += serializedSketch.getLength();
+      }
+      return length;
+    }
+
+    // sketches of the same dimension value in different partials are merged together
+    @Override
+    public void merge(final @SuppressWarnings("deprecation") AggregationBuffer agg, final Object data)
+        throws HiveException {
+      if (data == null) { return; }
+      final long startNanos = counters_.start();
+      final SketchMapState state = (SketchMapState) agg;
+      if (!state.isInitialized()) {
+        final int lgK = ((IntWritable) intermediateInspector_.getStructFieldData(
+            data, intermediateInspector_.getStructFieldRef(LG_K_FIELD))).get();
+        final TgtHllType type = TgtHllType.valueOf(((Text) intermediateInspector_.getStructFieldData(
+            data, intermediateInspector_.getStructFieldRef(HLL_TYPE_FIELD))).toString());
+        state.init(lgK, type);
+      }
+      final Map<?, ?> sketches = sketchesInspector_.getMap(intermediateInspector_.getStructFieldData(
+          data, intermediateInspector_.getStructFieldRef(SKETCHES_FIELD)));
+      final PrimitiveObjectInspector keyInspector =
+          (PrimitiveObjectInspector) sketchesInspector_.getMapKeyObjectInspector();
+      final PrimitiveObjectInspector valueInspector =
+          (PrimitiveObjectInspector) sketchesInspector_.getMapValueObjectInspector();
+      int length = 0;
+      for (final Map.Entry<?, ?> entry: sketches.entrySet()) {
+        final BytesWritable serializedSketch =
+            (BytesWritable) valueInspector.getPrimitiveWritableObject(entry.getValue());
+        state.update(PrimitiveObjectInspectorUtils.getString(entry.getKey(), keyInspector),
+            HiveUtil.wrap(serializedSketch));
+        length += serializedSketch.getLength();
+      }
+      counters_.partialMerged(startNanos, length);
+    }
+
+    @Override
+    public Object terminate(final @SuppressWarnings("deprecation") AggregationBuffer agg)
+        throws HiveException {
+      final SketchMapState state = (SketchMapState) agg;
+      if (!state.isInitialized()) { return null; }
+      final long startNanos = counters_.start();
+      final Map<Text, BytesWritable> sketches = state.getResult();
+      counters_.terminated(startNanos);
+      return sketches;
+    }
+
+    @Override
+    public void reset(@SuppressWarnings("deprecation") final AggregationBuffer agg)
+        throws HiveException {
+      ((SketchMapState) agg).reset();
+    }
+
+  }
+
+}
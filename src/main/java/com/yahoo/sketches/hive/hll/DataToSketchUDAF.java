@@ -8,6 +8,7 @@ package com.yahoo.sketches.hive.hll;
 import java.util.Arrays;
 
 import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
@@ -24,10 +25,17 @@ import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
 
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.hll.TgtHllType;
 
 /**
  * Hive UDAF to create an HllSketch from raw data.
+ *
+ * <p>Setting {@value #HASH_UTF8_BYTES_CONF} to true makes string, char and varchar input
+ * hashed from its UTF-8 bytes instead of its UTF-16 chars, which is cheaper.
+ * This is the same rule as HllSketch.update(String) in the library, but not the default here.
+ * Sketches built this way give different hashes for the same strings,
+ * so they must not be merged with sketches built with the default setting.</p>
  */
 @Description(
     name = "dataToSketch",
@@ -43,6 +51,8 @@ import com.yahoo.sketches.hll.TgtHllType;
     + " The default is 'HLL_4'")
 public class DataToSketchUDAF extends AbstractGenericUDAFResolver {
 
+  public static final String HASH_UTF8_BYTES_CONF = "sketches.hll.hash.utf8.bytes";
+
   /**
    * Performs argument number and type validation. DataToSketch expects
    * to receive between one and three arguments.
@@ -101,6 +111,26 @@ public class DataToSketchUDAF extends AbstractGenericUDAFResolver {
 
     private Mode mode_;
 
+    // FOR PARTIAL1 and COMPLETE modes: feeds the original data into the state
+    private KeyUpdater keyUpdater_;
+    private boolean hashUtf8Bytes_;
+
+    // FOR PARTIAL1 and COMPLETE modes: parameters of new sketches,
+    // resolved once in init if the arguments are constants with known values
+    private boolean parametersResolved_;
+    private int lgK_;
+    private TgtHllType hllType_;
+
+    @Override
+    public void configure(final MapredContext context) {
+      super.configure(context);
+      if (context == null) { return; }
+      hashUtf8Bytes_ = context.getJobConf().getBoolean(HASH_UTF8_BYTES_CONF, false);
+      if (inputInspector_ != null) {
+        keyUpdater_ = KeyUpdater.getInstance(inputInspector_, hashUtf8Bytes_);
+      }
+    }
+
     @SuppressWarnings("deprecation")
     @Override
     public AggregationBuffer getNewAggregationBuffer() throws HiveException {
@@ -112,7 +142,7 @@ public class DataToSketchUDAF extends AbstractGenericUDAFResolver {
       if ((mode_ == Mode.PARTIAL1) || (mode_ == Mode.COMPLETE)) { // iterate() will be used
         return new SketchState();
       }
-      return new UnionState();
+      return new UnionState(offHeapMemory_, getParallelMerge());
     }
 
     /*
@@ -130,12 +160,18 @@ public class DataToSketchUDAF extends AbstractGenericUDAFResolver {
       if ((mode == Mode.PARTIAL1) || (mode == Mode.COMPLETE)) {
         // input is original data
         inputInspector_ = (PrimitiveObjectInspector) parameters[0];
+        keyUpdater_ = KeyUpdater.getInstance(inputInspector_, hashUtf8Bytes_);
         if (parameters.length > 1) {
           lgKInspector_ = (PrimitiveObjectInspector) parameters[1];
         }
         if (parameters.length > 2) {
           hllTypeInspector_ = (PrimitiveObjectInspector) parameters[2];
         }
+        final Object[] constantValues = HiveUtil.getConstantValues(parameters, 1);
+        parametersResolved_ = constantValues != null;
+        if (parametersResolved_) {
+          resolveParameters(constantValues);
+        }
       } else {
         // input for PARTIAL2 and FINAL is the output from PARTIAL1
         intermediateInspector_ = (StructObjectInspector) parameters[0];
@@ -168,24 +204,37 @@ public class DataToSketchUDAF extends AbstractGenericUDAFResolver {
     @Override
     public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer agg,
         final Object[] parameters) throws HiveException {
-      if (parameters[0] == null) { return; }
+      if (parameters[0] == null) {
+        counters_.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters_.start();
       final State state = (State) agg;
       if (!state.isInitialized()) {
         initializeState(state, parameters);
       }
-      state.update(parameters[0], inputInspector_);
+      state.update(parameters[0], keyUpdater_);
+      counters_.rowIngested(startNanos);
     }
 
     private void initializeState(final State state, final Object[] parameters) {
-      int lgK = DEFAULT_LG_K;
+      if (!parametersResolved_) {
+        resolveParameters(parameters);
+      }
+      state.init(lgK_, hllType_);
+    }
+
+    // reads the parameters from a row or from the values of the constant arguments
+    private void resolveParameters(final Object[] parameters) {
+      lgK_ = DEFAULT_LG_K;
       if (lgKInspector_ != null) {
-        lgK = PrimitiveObjectInspectorUtils.getInt(parameters[1], lgKInspector_);
+        lgK_ = PrimitiveObjectInspectorUtils.getInt(parameters[1], lgKInspector_);
       }
-      TgtHllType type = DEFAULT_HLL_TYPE;
+      hllType_ = DEFAULT_HLL_TYPE;
       if (hllTypeInspector_ != null) {
-        type = TgtHllType.valueOf(PrimitiveObjectInspectorUtils.getString(parameters[2], hllTypeInspector_));
+        hllType_ = TgtHllType.valueOf(
+            PrimitiveObjectInspectorUtils.getString(parameters[2], hllTypeInspector_));
       }
-      state.init(lgK, type);
     }
 
   }
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.hll;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.HiveCharObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.HiveVarcharObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.io.Text;
+
+import com.yahoo.sketches.hll.HllSketch;
+import com.yahoo.sketches.hll.Union;
+
+/**
+ * Feeds raw input values of one primitive type into a sketch or a union.
+ * The type of the input column is known once the evaluator is initialized,
+ * so the dispatch on the primitive category happens once per evaluator
+ * instead of once per row.
+ *
+ * <p>By default strings, chars and varchars are hashed as UTF-16 chars.
+ * Optionally they can be hashed straight from the UTF-8 bytes of their writables,
+ * which avoids materializing a String and a char array for every row.
+ * The two rules produce different hashes, so sketches built with UTF-8 hashing
+ * must not be merged with sketches built the default way.</p>
+ */
+abstract class KeyUpdater {
+
+  abstract void update(HllSketch sketch, Object data);
+
+  abstract void update(Union union, Object data);
+
+  static KeyUpdater getInstance(final PrimitiveObjectInspector inspector, final boolean hashUtf8Bytes) {
+    if (hashUtf8Bytes) {
+      switch (inspector.getPrimitiveCategory()) {
+        case STRING:
+          return new Utf8KeyUpdater() {
+            @Override
+            Text getText(final Object data) {
+              return ((StringObjectInspector) inspector).getPrimitiveWritableObject(data);
+            }
+          };
+        case CHAR:
+          return new Utf8KeyUpdater() {
+            @Override
+            Text getText(final Object data) {
+              return ((HiveCharObjectInspector) inspector).getPrimitiveWritableObject(data).getTextValue();
+            }
+          };
+        case VARCHAR:
+          return new Utf8KeyUpdater() {
+            @Override
+            Text getText(final Object data) {
+              return ((HiveVarcharObjectInspector) inspector).getPrimitiveWritableObject(data).getTextValue();
+            }
+          };
+        default:
+          // other types are hashed the same way regardless
+      }
+    }
+    switch (inspector.getPrimitiveCategory()) {
+      case BINARY:
+        return new KeyUpdater() {
+          @Override
+          void update(final HllSketch sketch, final Object data) {
+            sketch.update(PrimitiveObjectInspectorUtils.getBinary(data, inspector).getBytes());
+          }
+
+          @Override
+          void update(final Union union, final Object data) {
+            union.update(PrimitiveObjectInspectorUtils.getBinary(data, inspector).getBytes());
+          }
+        };
+      case BYTE:
+        return new KeyUpdater() {
+          @Override
+          void update(final HllSketch sketch, final Object data) {
+            sketch.update(PrimitiveObjectInspectorUtils.getByte(data, inspector));
+          }
+
+          @Override
+          void update(final Union union, final Object data) {
+            union.update(PrimitiveObjectInspectorUtils.getByte(data, inspector));
+          }
+        };
+      case DOUBLE:
+        return new KeyUpdater() {
+          @Override
+          void update(final HllSketch sketch, final Object data) {
+            sketch.update(PrimitiveObjectInspectorUtils.getDouble(data, inspector));
+          }
+
+          @Override
+          void update(final Union union, final Object data) {
+            union.update(PrimitiveObjectInspectorUtils.getDouble(data, inspector));
+          }
+        };
+      case FLOAT:
+        return new KeyUpdater() {
+          @Override
+          void update(final HllSketch sketch, final Object data) {
+            sketch.update(PrimitiveObjectInspectorUtils.getFloat(data, inspector));
+          }
+
+          @Override
+          void update(final Union union, final Object data) {
+            union.update(PrimitiveObjectInspectorUtils.getFloat(data, inspector));
+          }
+        };
+      case INT:
+        return new KeyUpdater() {
+          @Override
+          void update(final HllSketch sketch, final Object data) {
+            sketch.update(PrimitiveObjectInspectorUtils.getInt(data, inspector));
+          }
+
+          @Override
+          void update(final Union union, final Object data) {
+            union.update(PrimitiveObjectInspectorUtils.getInt(data, inspector));
+          }
+        };
+      case LONG:
+        return new KeyUpdater() {
+          @Override
+          void update(final HllSketch sketch, final Object data) {
+            sketch.update(PrimitiveObjectInspectorUtils.getLong(data, inspector));
+          }
+
+          @Override
+          void update(final Union union, final Object data) {
+            union.update(PrimitiveObjectInspectorUtils.getLong(data, inspector));
+          }
+        };
+      case STRING:
+        // conversion to char[] avoids costly UTF-8 encoding
+        return new KeyUpdater() {
+          @Override
+          void update(final HllSketch sketch, final Object data) {
+            sketch.update(PrimitiveObjectInspectorUtils.getString(data, inspector)
+                .toCharArray());
+          }
+
+          @Override
+          void update(final Union union, final Object data) {
+            union.update(PrimitiveObjectInspectorUtils.getString(data, inspector)
+                .toCharArray());
+          }
+        };
+      case CHAR:
+        return new KeyUpdater() {
+          @Override
+          void update(final HllSketch sketch, final Object data) {
+            sketch.update(PrimitiveObjectInspectorUtils.getHiveChar(data, inspector).getValue()
+                .toCharArray());
+          }
+
+          @Override
+          void update(final Union union, final Object data) {
+            union.update(PrimitiveObjectInspectorUtils.getHiveChar(data, inspector).getValue()
+                .toCharArray());
+          }
+        };
+      case VARCHAR:
+        return new KeyUpdater() {
+          @Override
+          void update(final HllSketch sketch, final Object data) {
+            sketch.update(PrimitiveObjectInspectorUtils.getHiveVarchar(data, inspector).getValue()
+                .toCharArray());
+          }
+
+          @Override
+          void update(final Union union, final Object data) {
+            union.update(PrimitiveObjectInspectorUtils.getHiveVarchar(data, inspector).getValue()
+                .toCharArray());
+          }
+        };
+      default:
+        throw new IllegalArgumentException(
+          "Unrecongnized input data type category " + inspector.getPrimitiveCategory()
+          + ", please use data of the following types: "
+          + "byte, double, float, int, long, char, varchar or string.");
+    }
+  }
+
+  private abstract static class Utf8KeyUpdater extends KeyUpdater {
+
+    abstract Text getText(Object data);
+
+    @Override
+    void update(final HllSketch sketch, final Object data) {
+      sketch.update(getBytes(getText(data)));
+    }
+
+    @Override
+    void update(final Union union, final Object data) {
+      union.update(getBytes(getText(data)));
+    }
+
+    // the backing array of a Text may be longer than its content
+    private static byte[] getBytes(final Text text) {
+      if (text.getLength() == text.getBytes().length) { return text.getBytes(); }
+      return Arrays.copyOf(text.getBytes(), text.getLength());
+    }
+
+  }
+
+}
@@ -5,17 +5,31 @@
 
 package com.yahoo.sketches.hive.hll;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.BoundarySpec;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.Direction;
+import org.apache.hadoop.hive.ql.plan.ptf.BoundaryDef;
+import org.apache.hadoop.hive.ql.plan.ptf.CurrentRowDef;
+import org.apache.hadoop.hive.ql.plan.ptf.RangeBoundaryDef;
+import org.apache.hadoop.hive.ql.plan.ptf.WindowFrameDef;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFStreamingEvaluator;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.Counters;
+import com.yahoo.sketches.hive.HiveUtil;
+import com.yahoo.sketches.hive.OffHeapMemory;
+import com.yahoo.sketches.hive.ParallelMerge;
 import com.yahoo.sketches.hll.HllSketch;
 import com.yahoo.sketches.hll.TgtHllType;
 
@@ -35,31 +49,74 @@ abstract class SketchEvaluator extends GenericUDAFEvaluator {
   protected PrimitiveObjectInspector hllTypeInspector_;
   protected StructObjectInspector intermediateInspector_;
 
+  // output objects are reused across groups,
+  // since Hive serializes each output before asking for the next one
+  private IntWritable lgKOutput_;
+  private Text hllTypeOutput_;
+  private Object[] intermediateOutput_;
+  private List<Object> intermediateOutputList_;
+
+  protected Counters counters_ = Counters.DISABLED;
+
+  // null unless unions are allocated off-heap
+  protected OffHeapMemory offHeapMemory_;
+
+  // null unless partials are merged in parallel
+  private ParallelMerge parallelMerge_;
+  private boolean mergesPartials_;
+
+  @Override
+  public void configure(final MapredContext context) {
+    counters_ = Counters.getInstance(context, "Sketches: hll");
+    offHeapMemory_ = OffHeapMemory.getInstance(context);
+    parallelMerge_ = ParallelMerge.getInstance(context);
+  }
+
+  @Override
+  public ObjectInspector init(final Mode mode, final ObjectInspector[] parameters) throws HiveException {
+    lgKOutput_ = new IntWritable();
+    hllTypeOutput_ = new Text();
+    intermediateOutput_ = new Object[] {lgKOutput_, hllTypeOutput_, null};
+    intermediateOutputList_ = Arrays.asList(intermediateOutput_);
+    mergesPartials_ = mode == Mode.PARTIAL2 || mode == Mode.FINAL;
+    return super.init(mode, parameters);
+  }
+
+  // partials are merged in parallel only in the modes where the partials of many tasks meet
+  protected ParallelMerge getParallelMerge() {
+    return mergesPartials_ ? parallelMerge_ : null;
+  }
+
   @Override
   public Object terminatePartial(final @SuppressWarnings("deprecation") AggregationBuffer buf)
       throws HiveException {
+    final long startNanos = counters_.start();
     final State state = (State) buf;
     final HllSketch intermediate = state.getResult();
     if (intermediate == null) { return null; }
-    final byte[] bytes = intermediate.toCompactByteArray();
-    return Arrays.asList(
-      new IntWritable(state.getLgK()),
-      new Text(state.getType().toString()),
-      new BytesWritable(bytes)
-    );
+    lgKOutput_.set(state.getLgK());
+    hllTypeOutput_.set(state.getType().toString());
+    // this version of the library can only serialize into a new array
+    final BytesWritable serializedSketch = new BytesWritable(intermediate.toCompactByteArray());
+    state.release();
+    intermediateOutput_[2] = serializedSketch;
+    counters_.partialTerminated(startNanos, serializedSketch.getLength());
+    return intermediateOutputList_;
   }
 
   @Override
   public void merge(final @SuppressWarnings("deprecation") AggregationBuffer buf, final Object data)
       throws HiveException {
     if (data == null) { return; }
+    final long startNanos = counters_.start();
     final UnionState state = (UnionState) buf;
     if (!state.isInitialized()) {
       initializeState(state, data);
     }
     final BytesWritable serializedSketch = (BytesWritable) intermediateInspector_.getStructFieldData(
         data, intermediateInspector_.getStructFieldRef(SKETCH_FIELD));
-    state.update(HllSketch.wrap(Memory.wrap(serializedSketch.getBytes())));
+    state.update(HiveUtil.wrap(serializedSketch));
+    counters_.partialMerged(startNanos, serializedSketch.getLength());
   }
 
   private void initializeState(final UnionState state, final Object data) {
@@ -73,11 +130,15 @@ abstract class SketchEvaluator extends GenericUDAFEvaluator {
   @Override
   public Object terminate(final @SuppressWarnings("deprecation") AggregationBuffer buf)
       throws HiveException {
+    final long startNanos = counters_.start();
     final State state = (State) buf;
     if (state == null) { return null; }
     final HllSketch result = state.getResult();
     if (result == null) { return null; }
-    return new BytesWritable(result.toCompactByteArray());
+    final BytesWritable serializedSketch = new BytesWritable(result.toCompactByteArray());
+    state.release();
+    counters_.terminated(startNanos);
+    return serializedSketch;
   }
 
   @Override
@@ -87,4 +148,77 @@ abstract class SketchEvaluator extends GenericUDAFEvaluator {
     state.reset();
   }
 
+  /**
+   * Cumulative frames (ROWS BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW) are computed
+   * incrementally in streaming mode: each row is added to the union of the partition,
+   * and the current result is returned for that row.
+   * Other frames are left to Hive to compute from the buffered partition,
+   * since rows can't be removed from a sketch.
+   */
+  @Override
+  public GenericUDAFEvaluator getWindowingEvaluator(final WindowFrameDef frame) {
+    final BoundaryDef start = frame.getStart();
+    if (start instanceof RangeBoundaryDef && start.getDirection() == Direction.PRECEDING
+        && start.getAmt() == BoundarySpec.UNBOUNDED_AMOUNT && frame.getEnd() instanceof CurrentRowDef) {
+      return new CumulativeEvaluator();
+    }
+    return null;
+  }
+
+  // shares the buffers and the already initialized state of the wrapped evaluator
+  private final class CumulativeEvaluator extends GenericUDAFStreamingEvaluator<Object> {
+
+    CumulativeEvaluator() {
+      super(SketchEvaluator.this, BoundarySpec.UNBOUNDED_AMOUNT, 0);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+      return wrappedEval.getNewAggregationBuffer();
+    }
+
+    @Override
+    public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer buf,
+        final Object[] parameters) throws HiveException {
+      wrappedEval.iterate(buf, parameters);
+    }
+
+    @Override
+    public Object terminate(final @SuppressWarnings("deprecation") AggregationBuffer buf)
+        throws HiveException {
+      return wrappedEval.terminate(buf);
+    }
+
+    @Override
+    public void reset(final @SuppressWarnings("deprecation") AggregationBuffer buf)
+        throws HiveException {
+      wrappedEval.reset(buf);
+    }
+
+    // each row gets its own copy, since Hive holds on to the results of several rows
+    @Override
+    public Object getNextResult(final @SuppressWarnings("deprecation") AggregationBuffer buf)
+        throws HiveException {
+      final HllSketch result = ((State) buf).getResult();
+      if (result == null) { return NULL_RESULT; }
+      return new BytesWritable(result.toCompactByteArray());
+    }
+
+    // every row got its result in getNextResult
+    @Override
+    public int getRowsRemainingAfterTerminate() throws HiveException {
+      return 0;
+    }
+
+  }
+
+  // frees off-heap memory of buffers that were not reset
+  @Override
+  public void close() throws IOException {
+    if (offHeapMemory_ != null) {
+      offHeapMemory_.freeAll();
+    }
+  }
+
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.hll;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AbstractAggregationBuffer;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+
+import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hll.TgtHllType;
+
+/**
+ * One sketch per dimension value, all with the same parameters.
+ * Raw values are fed into a SketchState, serialized sketches into a UnionState,
+ * the same as in DataToSketchUDAF.
+ */
+@AggregationType(estimable = true)
+class SketchMapState extends AbstractAggregationBuffer {
+
+  private int lgK_;
+  private TgtHllType type_;
+
+  private final Map<String, State> states_ = new HashMap<>();
+
+  boolean isInitialized() {
+    return type_ != null;
+  }
+
+  void init(final int lgK, final TgtHllType type) {
+    lgK_ = lgK;
+    type_ = type;
+  }
+
+  int getLgK() {
+    return lgK_;
+  }
+
+  TgtHllType getType() {
+    return type_;
+  }
+
+  void update(final String dimension, final Object data, final KeyUpdater keyUpdater) {
+    State state = states_.get(dimension);
+    if (state == null) {
+      state = new SketchState();
+      state.init(lgK_, type_);
+      states_.put(dimension, state);
+    }
+    state.update(data, keyUpdater);
+  }
+
+  void update(final String dimension, final Memory serializedSketch) {
+    UnionState state = (UnionState) states_.get(dimension);
+    if (state == null) {
+      state = new UnionState();
+      state.init(lgK_, type_);
+      states_.put(dimension, state);
+    }
+    state.update(serializedSketch);
+  }
+
+  // compact sketches by dimension value, or null if no rows were seen
+  Map<Text, BytesWritable> getResult() {
+    if (type_ == null) { return null; }
+    final Map<Text, BytesWritable> result = new HashMap<>();
+    for (final Map.Entry<String, State> entry: states_.entrySet()) {
+      // this version of the library can only serialize into a new array
+      final byte[] serializedSketch = entry.getValue().getResult().toCompactByteArray();
+      result.put(new Text(entry.getKey()), new BytesWritable(serializedSketch));
+    }
+    return result;
+  }
+
+  void reset() {
+    type_ = null;
+    states_.clear();
+  }
+
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    int size = model.object() + model.hashMap(states_.size());
+    for (final Map.Entry<String, State> entry: states_.entrySet()) {
+      size += model.lengthForStringOfLength(entry.getKey().length()) + entry.getValue().estimate();
+    }
+    return size;
+  }
+
+}
@@ -5,12 +5,13 @@
 
 package com.yahoo.sketches.hive.hll;
 
-import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
 
 import com.yahoo.sketches.hll.HllSketch;
 import com.yahoo.sketches.hll.TgtHllType;
 
+@AggregationType(estimable = true)
 class SketchState extends State {
 
   private HllSketch sketch_;
@@ -27,46 +28,8 @@ class SketchState extends State {
   }
 
   @Override
-  void update(final Object data, final PrimitiveObjectInspector objectInspector) {
-    switch (objectInspector.getPrimitiveCategory()) {
-      case BINARY:
-        sketch_.update(PrimitiveObjectInspectorUtils.getBinary(data, objectInspector)
-            .getBytes());
-        return;
-      case BYTE:
-        sketch_.update(PrimitiveObjectInspectorUtils.getByte(data, objectInspector));
-        return;
-      case DOUBLE:
-        sketch_.update(PrimitiveObjectInspectorUtils.getDouble(data, objectInspector));
-        return;
-      case FLOAT:
-        sketch_.update(PrimitiveObjectInspectorUtils.getFloat(data, objectInspector));
-        return;
-      case INT:
-        sketch_.update(PrimitiveObjectInspectorUtils.getInt(data, objectInspector));
-        return;
-      case LONG:
-        sketch_.update(PrimitiveObjectInspectorUtils.getLong(data, objectInspector));
-        return;
-      case STRING:
-        // conversion to char[] avoids costly UTF-8 encoding
-        sketch_.update(PrimitiveObjectInspectorUtils.getString(data, objectInspector)
-            .toCharArray());
-        return;
-      case CHAR:
-        sketch_.update(PrimitiveObjectInspectorUtils.getHiveChar(data, objectInspector)
-            .getValue().toCharArray());
-        return;
-      case VARCHAR:
-        sketch_.update(PrimitiveObjectInspectorUtils.getHiveVarchar(data, objectInspector)
-            .getValue().toCharArray());
-        return;
-      default:
-        throw new IllegalArgumentException(
-          "Unrecongnized input data type " + data.getClass().getSimpleName() + " category "
-          + objectInspector.getPrimitiveCategory() + ", please use data of the following types: "
-          + "byte, double, float, int, long, char, varchar or string.");
-    }
+  void update(final Object data, final KeyUpdater keyUpdater) {
+    keyUpdater.update(sketch_, data);
   }
 
   @Override
@@ -80,4 +43,12 @@ class SketchState extends State {
     sketch_ = null;
   }
 
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    if (sketch_ == null) { return model.object(); }
+    // the updatable form mirrors the on-heap arrays of the current mode (list, set or HLL)
+    return model.object() * 2 + model.lengthForByteArrayOfSize(sketch_.getUpdatableSerializationBytes());
+  }
+
 }
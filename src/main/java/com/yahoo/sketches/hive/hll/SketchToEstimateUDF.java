@@ -9,7 +9,7 @@ import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.hll.HllSketch;
 
 @Description(
@@ -26,7 +26,7 @@ public class SketchToEstimateUDF extends UDF {
    */
   public Double evaluate(final BytesWritable serializedSketch) {
     if (serializedSketch == null) { return null; }
-    final HllSketch sketch = HllSketch.wrap(Memory.wrap(serializedSketch.getBytes()));
+    final HllSketch sketch = HllSketch.wrap(HiveUtil.wrap(serializedSketch));
     return sketch.getEstimate();
   }
 
@@ -6,7 +6,6 @@
 package com.yahoo.sketches.hive.hll;
 
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AbstractAggregationBuffer;
-import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 
 import com.yahoo.sketches.hll.HllSketch;
 import com.yahoo.sketches.hll.TgtHllType;
@@ -31,10 +30,14 @@ abstract class State extends AbstractAggregationBuffer {
 
   abstract boolean isInitialized();
 
-  abstract void update(final Object data, final PrimitiveObjectInspector keyObjectInspector);
+  abstract void update(final Object data, final KeyUpdater keyUpdater);
 
   abstract HllSketch getResult();
 
   abstract void reset();
 
+  // called once the final result of the buffer has been serialized,
+  // after which Hive either resets the buffer or drops it without a reset
+  void release() {}
+
 }
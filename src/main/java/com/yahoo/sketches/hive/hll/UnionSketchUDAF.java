@@ -23,8 +23,9 @@ import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.Pr
 import org.apache.hadoop.hive.serde2.objectinspector.StandardStructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.hll.HllSketch;
 import com.yahoo.sketches.hll.TgtHllType;
 
@@ -97,7 +98,7 @@ public class UnionSketchUDAF extends AbstractGenericUDAFResolver {
     @SuppressWarnings("deprecation")
     @Override
     public AggregationBuffer getNewAggregationBuffer() throws HiveException {
-      return new UnionState();
+      return new UnionState(offHeapMemory_, getParallelMerge());
     }
 
     /**
@@ -155,14 +156,20 @@ public class UnionSketchUDAF extends AbstractGenericUDAFResolver {
     @Override
     public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer buf,
         final Object[] parameters) throws HiveException {
-      if (parameters[0] == null) { return; }
+      if (parameters[0] == null) {
+        counters_.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters_.start();
       final UnionState state = (UnionState) buf;
       if (!state.isInitialized()) {
         initializeState(state, parameters);
       }
-      final byte[] serializedSketch = (byte[]) inputInspector_.getPrimitiveJavaObject(parameters[0]);
+      final BytesWritable serializedSketch =
+          (BytesWritable) inputInspector_.getPrimitiveWritableObject(parameters[0]);
       if (serializedSketch == null) { return; }
-      state.update(HllSketch.wrap(Memory.wrap(serializedSketch)));
+      state.update(HiveUtil.wrap(serializedSketch));
+      counters_.rowIngested(startNanos);
     }
 
     private void initializeState(final UnionState state, final Object[] parameters) {
@@ -8,7 +8,7 @@ package com.yahoo.sketches.hive.hll;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.hll.HllSketch;
 import com.yahoo.sketches.hll.TgtHllType;
 import com.yahoo.sketches.hll.Union;
@@ -39,11 +39,11 @@ public class UnionSketchUDF extends UDF {
     final Union union = new Union(lgK);
 
     if (firstSketch != null) {
-      union.update(HllSketch.wrap(Memory.wrap(firstSketch.getBytes())));
+      union.update(HllSketch.wrap(HiveUtil.wrap(firstSketch)));
     }
 
     if (secondSketch != null) {
-      union.update(HllSketch.wrap(Memory.wrap(secondSketch.getBytes())));
+      union.update(HllSketch.wrap(HiveUtil.wrap(secondSketch)));
     }
 
     return new BytesWritable(union.getResult(hllType).toCompactByteArray());
@@ -5,17 +5,44 @@
 
 package com.yahoo.sketches.hive.hll;
 
-import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
+
+import com.yahoo.memory.Memory;
+import com.yahoo.memory.WritableDirectHandle;
+import com.yahoo.sketches.hive.OffHeapMemory;
+import com.yahoo.sketches.hive.ParallelMerge;
 import com.yahoo.sketches.hll.HllSketch;
 import com.yahoo.sketches.hll.TgtHllType;
 import com.yahoo.sketches.hll.Union;
 
+@AggregationType(estimable = true)
 class UnionState extends State {
 
+  // null unless unions are allocated off-heap
+  private final OffHeapMemory offHeapMemory_;
+  private WritableDirectHandle handle_;
+
+  // null unless partials are merged in parallel
+  private final ParallelMerge parallelMerge_;
+  private int numPartials_;
+  private List<byte[]> queuedPartials_;
+  private long queuedBytes_;
+
   private Union union_;
 
+  UnionState() {
+    this(null, null);
+  }
+
+  UnionState(final OffHeapMemory offHeapMemory, final ParallelMerge parallelMerge) {
+    offHeapMemory_ = offHeapMemory;
+    parallelMerge_ = parallelMerge;
+  }
+
   @Override
   boolean isInitialized() {
     return union_ != null;
@@ -24,65 +51,115 @@ class UnionState extends State {
   @Override
   void init(final int lgK, final TgtHllType type) {
     super.init(lgK, type);
-    union_ = new Union(lgK);
+    if (offHeapMemory_ == null) {
+      union_ = new Union(lgK);
+    } else {
+      freeMemory();
+      handle_ = offHeapMemory_.allocate(Union.getMaxSerializationBytes(lgK));
+      union_ = new Union(lgK, handle_.get());
+    }
+    numPartials_ = 0;
+    clearQueue();
   }
 
   @Override
-  void update(final Object data, final PrimitiveObjectInspector objectInspector) {
-    switch (objectInspector.getPrimitiveCategory()) {
-      case BINARY:
-        union_.update(PrimitiveObjectInspectorUtils.getBinary(data, objectInspector)
-            .getBytes());
-        return;
-      case BYTE:
-        union_.update(PrimitiveObjectInspectorUtils.getByte(data, objectInspector));
-        return;
-      case DOUBLE:
-        union_.update(PrimitiveObjectInspectorUtils.getDouble(data, objectInspector));
-        return;
-      case FLOAT:
-        union_.update(PrimitiveObjectInspectorUtils.getFloat(data, objectInspector));
-        return;
-      case INT:
-        union_.update(PrimitiveObjectInspectorUtils.getInt(data, objectInspector));
-        return;
-      case LONG:
-        union_.update(PrimitiveObjectInspectorUtils.getLong(data, objectInspector));
-        return;
-      case STRING:
-        // conversion to char[] avoids costly UTF-8 encoding
-        union_.update(PrimitiveObjectInspectorUtils.getString(data, objectInspector)
-            .toCharArray());
-        return;
-      case CHAR:
-        union_.update(PrimitiveObjectInspectorUtils.getHiveChar(data, objectInspector)
-            .getValue().toCharArray());
-        return;
-      case VARCHAR:
-        union_.update(PrimitiveObjectInspectorUtils.getHiveVarchar(data, objectInspector)
-            .getValue().toCharArray());
-        return;
-      default:
-        throw new IllegalArgumentException(
-          "Unrecongnized input data type " + data.getClass().getSimpleName() + " category "
-          + objectInspector.getPrimitiveCategory() + ", please use data of the following types: "
-          + "byte, double, float, int, long, char, varchar or string.");
+  void update(final Object data, final KeyUpdater keyUpdater) {
+    keyUpdater.update(union_, data);
+  }
+
+  void update(final Memory serializedSketch) {
+    if (parallelMerge_ != null && ++numPartials_ > ParallelMerge.THRESHOLD) {
+      // the memory may be reused by the caller, so the partial is copied
+      final byte[] partial = new byte[(int) serializedSketch.getCapacity()];
+      serializedSketch.getByteArray(0, partial, 0, partial.length);
+      queuedPartials_.add(partial);
+      queuedBytes_ += partial.length;
+      if (queuedPartials_.size() >= ParallelMerge.BATCH_SIZE) { mergeQueue(); }
+      return;
     }
+    union_.update(HllSketch.wrap(serializedSketch));
+  }
+
+  private void mergeQueue() {
+    if (queuedPartials_ == null || queuedPartials_.isEmpty()) { return; }
+    union_.update(parallelMerge_.merge(queuedPartials_, new UnionMerger(getLgK())));
+    clearQueue();
   }
 
-  void update(final HllSketch sketch) {
-    union_.update(sketch);
+  private void clearQueue() {
+    if (parallelMerge_ == null) { return; }
+    queuedPartials_ = new ArrayList<>();
+    queuedBytes_ = 0;
   }
 
   @Override
   HllSketch getResult() {
     if (union_ == null) { return null; }
+    mergeQueue();
     return union_.getResult(getType());
   }
 
   @Override
   void reset() {
     union_ = null;
+    numPartials_ = 0;
+    queuedPartials_ = null;
+    queuedBytes_ = 0;
+    freeMemory();
+  }
+
+  // an off-heap union is freed right away instead of when the task closes
+  @Override
+  void release() {
+    if (handle_ != null) { reset(); }
+  }
+
+  private void freeMemory() {
+    if (handle_ == null) { return; }
+    offHeapMemory_.free(handle_);
+    handle_ = null;
+  }
+
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    if (union_ == null) { return model.object(); }
+    // direct memory of an off-heap union is counted as well, so that Hive flushes a hash aggregation
+    // before the direct memory of its buffers runs out; otherwise the updatable form mirrors
+    // the on-heap arrays of the current mode (list, set or HLL)
+    final int unionBytes = handle_ != null ? model.object() + (int) handle_.get().getCapacity()
+        : model.lengthForByteArrayOfSize(union_.getUpdatableSerializationBytes());
+    return model.object() * 2 + unionBytes + (int) queuedBytes_;
+  }
+
+
+  // intermediate results are kept as HLL_8, which loses no information, and a union
+  // keeps the maximum of each register, so the result is the same as merging one by one
+  private static final class UnionMerger implements ParallelMerge.Merger<HllSketch> {
+
+    private final int lgK_;
+
+    UnionMerger(final int lgK) {
+      lgK_ = lgK;
+    }
+
+    @Override
+    public HllSketch merge(final List<byte[]> partials) {
+      final Union union = new Union(lgK_);
+      for (final byte[] partial: partials) {
+        union.update(HllSketch.wrap(Memory.wrap(partial)));
+      }
+      return union.getResult(TgtHllType.HLL_8);
+    }
+
+    @Override
+    public HllSketch merge(final HllSketch first, final HllSketch second) {
+      final Union union = new Union(lgK_);
+      union.update(first);
+      union.update(second);
+      return union.getResult(TgtHllType.HLL_8);
+    }
+
   }
 
 }
@@ -0,0 +1,8 @@
+/*
+ * Copyright 2018, Yahoo! Inc. Licensed under the terms of the Apache License 2.0. See LICENSE file
+ * at the project root for terms.
+ */
+/**
+ * Classes shared by the Hive UDFs for all sketch families.
+ */
+package com.yahoo.sketches.hive;
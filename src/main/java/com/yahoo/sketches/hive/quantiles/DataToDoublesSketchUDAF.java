@@ -41,17 +41,44 @@ public class DataToDoublesSketchUDAF extends AbstractGenericUDAFResolver {
 
   static class DataToSketchEvaluator extends DoublesEvaluator {
 
+    private Mode mode;
+
+    @Override
+    public ObjectInspector init(final Mode mode, final ObjectInspector[] parameters) throws HiveException {
+      this.mode = mode;
+      return super.init(mode, parameters);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+      // raw values are fed straight into a sketch, and only merging needs a union.
+      // If this is called before init, the union state is used, since it can do both.
+      if (mode == Mode.PARTIAL1 || mode == Mode.COMPLETE) {
+        return new DoublesSketchState();
+      }
+      return new DoublesUnionState();
+    }
+
     @SuppressWarnings("deprecation")
     @Override
     public void iterate(final AggregationBuffer buf, final Object[] data) throws HiveException {
-      if (data[0] == null) { return; }
-      final DoublesUnionState state = (DoublesUnionState) buf;
-      if (!state.isInitialized() && kObjectInspector != null) {
-        final int k = PrimitiveObjectInspectorUtils.getInt(data[1], kObjectInspector);
+      if (data[0] == null) {
+        counters.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters.start();
+      final DoublesState state = (DoublesState) buf;
+      if (!state.isInitialized()) {
+        int k = 0;
+        if (kObjectInspector != null) {
+          k = PrimitiveObjectInspectorUtils.getInt(data[1], kObjectInspector);
+        }
         state.init(k);
       }
       final double value = (double) inputObjectInspector.getPrimitiveJavaObject(data[0]);
       state.update(value);
+      counters.rowIngested(startNanos);
     }
 
   }
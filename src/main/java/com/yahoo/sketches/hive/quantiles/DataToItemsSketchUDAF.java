@@ -49,7 +49,11 @@ public abstract class DataToItemsSketchUDAF<T> extends AbstractGenericUDAFResolv
     @SuppressWarnings("deprecation")
     @Override
     public void iterate(final AggregationBuffer buf, final Object[] data) throws HiveException {
-      if (data[0] == null) { return; }
+      if (data[0] == null) {
+        counters.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters.start();
       @SuppressWarnings("unchecked")
       final ItemsUnionState<T> state = (ItemsUnionState<T>) buf;
       if (!state.isInitialized() && kObjectInspector != null) {
@@ -57,6 +61,7 @@ public abstract class DataToItemsSketchUDAF<T> extends AbstractGenericUDAFResolv
         state.init(k);
       }
       state.update(extractValue(data[0], inputObjectInspector));
+      counters.rowIngested(startNanos);
     }
 
     public abstract T extractValue(final Object data, final ObjectInspector objectInspector)
@@ -5,6 +5,7 @@
 
 package com.yahoo.sketches.hive.quantiles;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
@@ -13,16 +14,29 @@ import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.Pr
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.io.BytesWritable;
 
+import com.yahoo.memory.WritableMemory;
+import com.yahoo.sketches.hive.Counters;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.quantiles.DoublesSketch;
 
 abstract class DoublesEvaluator extends GenericUDAFEvaluator {
 
   protected PrimitiveObjectInspector inputObjectInspector;
   protected PrimitiveObjectInspector kObjectInspector;
+  protected Counters counters = Counters.DISABLED;
+
+  // reused across groups, since Hive serializes each output before asking for the next one
+  private BytesWritable output;
+
+  @Override
+  public void configure(final MapredContext context) {
+    counters = Counters.getInstance(context, "Sketches: quantiles");
+  }
 
   @Override
   public ObjectInspector init(final Mode mode, final ObjectInspector[] parameters) throws HiveException {
     super.init(mode, parameters);
+    output = new BytesWritable();
     inputObjectInspector = (PrimitiveObjectInspector) parameters[0];
 
     // Parameters:
@@ -40,33 +54,50 @@ abstract class DoublesEvaluator extends GenericUDAFEvaluator {
   @SuppressWarnings("deprecation")
   @Override
   public void reset(final AggregationBuffer buf) throws HiveException {
-    final DoublesUnionState state = (DoublesUnionState) buf;
+    final DoublesState state = (DoublesState) buf;
     state.reset();
   }
 
   @SuppressWarnings("deprecation")
   @Override
   public Object terminatePartial(final AggregationBuffer buf) throws HiveException {
-    return terminate(buf);
+    final long startNanos = counters.start();
+    final BytesWritable result = serializeResult(buf);
+    if (result != null) {
+      counters.partialTerminated(startNanos, result.getLength());
+    }
+    return result;
   }
 
   @SuppressWarnings("deprecation")
   @Override
   public void merge(final AggregationBuffer buf, final Object data) throws HiveException {
     if (data == null) { return; }
+    final long startNanos = counters.start();
     final DoublesUnionState state = (DoublesUnionState) buf;
     final BytesWritable serializedSketch =
         (BytesWritable) inputObjectInspector.getPrimitiveWritableObject(data);
-    state.update(serializedSketch.getBytes());
+    state.update(HiveUtil.wrap(serializedSketch));
+    counters.partialMerged(startNanos, serializedSketch.getLength());
   }
 
   @SuppressWarnings("deprecation")
   @Override
   public Object terminate(final AggregationBuffer buf) throws HiveException {
-    final DoublesUnionState state = (DoublesUnionState) buf;
+    final long startNanos = counters.start();
+    final BytesWritable result = serializeResult(buf);
+    counters.terminated(startNanos);
+    return result;
+  }
+
+  @SuppressWarnings("deprecation")
+  private BytesWritable serializeResult(final AggregationBuffer buf) {
+    final DoublesState state = (DoublesState) buf;
     final DoublesSketch resultSketch = state.getResult();
     if (resultSketch == null) { return null; }
-    return new BytesWritable(resultSketch.toByteArray(true));
+    output.setSize(resultSketch.getCompactStorageBytes());
+    resultSketch.putMemory(WritableMemory.wrap(output.getBytes()), true);
+    return output;
   }
 
   @SuppressWarnings("deprecation")
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.quantiles;
+
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
+
+import com.yahoo.sketches.quantiles.DoublesSketch;
+import com.yahoo.sketches.quantiles.DoublesSketchBuilder;
+import com.yahoo.sketches.quantiles.UpdateDoublesSketch;
+
+/**
+ * State for building a sketch from raw values (PARTIAL1 and COMPLETE modes).
+ * Values go straight into an UpdateDoublesSketch of the requested k,
+ * skipping the union layer, which is needed only for merging sketches.
+ */
+@AggregationType(estimable = true)
+class DoublesSketchState extends DoublesState {
+
+  private UpdateDoublesSketch sketch;
+
+  @Override
+  void init(final int k) {
+    final DoublesSketchBuilder builder = DoublesSketch.builder();
+    if (k > 0) { builder.setK(k); }
+    sketch = builder.build();
+  }
+
+  @Override
+  boolean isInitialized() {
+    return sketch != null;
+  }
+
+  // must be initialized first
+  @Override
+  void update(final double value) {
+    sketch.update(value);
+  }
+
+  @Override
+  DoublesSketch getResult() {
+    return sketch;
+  }
+
+  @Override
+  void reset() {
+    sketch = null;
+  }
+
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    if (sketch == null) { return model.object(); }
+    final int bytes = DoublesSketch.getUpdatableStorageBytes(sketch.getK(), sketch.getN());
+    return model.object() * 2 + model.lengthForByteArrayOfSize(bytes);
+  }
+
+}
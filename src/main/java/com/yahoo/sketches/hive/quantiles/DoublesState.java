@@ -0,0 +1,26 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.quantiles;
+
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AbstractAggregationBuffer;
+
+import com.yahoo.sketches.quantiles.DoublesSketch;
+
+// Raw values are fed into DoublesSketchState, serialized sketches into DoublesUnionState
+
+abstract class DoublesState extends AbstractAggregationBuffer {
+
+  abstract void init(final int k);
+
+  abstract boolean isInitialized();
+
+  abstract void update(final double value);
+
+  abstract DoublesSketch getResult();
+
+  abstract void reset();
+
+}
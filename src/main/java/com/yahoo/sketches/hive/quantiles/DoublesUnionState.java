@@ -5,51 +5,76 @@
 
 package com.yahoo.sketches.hive.quantiles;
 
-import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AbstractAggregationBuffer;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
 
 import com.yahoo.memory.Memory;
 import com.yahoo.sketches.quantiles.DoublesSketch;
 import com.yahoo.sketches.quantiles.DoublesUnion;
 import com.yahoo.sketches.quantiles.DoublesUnionBuilder;
 
-class DoublesUnionState extends AbstractAggregationBuffer {
+@AggregationType(estimable = true)
+class DoublesUnionState extends DoublesState {
 
   private DoublesUnion union;
 
+  // number of values seen by the union, which together with k defines its size
+  private long n_;
+
   // initializing is needed only in the first phase (iterate)
+  @Override
   void init(final int k) {
     final DoublesUnionBuilder unionBuilder = DoublesUnion.builder();
     if (k > 0) { unionBuilder.setMaxK(k); }
     union = unionBuilder.build();
+    n_ = 0;
   }
 
+  @Override
   boolean isInitialized() {
     return union != null;
   }
 
+  // raw values normally go to DoublesSketchState, but this state is used
+  // if Hive asks for a buffer before initializing the evaluator
+  @Override
   void update(final double value) {
     if (union == null) {
       union = DoublesUnion.builder().build();
     }
     union.update(value);
+    n_++;
   }
 
-  void update(final byte[] serializedSketch) {
-    final DoublesSketch incomingSketch = DoublesSketch.wrap(Memory.wrap(serializedSketch));
+  void update(final Memory serializedSketch) {
+    final DoublesSketch incomingSketch = DoublesSketch.wrap(serializedSketch);
     if (union == null) {
       union = DoublesUnion.heapify(incomingSketch);
     } else {
       union.update(incomingSketch);
     }
+    n_ += incomingSketch.getN();
   }
 
-  public DoublesSketch getResult() {
+  @Override
+  DoublesSketch getResult() {
     if (union == null) { return null; }
+    n_ = 0;
     return union.getResultAndReset();
   }
 
+  @Override
   void reset() {
     union = null;
+    n_ = 0;
+  }
+
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    if (union == null) { return model.object(); }
+    return model.object() * 2
+        + model.lengthForByteArrayOfSize(DoublesSketch.getUpdatableStorageBytes(union.getEffectiveK(), n_));
   }
 
 }
@@ -9,7 +9,7 @@ import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.quantiles.DoublesSketch;
 
 @Description(name = "GetK", value = "_FUNC_(sketch)",
@@ -23,7 +23,7 @@ public class GetKFromDoublesSketchUDF extends UDF {
    */
   public Integer evaluate(final BytesWritable serializedSketch) {
     if (serializedSketch == null) { return null; }
-    final DoublesSketch sketch = DoublesSketch.wrap(Memory.wrap(serializedSketch.getBytes()));
+    final DoublesSketch sketch = DoublesSketch.wrap(HiveUtil.wrap(serializedSketch));
     return sketch.getK();
   }
 
@@ -11,8 +11,8 @@ import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
 import com.yahoo.sketches.ArrayOfStringsSerDe;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.quantiles.ItemsSketch;
 
 @Description(name = "GetK", value = "_FUNC_(sketch)",
@@ -27,7 +27,7 @@ public class GetKFromStringsSketchUDF extends UDF {
   public Integer evaluate(final BytesWritable serializedSketch) {
     if (serializedSketch == null) { return null; }
     final ItemsSketch<String> sketch = ItemsSketch.getInstance(
-      Memory.wrap(serializedSketch.getBytes()),
+      HiveUtil.wrap(serializedSketch),
       Comparator.naturalOrder(),
       new ArrayOfStringsSerDe()
     );
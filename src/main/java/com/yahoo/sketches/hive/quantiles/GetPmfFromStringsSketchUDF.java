@@ -12,8 +12,8 @@ import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
 import com.yahoo.sketches.ArrayOfStringsSerDe;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.quantiles.ItemsSketch;
 
 @Description(
@@ -38,7 +38,7 @@ public class GetPmfFromStringsSketchUDF extends UDF {
   public List<Double> evaluate(final BytesWritable serializedSketch, final String... splitPoints) {
     if (serializedSketch == null) { return null; }
     final ItemsSketch<String> sketch = ItemsSketch.getInstance(
-      Memory.wrap(serializedSketch.getBytes()),
+      HiveUtil.wrap(serializedSketch),
       Comparator.naturalOrder(),
       new ArrayOfStringsSerDe()
     );
@@ -11,8 +11,8 @@ import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
 import com.yahoo.sketches.ArrayOfStringsSerDe;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.quantiles.ItemsSketch;
 
 @Description(name = "GetQuantile", value = "_FUNC_(sketch, fraction)",
@@ -33,7 +33,7 @@ public class GetQuantileFromStringsSketchUDF extends UDF {
   public String evaluate(final BytesWritable serializedSketch, final double fraction) {
     if (serializedSketch == null) { return null; }
     final ItemsSketch<String> sketch = ItemsSketch.getInstance(
-      Memory.wrap(serializedSketch.getBytes()),
+      HiveUtil.wrap(serializedSketch),
       Comparator.naturalOrder(),
       new ArrayOfStringsSerDe()
     );
@@ -13,8 +13,8 @@ import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
 import com.yahoo.sketches.ArrayOfStringsSerDe;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.quantiles.ItemsSketch;
 
 @Description(
@@ -41,7 +41,7 @@ public class GetQuantilesFromStringsSketchUDF extends UDF {
   public List<String> evaluate(final BytesWritable serializedSketch, final Double... fractions) {
     if (serializedSketch == null) { return null; }
     final ItemsSketch<String> sketch = ItemsSketch.getInstance(
-      Memory.wrap(serializedSketch.getBytes()),
+      HiveUtil.wrap(serializedSketch),
       Comparator.naturalOrder(),
       new ArrayOfStringsSerDe()
     );
@@ -57,7 +57,7 @@ public class GetQuantilesFromStringsSketchUDF extends UDF {
   public List<String> evaluate(final BytesWritable serializedSketch, final int number) {
     if (serializedSketch == null) { return null; }
     final ItemsSketch<String> sketch = ItemsSketch.getInstance(
-      Memory.wrap(serializedSketch.getBytes()),
+      HiveUtil.wrap(serializedSketch),
       Comparator.naturalOrder(),
       new ArrayOfStringsSerDe()
     );
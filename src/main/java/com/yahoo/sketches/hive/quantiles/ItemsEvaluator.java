@@ -7,6 +7,7 @@ package com.yahoo.sketches.hive.quantiles;
 
 import java.util.Comparator;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
@@ -16,6 +17,8 @@ import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectIn
 import org.apache.hadoop.io.BytesWritable;
 
 import com.yahoo.sketches.ArrayOfItemsSerDe;
+import com.yahoo.sketches.hive.Counters;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.quantiles.ItemsSketch;
 
 abstract class ItemsEvaluator<T> extends GenericUDAFEvaluator {
@@ -24,12 +27,18 @@ abstract class ItemsEvaluator<T> extends GenericUDAFEvaluator {
   private final ArrayOfItemsSerDe<T> serDe_;
   protected PrimitiveObjectInspector inputObjectInspector;
   protected PrimitiveObjectInspector kObjectInspector;
+  protected Counters counters = Counters.DISABLED;
 
   ItemsEvaluator(final Comparator<? super T> comparator, final ArrayOfItemsSerDe<T> serDe) {
     comparator_ = comparator;
     serDe_ = serDe;
   }
 
+  @Override
+  public void configure(final MapredContext context) {
+    counters = Counters.getInstance(context, "Sketches: quantiles");
+  }
+
   @Override
   public ObjectInspector init(final Mode mode, final ObjectInspector[] parameters) throws HiveException {
     super.init(mode, parameters);
@@ -58,23 +67,38 @@ abstract class ItemsEvaluator<T> extends GenericUDAFEvaluator {
   @SuppressWarnings("deprecation")
   @Override
   public Object terminatePartial(final AggregationBuffer buf) throws HiveException {
-    return terminate(buf);
+    final long startNanos = counters.start();
+    final BytesWritable result = serializeResult(buf);
+    if (result != null) {
+      counters.partialTerminated(startNanos, result.getLength());
+    }
+    return result;
   }
 
   @SuppressWarnings("deprecation")
   @Override
   public void merge(final AggregationBuffer buf, final Object data) throws HiveException {
     if (data == null) { return; }
+    final long startNanos = counters.start();
     @SuppressWarnings("unchecked")
     final ItemsUnionState<T> state = (ItemsUnionState<T>) buf;
     final BytesWritable serializedSketch =
         (BytesWritable) inputObjectInspector.getPrimitiveWritableObject(data);
-    state.update(serializedSketch.getBytes());
+    state.update(HiveUtil.wrap(serializedSketch));
+    counters.partialMerged(startNanos, serializedSketch.getLength());
   }
 
   @SuppressWarnings("deprecation")
   @Override
   public Object terminate(final AggregationBuffer buf) throws HiveException {
+    final long startNanos = counters.start();
+    final BytesWritable result = serializeResult(buf);
+    counters.terminated(startNanos);
+    return result;
+  }
+
+  @SuppressWarnings("deprecation")
+  private BytesWritable serializeResult(final AggregationBuffer buf) {
     @SuppressWarnings("unchecked")
     final ItemsUnionState<T> state = (ItemsUnionState<T>) buf;
     final ItemsSketch<T> resultSketch = state.getResult();
@@ -8,18 +8,29 @@ package com.yahoo.sketches.hive.quantiles;
 import java.util.Comparator;
 
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AbstractAggregationBuffer;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
 
 import com.yahoo.memory.Memory;
 import com.yahoo.sketches.ArrayOfItemsSerDe;
 import com.yahoo.sketches.quantiles.ItemsSketch;
 import com.yahoo.sketches.quantiles.ItemsUnion;
 
+@AggregationType(estimable = true)
 class ItemsUnionState<T> extends AbstractAggregationBuffer {
 
+  // size of every 1024th item is sampled to estimate the average size of retained items
+  private static final int ITEM_SAMPLING_MASK = 0x3FF;
+
   private final Comparator<? super T> comparator_;
   private final ArrayOfItemsSerDe<T> serDe_;
   private ItemsUnion<T> union;
 
+  // number of items seen by the union, which together with k defines the number of retained items
+  private long n_;
+  private long sampledItemBytes_;
+  private int numSampledItems_;
+
   ItemsUnionState(final Comparator<? super T> comparator, final ArrayOfItemsSerDe<T> serDe) {
     comparator_ = comparator;
     serDe_ = serDe;
@@ -32,6 +43,7 @@ class ItemsUnionState<T> extends AbstractAggregationBuffer {
     } else {
       union = ItemsUnion.getInstance(comparator_);
     }
+    resetSize();
   }
 
   boolean isInitialized() {
@@ -43,25 +55,60 @@ class ItemsUnionState<T> extends AbstractAggregationBuffer {
       union = ItemsUnion.getInstance(comparator_);
     }
     union.update(value);
+    if ((n_ & ITEM_SAMPLING_MASK) == 0) { sampleItem(value); }
+    n_++;
   }
 
-  void update(final byte[] serializedSketch) {
-    final ItemsSketch<T> incomingSketch =
-        ItemsSketch.getInstance(Memory.wrap(serializedSketch), comparator_, serDe_);
+  void update(final Memory serializedSketch) {
+    final ItemsSketch<T> incomingSketch = ItemsSketch.getInstance(serializedSketch, comparator_, serDe_);
     if (union == null) {
       union = ItemsUnion.getInstance(incomingSketch);
     } else {
       union.update(incomingSketch);
     }
+    if (!incomingSketch.isEmpty()) {
+      sampleItem(incomingSketch.getMinValue());
+      sampleItem(incomingSketch.getMaxValue());
+    }
+    n_ += incomingSketch.getN();
   }
 
   public ItemsSketch<T> getResult() {
     if (union == null) { return null; }
+    resetSize();
     return union.getResultAndReset();
   }
 
   void reset() {
     union = null;
+    resetSize();
+  }
+
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    if (union == null || n_ == 0) { return model.object() * 2; }
+    final int k = union.getEffectiveK();
+    final long levels = n_ / (2 * k);
+    final long numRetainedItems = n_ % (2 * k) + (long) k * Long.bitCount(levels);
+    final int bufferCapacity = (2 + 64 - Long.numberOfLeadingZeros(levels)) * k;
+    final long averageItemBytes =
+        numSampledItems_ == 0 ? model.object() : sampledItemBytes_ / numSampledItems_;
+    return model.object() * 3 + model.lengthForObjectArrayOfSize(bufferCapacity)
+        + (int) (numRetainedItems * averageItemBytes);
+  }
+
+  private void sampleItem(final T item) {
+    sampledItemBytes_ += item instanceof String
+        ? JavaDataModel.get().lengthForStringOfLength(((String) item).length())
+        : JavaDataModel.get().object();
+    numSampledItems_++;
+  }
+
+  private void resetSize() {
+    n_ = 0;
+    sampledItemBytes_ = 0;
+    numSampledItems_ = 0;
   }
 
 }
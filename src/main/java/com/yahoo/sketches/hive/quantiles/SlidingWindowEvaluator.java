@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.quantiles;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.BoundarySpec;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.Direction;
+import org.apache.hadoop.hive.ql.plan.ptf.BoundaryDef;
+import org.apache.hadoop.hive.ql.plan.ptf.CurrentRowDef;
+import org.apache.hadoop.hive.ql.plan.ptf.RangeBoundaryDef;
+import org.apache.hadoop.hive.ql.plan.ptf.WindowFrameDef;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFStreamingEvaluator;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.BytesWritable;
+
+import com.yahoo.sketches.hive.HiveUtil;
+import com.yahoo.sketches.quantiles.DoublesSketch;
+import com.yahoo.sketches.quantiles.DoublesUnion;
+import com.yahoo.sketches.quantiles.DoublesUnionBuilder;
+
+/**
+ * Streaming evaluator of UnionDoublesSketchUDAF for sliding frames
+ * (ROWS BETWEEN n PRECEDING AND m FOLLOWING, where either bound can be CURRENT ROW instead).
+ *
+ * <p>The sketches of the rows in the frame are kept in a queue made of two stacks,
+ * so that a frame costs a few merges on average instead of one merge per row in the frame.
+ * New rows are pushed onto the back stack, which keeps a running union of its sketches.
+ * Old rows are evicted from the front stack, which keeps the union of each sketch
+ * with all the newer sketches in that stack. When the front stack runs out,
+ * the back stack is moved onto it. The result for a frame is the union of the top
+ * of the front stack with the running union of the back stack.</p>
+ */
+final class SlidingWindowEvaluator extends GenericUDAFStreamingEvaluator<Object> {
+
+  private final DoublesEvaluator evaluator;
+
+  private SlidingWindowEvaluator(final DoublesEvaluator evaluator, final int numPreceding,
+      final int numFollowing) {
+    super(evaluator, numPreceding, numFollowing);
+    this.evaluator = evaluator;
+  }
+
+  /**
+   * @param evaluator initialized evaluator to wrap
+   * @param frame window frame
+   * @return streaming evaluator or null if the frame is not a sliding frame of rows
+   */
+  static SlidingWindowEvaluator getInstance(final DoublesEvaluator evaluator, final WindowFrameDef frame) {
+    final int numPreceding = getNumRows(frame.getStart(), Direction.PRECEDING);
+    final int numFollowing = getNumRows(frame.getEnd(), Direction.FOLLOWING);
+    if (numPreceding < 0 || numFollowing < 0) { return null; }
+    return new SlidingWindowEvaluator(evaluator, numPreceding, numFollowing);
+  }
+
+  // number of rows between the current row and a bound in the given direction,
+  // or -1 if the bound is unbounded or in the other direction
+  private static int getNumRows(final BoundaryDef bound, final Direction direction) {
+    if (bound instanceof CurrentRowDef) { return 0; }
+    if (bound instanceof RangeBoundaryDef && bound.getDirection() == direction
+        && bound.getAmt() != BoundarySpec.UNBOUNDED_AMOUNT) {
+      return bound.getAmt();
+    }
+    return -1;
+  }
+
+  @SuppressWarnings("deprecation")
+  @Override
+  public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+    return new WindowState();
+  }
+
+  @SuppressWarnings("deprecation")
+  @Override
+  public void iterate(final AggregationBuffer buf, final Object[] data) throws HiveException {
+    final WindowState state = (WindowState) buf;
+    DoublesSketch sketch = null;
+    if (data[0] != null) {
+      if (!state.isInitialized()) {
+        int k = 0;
+        if (evaluator.kObjectInspector != null) {
+          k = PrimitiveObjectInspectorUtils.getInt(data[1], evaluator.kObjectInspector);
+        }
+        state.init(k);
+      }
+      // the input may be reused by Hive, so the sketch is copied to the heap
+      final BytesWritable serializedSketch =
+          (BytesWritable) evaluator.inputObjectInspector.getPrimitiveWritableObject(data[0]);
+      sketch = DoublesSketch.heapify(HiveUtil.wrap(serializedSketch));
+    }
+    state.add(sketch);
+    // the frame of a row is complete when the last row it follows has arrived
+    if (state.numRows > numFollowing) {
+      state.addResult(state.numRows - 1 - numFollowing, numPreceding);
+    }
+  }
+
+  // the results of the last rows of the partition are queued here for getNextResult
+  @SuppressWarnings("deprecation")
+  @Override
+  public Object terminate(final AggregationBuffer buf) throws HiveException {
+    final WindowState state = (WindowState) buf;
+    for (long row = Math.max(0, state.numRows - numFollowing); row < state.numRows; row++) {
+      state.addResult(row, numPreceding);
+    }
+    return null;
+  }
+
+  @SuppressWarnings("deprecation")
+  @Override
+  public void reset(final AggregationBuffer buf) throws HiveException {
+    ((WindowState) buf).reset();
+  }
+
+  @SuppressWarnings("deprecation")
+  @Override
+  public Object getNextResult(final AggregationBuffer buf) throws HiveException {
+    return ((WindowState) buf).results.poll();
+  }
+
+  @Override
+  public int getRowsRemainingAfterTerminate() throws HiveException {
+    return numFollowing;
+  }
+
+  private static final class WindowState extends AbstractAggregationBuffer {
+
+    // null until the first row with a sketch, the same as the union in DoublesUnionState
+    private DoublesUnionBuilder unionBuilder;
+
+    // rows without a sketch are kept as nulls to slide the frame
+    private final List<DoublesSketch> frontUnions = new ArrayList<>();
+    private final List<DoublesSketch> backSketches = new ArrayList<>();
+    private DoublesSketch backUnion;
+
+    private long numRows;
+    private long numEvictedRows;
+
+    // serialized results or NULL_RESULT, in the order of rows
+    private final ArrayDeque<Object> results = new ArrayDeque<>();
+
+    boolean isInitialized() {
+      return unionBuilder != null;
+    }
+
+    void init(final int k) {
+      unionBuilder = DoublesUnion.builder();
+      if (k > 0) { unionBuilder.setMaxK(k); }
+    }
+
+    void add(final DoublesSketch sketch) {
+      backSketches.add(sketch);
+      backUnion = union(backUnion, sketch);
+      numRows++;
+    }
+
+    void addResult(final long row, final int numPreceding) {
+      while (numEvictedRows < row - numPreceding) {
+        evict();
+      }
+      final DoublesSketch frontUnion = frontUnions.isEmpty() ? null : frontUnions.get(frontUnions.size() - 1);
+      final DoublesSketch result = union(frontUnion, backUnion);
+      results.add(result == null ? NULL_RESULT : new BytesWritable(result.toByteArray(true)));
+    }
+
+    private void evict() {
+      if (frontUnions.isEmpty()) {
+        // the oldest row ends up on top
+        DoublesSketch union = null;
+        for (int i = backSketches.size() - 1; i >= 0; i--) {
+          union = union(backSketches.get(i), union);
+          frontUnions.add(union);
+        }
+        backSketches.clear();
+        backUnion = null;
+      }
+      frontUnions.remove(frontUnions.size() - 1);
+      numEvictedRows++;
+    }
+
+    // the given sketches are not modified, so that they can be shared by several unions
+    // a single sketch goes through the union too, so that the result has the k of the union
+    private DoublesSketch union(final DoublesSketch sketch1, final DoublesSketch sketch2) {
+      if (sketch1 == null && sketch2 == null) { return null; }
+      final DoublesUnion union = unionBuilder.build();
+      if (sketch1 != null) { union.update(sketch1); }
+      if (sketch2 != null) { union.update(sketch2); }
+      return union.getResult();
+    }
+
+    void reset() {
+      unionBuilder = null;
+      frontUnions.clear();
+      backSketches.clear();
+      backUnion = null;
+      numRows = 0;
+      numEvictedRows = 0;
+      results.clear();
+    }
+
+  }
+
+}
@@ -9,12 +9,16 @@ import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.ql.plan.ptf.WindowFrameDef;
 import org.apache.hadoop.hive.ql.udf.generic.AbstractGenericUDAFResolver;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFParameterInfo;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.BytesWritable;
+
+import com.yahoo.sketches.hive.HiveUtil;
 
 @Description(name = "Union", value = "_FUNC_(sketch) - "
     + "Returns a QuantilesSketch in a serialized form as a binary blob."
@@ -39,7 +43,11 @@ public class UnionDoublesSketchUDAF extends AbstractGenericUDAFResolver {
     @SuppressWarnings("deprecation")
     @Override
     public void iterate(final AggregationBuffer buf, final Object[] data) throws HiveException {
-      if (data[0] == null) { return; }
+      if (data[0] == null) {
+        counters.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters.start();
       final DoublesUnionState state = (DoublesUnionState) buf;
       if (!state.isInitialized()) {
         int k = 0;
@@ -48,7 +56,19 @@ public class UnionDoublesSketchUDAF extends AbstractGenericUDAFResolver {
         }
         state.init(k);
       }
-      merge(buf, data[0]);
+      final BytesWritable serializedSketch =
+          (BytesWritable) inputObjectInspector.getPrimitiveWritableObject(data[0]);
+      state.update(HiveUtil.wrap(serializedSketch));
+      counters.rowIngested(startNanos);
+    }
+
+    /**
+     * Sliding frames of rows are computed in streaming mode by SlidingWindowEvaluator.
+     * Other frames are left to Hive to compute from the buffered partition.
+     */
+    @Override
+    public GenericUDAFEvaluator getWindowingEvaluator(final WindowFrameDef frame) {
+      return SlidingWindowEvaluator.getInstance(this, frame);
     }
 
   }
@@ -16,8 +16,10 @@ import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFParameterInfo;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.BytesWritable;
 
 import com.yahoo.sketches.ArrayOfItemsSerDe;
+import com.yahoo.sketches.hive.HiveUtil;
 
 /**
  * This is a generic implementation to be specialized in subclasses
@@ -49,7 +51,11 @@ public abstract class UnionItemsSketchUDAF<T> extends AbstractGenericUDAFResolve
     @SuppressWarnings("deprecation")
     @Override
     public void iterate(final AggregationBuffer buf, final Object[] data) throws HiveException {
-      if (data[0] == null) { return; }
+      if (data[0] == null) {
+        counters.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters.start();
       @SuppressWarnings("unchecked")
       final ItemsUnionState<T> state = (ItemsUnionState<T>) buf;
       if (!state.isInitialized()) {
@@ -59,7 +65,10 @@ public abstract class UnionItemsSketchUDAF<T> extends AbstractGenericUDAFResolve
         }
         state.init(k);
       }
-      merge(buf, data[0]);
+      final BytesWritable serializedSketch =
+          (BytesWritable) inputObjectInspector.getPrimitiveWritableObject(data[0]);
+      state.update(HiveUtil.wrap(serializedSketch));
+      counters.rowIngested(startNanos);
     }
 
   }
@@ -16,6 +16,17 @@
  * <p>Support for DoublesSketch: DataToDoublesSketchUDAF, UnionDoublesSketchUDAF,
  * GetQuantileFromDoublesSketchUDF, GetQuantilesFromDoublesSketchUDF, GetPmfFromDoublesSketchUDF
  *
+ * <p>Setting sketches.counters.enabled to true publishes Hadoop counters for the UDAFs
+ * in this package under the group "Sketches: quantiles": rows ingested, null rows skipped,
+ * partials merged, bytes serialized and deserialized, and nanoseconds spent in each phase.
+ *
+ * <p>The DoublesSketch unions stay on the heap even if sketches.offheap.enabled is set,
+ * since a direct union cannot grow with the number of values it has seen.
+ *
+ * <p>UnionDoublesSketchUDAF can be used as a window function. Sliding frames of rows
+ * (ROWS BETWEEN n PRECEDING AND m FOLLOWING) are computed as the rows stream by,
+ * with a few merges per row regardless of the size of the frame.
+ *
  * @author Alexander Saydakov
  */
 package com.yahoo.sketches.hive.quantiles;
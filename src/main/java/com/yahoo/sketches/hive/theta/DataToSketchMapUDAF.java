@@ -0,0 +1,331 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.theta;
+
+import static com.yahoo.sketches.Util.DEFAULT_NOMINAL_ENTRIES;
+import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
+import static com.yahoo.sketches.hive.theta.UnionEvaluator.NOMINAL_ENTRIES_FIELD;
+import static com.yahoo.sketches.hive.theta.UnionEvaluator.SEED_FIELD;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.MapredContext;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.ql.udf.generic.AbstractGenericUDAFResolver;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFParameterInfo;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+
+import com.yahoo.sketches.hive.Counters;
+import com.yahoo.sketches.hive.HiveUtil;
+
+@Description(
+    name = "dataToSketchMap",
+    value = "_FUNC_(expr, dimensions, size, prob, seed) - "
+        + "Compute a sketch of data 'expr' for each value of the given dimensions",
+    extended = "Example:\n"
+    + "> SELECT dataToSketchMap(user_id, array(country, device, app)) FROM src;\n"
+    + "> SELECT dataToSketchMap(user_id, named_struct('country', country, 'device', device)) FROM src;\n"
+    + "The return value is a map from dimension values to binary blobs that can be operated on"
+    + " by other sketch related functions. It is the same as running dataToSketch(expr, size, prob, seed)"
+    + " grouped by each dimension separately, but in one pass over the data."
+    + " Dimensions can be given as an array of primitive values, which are used as map keys as they are,"
+    + " or as a struct of primitive values, in which case the map keys are 'name=value'."
+    + " Null values and dimensions are skipped."
+    + " The size, sampling probability and seed are optional, have the same meaning and defaults"
+    + " as in dataToSketch, and apply to every sketch in the map.")
+public class DataToSketchMapUDAF extends AbstractGenericUDAFResolver {
+
+  static final String SKETCHES_FIELD = "sketches";
+
+  @Override
+  public GenericUDAFEvaluator getEvaluator(final GenericUDAFParameterInfo info) throws SemanticException {
+    final ObjectInspector[] parameters = info.getParameterObjectInspectors();
+
+    if (parameters.length < 2) {
+      throw new UDFArgumentException("Please specify at least 2 arguments");
+    }
+
+    if (parameters.length > 5) {
+      throw new UDFArgumentException("Please specify no more than 5 arguments");
+    }
+
+    ObjectInspectorValidator.validateCategoryPrimitive(parameters[0], 0);
+
+    switch (parameters[1].getCategory()) {
+    case LIST:
+      ObjectInspectorValidator.validateCategoryPrimitive(
+          ((ListObjectInspector) parameters[1]).getListElementObjectInspector(), 1);
+      break;
+    case STRUCT:
+      for (final StructField field: ((StructObjectInspector) parameters[1]).getAllStructFieldRefs()) {
+        ObjectInspectorValidator.validateCategoryPrimitive(field.getFieldObjectInspector(), 1);
+      }
+      break;
+    default:
+      throw new UDFArgumentTypeException(1, "Array or struct of dimensions expected, but "
+          + parameters[1].getCategory().name() + " was received as parameter 2");
+    }
+
+    if (parameters.length > 2) {
+      ObjectInspectorValidator.validateIntegralParameter(parameters[2], 2);
+      if (!ObjectInspectorUtils.isConstantObjectInspector(parameters[2])) {
+        throw new UDFArgumentTypeException(2, "The third argument must be a constant");
+      }
+    }
+
+    if (parameters.length > 3) {
+      ObjectInspectorValidator.validateFloatingPointParameter(parameters[3], 3);
+      if (!ObjectInspectorUtils.isConstantObjectInspector(parameters[3])) {
+        throw new UDFArgumentTypeException(3, "The fourth argument must be a constant");
+      }
+    }
+
+    if (parameters.length > 4) {
+      ObjectInspectorValidator.validateIntegralParameter(parameters[4], 4);
+      if (!ObjectInspectorUtils.isConstantObjectInspector(parameters[4])) {
+        throw new UDFArgumentTypeException(4, "The fifth argument must be a constant");
+      }
+    }
+
+    return new DataToSketchMapEvaluator();
+  }
+
+  public static class DataToSketchMapEvaluator extends GenericUDAFEvaluator {
+
+    // FOR PARTIAL1 and COMPLETE modes: ObjectInspectors for original data
+    private transient PrimitiveObjectInspector inputObjectInspector;
+    private transient ObjectInspector dimensionsObjectInspector;
+    private transient PrimitiveObjectInspector nominalEntriesObjectInspector;
+    private transient PrimitiveObjectInspector samplingProbabilityObjectInspector;
+    private transient PrimitiveObjectInspector seedObjectInspector;
+
+    // FOR PARTIAL1 and COMPLETE modes: feeds the original data into the sketches
+    private transient KeyUpdater keyUpdater;
+
+    // FOR PARTIAL1 and COMPLETE modes: parameters of new sketches,
+    // resolved once in init if the arguments are constants with known values
+    private transient boolean parametersResolved;
+    private transient int nominalEntries;
+    private transient float samplingProbability;
+    private transient long seed;
+
+    // FOR PARTIAL2 and FINAL modes: ObjectInspectors for partial aggregations
+    private transient StructObjectInspector intermediateObjectInspector;
+    private transient MapObjectInspector sketchesObjectInspector;
+
+    private transient Counters counters = Counters.DISABLED;
+
+    @Override
+    public void configure(final MapredContext context) {
+      counters = Counters.getInstance(context, "Sketches: theta");
+    }
+
+    @Override
+    public ObjectInspector init(final Mode mode, final ObjectInspector[] parameters) throws HiveException {
+      super.init(mode, parameters);
+
+      if (mode == Mode.PARTIAL1 || mode == Mode.COMPLETE) {
+        // input is original data
+        inputObjectInspector = (PrimitiveObjectInspector) parameters[0];
+        keyUpdater = KeyUpdater.getInstance(inputObjectInspector);
+        dimensionsObjectInspector = parameters[1];
+        if (parameters.length > 2) {
+          nominalEntriesObjectInspector = (PrimitiveObjectInspector) parameters[2];
+        }
+        if (parameters.length > 3) {
+          samplingProbabilityObjectInspector = (PrimitiveObjectInspector) parameters[3];
+        }
+        if (parameters.length > 4) {
+          seedObjectInspector = (PrimitiveObjectInspector) parameters[4];
+        }
+        final Object[] constantValues = HiveUtil.getConstantValues(parameters, 2);
+        parametersResolved = constantValues != null;
+        if (parametersResolved) {
+          resolveParameters(constantValues);
+        }
+      } else {
+        // input for PARTIAL2 and FINAL is the output from PARTIAL1
+        intermediateObjectInspector = (StructObjectInspector) parameters[0];
+        sketchesObjectInspector = (MapObjectInspector) intermediateObjectInspector
+            .getStructFieldRef(SKETCHES_FIELD).getFieldObjectInspector();
+      }
+
+      final ObjectInspector sketchesInspector = ObjectInspectorFactory.getStandardMapObjectInspector(
+          PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.STRING),
+          PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.BINARY)
+      );
+      if (mode == Mode.PARTIAL1 || mode == Mode.PARTIAL2) {
+        // intermediate results need to include the nominal number of entries and the seed
+        return ObjectInspectorFactory.getStandardStructObjectInspector(
+          Arrays.asList(NOMINAL_ENTRIES_FIELD, SEED_FIELD, SKETCHES_FIELD),
+          Arrays.asList(
+            PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.INT),
+            PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.LONG),
+            sketchesInspector
+          )
+        );
+      }
+      // final results include just the sketches
+      return sketchesInspector;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+      return new SketchMapState();
+    }
+
+    @Override
+    public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer agg,
+        final Object[] parameters) throws HiveException {
+      if (parameters[0] == null || parameters[1] == null) {
+        counters.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters.start();
+      final SketchMapState state = (SketchMapState) agg;
+      if (!state.isInitialized()) {
+        if (!parametersResolved) {
+          resolveParameters(parameters);
+        }
+        state.init(nominalEntries, samplingProbability, seed);
+      }
+      if (dimensionsObjectInspector instanceof ListObjectInspector) {
+        final ListObjectInspector listInspector = (ListObjectInspector) dimensionsObjectInspector;
+        final PrimitiveObjectInspector elementInspector =
+            (PrimitiveObjectInspector) listInspector.getListElementObjectInspector();
+        final int length = listInspector.getListLength(parameters[1]);
+        for (int i = 0; i < length; i++) {
+          final Object dimension = listInspector.getListElement(parameters[1], i);
+          if (dimension == null) { continue; }
+          state.update(PrimitiveObjectInspectorUtils.getString(dimension, elementInspector),
+              parameters[0], keyUpdater);
+        }
+      } else {
+        final StructObjectInspector structInspector = (StructObjectInspector) dimensionsObjectInspector;
+        for (final StructField field: structInspector.getAllStructFieldRefs()) {
+          final Object dimension = structInspector.getStructFieldData(parameters[1], field);
+          if (dimension == null) { continue; }
+          state.update(field.getFieldName() + "=" + PrimitiveObjectInspectorUtils.getString(dimension,
+              (PrimitiveObjectInspector) field.getFieldObjectInspector()), parameters[0], keyUpdater);
+        }
+      }
+      counters.rowIngested(startNanos);
+    }
+
+    // reads the parameters from a row or from the values of the constant arguments
+    private void resolveParameters(final Object[] parameters) {
+      nominalEntries = DEFAULT_NOMINAL_ENTRIES;
+      if (nominalEntriesObjectInspector != null) {
+        nominalEntries = PrimitiveObjectInspectorUtils.getInt(parameters[2], nominalEntriesObjectInspector);
+      }
+      samplingProbability = State.DEFAULT_SAMPLING_PROBABILITY;
+      if (samplingProbabilityObjectInspector != null) {
+        samplingProbability = PrimitiveObjectInspectorUtils.getFloat(parameters[3],
+            samplingProbabilityObjectInspector);
+      }
+      seed = DEFAULT_UPDATE_SEED;
+      if (seedObjectInspector != null) {
+        seed = PrimitiveObjectInspectorUtils.getLong(parameters[4], seedObjectInspector);
+      }
+    }
+
+    @Override
+    public Object terminatePartial(final @SuppressWarnings("deprecation") AggregationBuffer agg)
+        throws HiveException {
+      final SketchMapState state = (SketchMapState) agg;
+      if (!state.isInitialized()) { return null; }
+      final long startNanos = counters.start();
+      final Map<Text, BytesWritable> sketches = state.getResult();
+      counters.partialTerminated(startNanos, getTotalLength(sketches));
+      // sampling probability is not relevant for merging
+      return Arrays.<Object>asList(
+        new IntWritable(state.getNominalEntries()),
+        new LongWritable(state.getSeed()),
+        sketches
+      );
+    }
+
+    private static int getTotalLength(final Map<Text, BytesWritable> sketches) {
+      int length = 0;
+      for (final BytesWritable serializedSketch: sketches.values()) {
+        length += serializedSketch.getLength();
+      }
+      return length;
+    }
+
+    // sketches of the same dimension value in different partials are merged together
+    @Override
+    public void merge(final @SuppressWarnings("deprecation") AggregationBuffer agg,
+        final Object partial) throws HiveException {
+      if (partial == null) { return; }
+      final long startNanos = counters.start();
+      final SketchMapState state = (SketchMapState) agg;
+      if (!state.isInitialized()) {
+        final int nominalEntries = ((IntWritable) intermediateObjectInspector.getStructFieldData(
+            partial, intermediateObjectInspector.getStructFieldRef(NOMINAL_ENTRIES_FIELD))).get();
+        final long seed = ((LongWritable) intermediateObjectInspector.getStructFieldData(
+            partial, intermediateObjectInspector.getStructFieldRef(SEED_FIELD))).get();
+        state.init(nominalEntries, State.DEFAULT_SAMPLING_PROBABILITY, seed);
+      }
+      final Map<?, ?> sketches = sketchesObjectInspector.getMap(
+          intermediateObjectInspector.getStructFieldData(
+              partial, intermediateObjectInspector.getStructFieldRef(SKETCHES_FIELD)));
+      final PrimitiveObjectInspector keyInspector =
+          (PrimitiveObjectInspector) sketchesObjectInspector.getMapKeyObjectInspector();
+      final PrimitiveObjectInspector valueInspector =
+          (PrimitiveObjectInspector) sketchesObjectInspector.getMapValueObjectInspector();
+      int length = 0;
+      for (final Map.Entry<?, ?> entry: sketches.entrySet()) {
+        final BytesWritable serializedSketch =
+            (BytesWritable) valueInspector.getPrimitiveWritableObject(entry.getValue());
+        state.update(PrimitiveObjectInspectorUtils.getString(entry.getKey(), keyInspector),
+            HiveUtil.wrap(serializedSketch));
+        length += serializedSketch.getLength();
+      }
+      counters.partialMerged(startNanos, length);
+    }
+
+    @Override
+    public Object terminate(final @SuppressWarnings("deprecation") AggregationBuffer agg)
+        throws HiveException {
+      final SketchMapState state = (SketchMapState) agg;
+      if (!state.isInitialized()) { return null; }
+      final long startNanos = counters.start();
+      final Map<Text, BytesWritable> sketches = state.getResult();
+      counters.terminated(startNanos);
+      return sketches;
+    }
+
+    @Override
+    public void reset(final @SuppressWarnings("deprecation") AggregationBuffer agg)
+        throws HiveException {
+      ((SketchMapState) agg).reset();
+    }
+
+  }
+
+}
@@ -27,6 +27,8 @@ import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
 
+import com.yahoo.sketches.hive.HiveUtil;
+
 @Description(
     name = "dataToSketch",
     value = "_FUNC_(expr, size, prob, seed) - "
@@ -113,6 +115,29 @@ public class DataToSketchUDAF extends AbstractGenericUDAFResolver {
     // FOR PARTIAL1 and COMPLETE modes: ObjectInspectors for original data
     private transient PrimitiveObjectInspector samplingProbabilityObjectInspector;
 
+    // FOR PARTIAL1 and COMPLETE modes: feeds the original data into the sketch
+    private transient KeyUpdater keyUpdater;
+
+    // FOR PARTIAL1 and COMPLETE modes: parameters of new sketches,
+    // resolved once in init if the arguments are constants with known values
+    private transient boolean parametersResolved;
+    private transient int nominalEntries;
+    private transient float samplingProbability;
+    private transient long seed;
+
+    private transient Mode mode;
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+      // Same approach as in the HLL DataToSketchUDAF: UnionState works in all modes,
+      // but SketchState is leaner when only iterate() will be used.
+      if (mode == Mode.PARTIAL1 || mode == Mode.COMPLETE) {
+        return new SketchState();
+      }
+      return new UnionState(offHeapMemory, getParallelMerge());
+    }
+
 
     /*
      * (non-Javadoc)
@@ -125,10 +150,12 @@ public class DataToSketchUDAF extends AbstractGenericUDAFResolver {
     @Override
     public ObjectInspector init(final Mode mode, final ObjectInspector[] parameters) throws HiveException {
       super.init(mode, parameters);
+      this.mode = mode;
 
       if (mode == Mode.PARTIAL1 || mode == Mode.COMPLETE) {
         // input is original data
         inputObjectInspector = (PrimitiveObjectInspector) parameters[0];
+        keyUpdater = KeyUpdater.getInstance(inputObjectInspector);
         if (parameters.length > 1) {
           nominalEntriesObjectInspector = (PrimitiveObjectInspector) parameters[1];
         }
@@ -138,6 +165,11 @@ public class DataToSketchUDAF extends AbstractGenericUDAFResolver {
         if (parameters.length > 3) {
           seedObjectInspector = (PrimitiveObjectInspector) parameters[3];
         }
+        final Object[] constantValues = HiveUtil.getConstantValues(parameters, 1);
+        parametersResolved = constantValues != null;
+        if (parametersResolved) {
+          resolveParameters(constantValues);
+        }
       } else {
         // input for PARTIAL2 and FINAL is the output from PARTIAL1
         intermediateObjectInspector = (StructObjectInspector) parameters[0];
@@ -170,29 +202,41 @@ public class DataToSketchUDAF extends AbstractGenericUDAFResolver {
     @Override
     public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer agg,
         final Object[] parameters) throws HiveException {
-      if (parameters[0] == null) { return; }
-      final UnionState state = (UnionState) agg;
+      if (parameters[0] == null) {
+        counters.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters.start();
+      final State state = (State) agg;
       if (!state.isInitialized()) {
         initializeState(state, parameters);
       }
-      state.update(parameters[0], inputObjectInspector);
+      state.update(parameters[0], keyUpdater);
+      counters.rowIngested(startNanos);
+    }
+
+    private void initializeState(final State state, final Object[] parameters) {
+      if (!parametersResolved) {
+        resolveParameters(parameters);
+      }
+      state.init(nominalEntries, samplingProbability, seed);
     }
 
-    private void initializeState(final UnionState state, final Object[] parameters) {
-      int sketchSize = DEFAULT_NOMINAL_ENTRIES;
+    // reads the parameters from a row or from the values of the constant arguments
+    private void resolveParameters(final Object[] parameters) {
+      nominalEntries = DEFAULT_NOMINAL_ENTRIES;
       if (nominalEntriesObjectInspector != null) {
-        sketchSize = PrimitiveObjectInspectorUtils.getInt(parameters[1], nominalEntriesObjectInspector);
+        nominalEntries = PrimitiveObjectInspectorUtils.getInt(parameters[1], nominalEntriesObjectInspector);
       }
-      float samplingProbability = UnionState.DEFAULT_SAMPLING_PROBABILITY;
+      samplingProbability = State.DEFAULT_SAMPLING_PROBABILITY;
       if (samplingProbabilityObjectInspector != null) {
         samplingProbability = PrimitiveObjectInspectorUtils.getFloat(parameters[2],
             samplingProbabilityObjectInspector);
       }
-      long seed = DEFAULT_UPDATE_SEED;
+      seed = DEFAULT_UPDATE_SEED;
       if (seedObjectInspector != null) {
         seed = PrimitiveObjectInspectorUtils.getLong(parameters[3], seedObjectInspector);
       }
-      state.init(sketchSize, samplingProbability, seed);
     }
 
   }
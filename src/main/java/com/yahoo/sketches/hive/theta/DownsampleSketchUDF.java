@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.theta;
+
+import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
+import static com.yahoo.sketches.Util.ceilingPowerOf2;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDF;
+import org.apache.hadoop.io.BytesWritable;
+
+import com.yahoo.sketches.hive.HiveUtil;
+import com.yahoo.sketches.theta.SetOperation;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.Union;
+
+/**
+ * Hive UDF to re-sample a sketch to a smaller number of nominal entries,
+ * for example to store old partitions with less precision in less space.
+ * The hashes retained by the sketch are kept below a lower theta, the same as
+ * if the sketch had been built with the smaller size from the original data.
+ */
+@Description(
+    name = "downsampleSketch",
+    value = "_FUNC_(sketch, size, seed)",
+    extended = "Returns a compact sketch with at most the given number of nominal entries"
+    + " retained from the given sketch. The size is rounded up to a power of 2."
+    + " A sketch that is already within the size is returned as is."
+    + " The seed is optional, and using it is not recommended unless you really know why you need it.")
+public class DownsampleSketchUDF extends UDF {
+
+  private static final int EMPTY_SKETCH_SIZE_BYTES = 8;
+
+  /**
+   * Re-samples a sketch to the given size.
+   *
+   * @param binarySketch sketch to be re-sampled passed in as bytes writable.
+   * @param sketchSize nominal entries of the resulting sketch. This is rounded up to a power of 2.
+   * @param seed using the seed is not recommended unless you really know why you need it.
+   * @return resulting sketch or null if no sketch was given.
+   */
+  public BytesWritable evaluate(final BytesWritable binarySketch, final int sketchSize, final long seed) {
+    if (binarySketch == null) { return null; }
+
+    final Union union = SetOperation.builder().setSeed(seed).setNominalEntries(sketchSize).buildUnion();
+
+    if (binarySketch.getLength() >= EMPTY_SKETCH_SIZE_BYTES) {
+      final Sketch sketch = Sketch.wrap(HiveUtil.wrap(binarySketch), seed);
+      // the union, which rounds its size up to a power of 2, would produce the same sketch
+      if (sketch.isCompact() && sketch.isOrdered()
+          && sketch.getRetainedEntries(true) <= ceilingPowerOf2(sketchSize)) {
+        return new BytesWritable(binarySketch.copyBytes());
+      }
+      union.update(sketch);
+    }
+
+    return new BytesWritable(union.getResult().toByteArray());
+  }
+
+  /**
+   * Re-samples a sketch to the given size.
+   *
+   * @param binarySketch sketch to be re-sampled passed in as bytes writable.
+   * @param sketchSize nominal entries of the resulting sketch. This is rounded up to a power of 2.
+   * @return resulting sketch or null if no sketch was given.
+   */
+  public BytesWritable evaluate(final BytesWritable binarySketch, final int sketchSize) {
+    return evaluate(binarySketch, sketchSize, DEFAULT_UPDATE_SEED);
+  }
+
+}
@@ -10,7 +10,7 @@ import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.theta.Sketch;
 
 /**
@@ -43,13 +43,11 @@ public class EstimateSketchUDF extends UDF {
       return 0.0;
     }
 
-    final byte[] serializedSketch = binarySketch.getBytes();
-
-    if (serializedSketch.length <= EMPTY_SKETCH_SIZE_BYTES) {
+    if (binarySketch.getLength() <= EMPTY_SKETCH_SIZE_BYTES) {
       return 0.0;
     }
 
-    return Sketch.wrap(Memory.wrap(serializedSketch), seed).getEstimate();
+    return Sketch.wrap(HiveUtil.wrap(binarySketch), seed).getEstimate();
   }
 
 }
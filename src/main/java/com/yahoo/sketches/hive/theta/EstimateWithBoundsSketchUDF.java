@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.theta;
+
+import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.BytesWritable;
+
+import com.yahoo.sketches.hive.HiveUtil;
+import com.yahoo.sketches.theta.Sketch;
+
+/**
+ * Hive UDF to get the estimate, bounds, number of retained entries and theta of a sketch
+ * from a single wrap of the sketch.
+ *
+ * <p>For a compact sketch all of these depend only on the preamble, so the preamble of the last
+ * compact sketch is kept together with its result. When the next sketch has the same preamble,
+ * as when the same sketch arrives again in every row, the result is returned without wrapping
+ * the sketch.</p>
+ */
+@Description(
+    name = "estimateWithBounds",
+    value = "_FUNC_(sketch, numStdDevs, seed)",
+    extended = "Returns a struct of the estimate, lower bound, upper bound, number of retained entries"
+    + " and theta of a given sketch. The bounds are given at the optional number of standard deviations"
+    + " from 1 to 3 (2 by default, about 95.4% confidence). The optional seed is only required"
+    + " if the sketch was built with a seed that is not the default.")
+public class EstimateWithBoundsSketchUDF extends GenericUDF {
+
+  private static final int EMPTY_SKETCH_SIZE_BYTES = 8;
+  private static final int DEFAULT_NUM_STD_DEVS = 2;
+  private static final int PREAMBLE_LONGS_MASK = 0x3F;
+
+  private static final List<Object> EMPTY_RESULT = Arrays.<Object>asList(0.0, 0.0, 0.0, 0, 1.0);
+
+  private PrimitiveObjectInspector inputObjectInspector;
+  private int numStdDevs;
+  private long seed;
+
+  // preamble of the last compact sketch and its result
+  private byte[] cachedPreamble;
+  private int cachedPreambleLength;
+  private List<Object> cachedResult;
+
+  @Override
+  public ObjectInspector initialize(final ObjectInspector[] arguments) throws UDFArgumentException {
+    if (arguments.length < 1 || arguments.length > 3) {
+      throw new UDFArgumentLengthException("Sketch and optional number of standard deviations and seed"
+          + " expected, but " + arguments.length + " arguments were received");
+    }
+    ObjectInspectorValidator.validateGivenPrimitiveCategory(arguments[0], 0, PrimitiveCategory.BINARY);
+    inputObjectInspector = (PrimitiveObjectInspector) arguments[0];
+
+    numStdDevs = DEFAULT_NUM_STD_DEVS;
+    if (arguments.length > 1) {
+      numStdDevs = PrimitiveObjectInspectorUtils.getInt(getConstantValue(arguments, 1),
+          (PrimitiveObjectInspector) arguments[1]);
+      if (numStdDevs < 1 || numStdDevs > 3) {
+        throw new UDFArgumentException("Number of standard deviations must be 1, 2 or 3, but "
+            + numStdDevs + " was received");
+      }
+    }
+    seed = DEFAULT_UPDATE_SEED;
+    if (arguments.length > 2) {
+      seed = PrimitiveObjectInspectorUtils.getLong(getConstantValue(arguments, 2),
+          (PrimitiveObjectInspector) arguments[2]);
+    }
+    cachedPreamble = null;
+    cachedResult = null;
+
+    return ObjectInspectorFactory.getStandardStructObjectInspector(
+      Arrays.asList("estimate", "lower_bound", "upper_bound", "retained_entries", "theta"),
+      Arrays.<ObjectInspector>asList(
+        PrimitiveObjectInspectorFactory.javaDoubleObjectInspector,
+        PrimitiveObjectInspectorFactory.javaDoubleObjectInspector,
+        PrimitiveObjectInspectorFactory.javaDoubleObjectInspector,
+        PrimitiveObjectInspectorFactory.javaIntObjectInspector,
+        PrimitiveObjectInspectorFactory.javaDoubleObjectInspector
+      )
+    );
+  }
+
+  private static Object getConstantValue(final ObjectInspector[] arguments, final int index)
+      throws UDFArgumentTypeException {
+    ObjectInspectorValidator.validateIntegralParameter(arguments[index], index);
+    if (!(arguments[index] instanceof ConstantObjectInspector)) {
+      throw new UDFArgumentTypeException(index, "Constant value expected as parameter " + (index + 1));
+    }
+    return ((ConstantObjectInspector) arguments[index]).getWritableConstantValue();
+  }
+
+  @Override
+  public Object evaluate(final DeferredObject[] arguments) throws HiveException {
+    final Object value = arguments[0].get();
+    if (value == null) { return EMPTY_RESULT; }
+    final BytesWritable serializedSketch =
+        (BytesWritable) inputObjectInspector.getPrimitiveWritableObject(value);
+    if (serializedSketch.getLength() <= EMPTY_SKETCH_SIZE_BYTES) { return EMPTY_RESULT; }
+
+    final byte[] bytes = serializedSketch.getBytes();
+    final int preambleLength = Math.min((bytes[0] & PREAMBLE_LONGS_MASK) * Long.BYTES,
+        serializedSketch.getLength());
+    if (isCachedPreamble(bytes, preambleLength)) { return cachedResult; }
+
+    final Sketch sketch = Sketch.wrap(HiveUtil.wrap(serializedSketch), seed);
+    final List<Object> result = Arrays.<Object>asList(
+      sketch.getEstimate(),
+      sketch.getLowerBound(numStdDevs),
+      sketch.getUpperBound(numStdDevs),
+      sketch.getRetainedEntries(true),
+      sketch.getTheta()
+    );
+    // an update sketch may have entries above theta, which are not reflected in the preamble
+    if (sketch.isCompact()) {
+      if (cachedPreamble == null || cachedPreamble.length < preambleLength) {
+        cachedPreamble = new byte[preambleLength];
+      }
+      System.arraycopy(bytes, 0, cachedPreamble, 0, preambleLength);
+      cachedPreambleLength = preambleLength;
+      cachedResult = result;
+    }
+    return result;
+  }
+
+  private boolean isCachedPreamble(final byte[] bytes, final int preambleLength) {
+    if (cachedResult == null || cachedPreambleLength != preambleLength) { return false; }
+    for (int i = 0; i < preambleLength; i++) {
+      if (bytes[i] != cachedPreamble[i]) { return false; }
+    }
+    return true;
+  }
+
+  @Override
+  public String getDisplayString(final String[] children) {
+    return getStandardDisplayString("estimateWithBounds", children);
+  }
+
+}
@@ -10,7 +10,7 @@ import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.theta.AnotB;
 import com.yahoo.sketches.theta.SetOperation;
 import com.yahoo.sketches.theta.Sketch;
@@ -39,12 +39,12 @@ public class ExcludeSketchUDF extends UDF {
 
     Sketch firstSketch = null;
     if (firstSketchBytes != null && firstSketchBytes.getLength() > 0) {
-      firstSketch = Sketch.wrap(Memory.wrap(firstSketchBytes.getBytes()), hashSeed);
+      firstSketch = Sketch.wrap(HiveUtil.wrap(firstSketchBytes), hashSeed);
     }
 
     Sketch secondSketch = null;
     if (secondSketchBytes != null && secondSketchBytes.getLength() > 0) {
-      secondSketch = Sketch.wrap(Memory.wrap(secondSketchBytes.getBytes()), hashSeed);
+      secondSketch = Sketch.wrap(HiveUtil.wrap(secondSketchBytes), hashSeed);
     }
 
     final AnotB anotb = SetOperation.builder().setSeed(hashSeed).buildANotB();
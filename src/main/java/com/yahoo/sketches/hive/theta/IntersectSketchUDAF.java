@@ -6,10 +6,14 @@
 package com.yahoo.sketches.hive.theta;
 
 import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
+import static com.yahoo.sketches.Util.REBUILD_THRESHOLD;
+import static com.yahoo.sketches.Util.ceilingPowerOf2;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
@@ -17,6 +21,7 @@ import org.apache.hadoop.hive.ql.parse.SemanticException;
 import org.apache.hadoop.hive.ql.udf.generic.AbstractGenericUDAFResolver;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFParameterInfo;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
@@ -29,6 +34,8 @@ import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.LongWritable;
 
 import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.Counters;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.theta.Intersection;
 import com.yahoo.sketches.theta.SetOperation;
 import com.yahoo.sketches.theta.Sketch;
@@ -75,9 +82,25 @@ public class IntersectSketchUDAF extends AbstractGenericUDAFResolver {
     // FOR PARTIAL2 and FINAL modes: ObjectInspectors for partial aggregations
     protected transient StructObjectInspector intermediateObjectInspector;
 
+    // output objects are reused across groups,
+    // since Hive serializes each output before asking for the next one
+    private transient LongWritable seedOutput;
+    private transient Object[] intermediateOutput;
+    private transient List<Object> intermediateOutputList;
+
+    private transient Counters counters = Counters.DISABLED;
+
+    @Override
+    public void configure(final MapredContext context) {
+      counters = Counters.getInstance(context, "Sketches: theta");
+    }
+
     @Override
     public ObjectInspector init(final Mode mode, final ObjectInspector[] parameters) throws HiveException {
       super.init(mode, parameters);
+      seedOutput = new LongWritable();
+      intermediateOutput = new Object[] {seedOutput, null};
+      intermediateOutputList = Arrays.asList(intermediateOutput);
       if (mode == Mode.PARTIAL1 || mode == Mode.COMPLETE) {
         inputObjectInspector = (PrimitiveObjectInspector) parameters[0];
         if (parameters.length > 1) {
@@ -106,7 +129,11 @@ public class IntersectSketchUDAF extends AbstractGenericUDAFResolver {
     @Override
     public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer buf,
         final Object[] data) throws HiveException {
-      if (data[0] == null) { return; }
+      if (data[0] == null) {
+        counters.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters.start();
       final IntersectionState state = (IntersectionState) buf;
       if (!state.isInitialized()) {
         long seed = DEFAULT_UPDATE_SEED;
@@ -115,28 +142,32 @@ public class IntersectSketchUDAF extends AbstractGenericUDAFResolver {
         }
         state.init(seed);
       }
-      final byte[] serializedSketch = (byte[]) inputObjectInspector.getPrimitiveJavaObject(data[0]);
+      final BytesWritable serializedSketch =
+          (BytesWritable) inputObjectInspector.getPrimitiveWritableObject(data[0]);
       if (serializedSketch == null) { return; }
-      state.update(serializedSketch);
+      state.update(HiveUtil.wrap(serializedSketch));
+      counters.rowIngested(startNanos);
     }
 
     @Override
     public Object terminatePartial(final @SuppressWarnings("deprecation") AggregationBuffer buf)
         throws HiveException {
+      final long startNanos = counters.start();
       final IntersectionState state = (IntersectionState) buf;
       final Sketch intermediate = state.getResult();
       if (intermediate == null) { return null; }
-      final byte[] bytes = intermediate.toByteArray();
-      return Arrays.asList(
-        new LongWritable(state.getSeed()),
-        new BytesWritable(bytes)
-      );
+      seedOutput.set(state.getSeed());
+      final BytesWritable serializedSketch = new BytesWritable(intermediate.toByteArray());
+      intermediateOutput[1] = serializedSketch;
+      counters.partialTerminated(startNanos, serializedSketch.getLength());
+      return intermediateOutputList;
     }
 
     @Override
     public void merge(final @SuppressWarnings("deprecation") AggregationBuffer buf,
         final Object data) throws HiveException {
       if (data == null) { return; }
+      final long startNanos = counters.start();
       final IntersectionState state = (IntersectionState) buf;
       if (!state.isInitialized()) {
         final long seed = ((LongWritable) intermediateObjectInspector.getStructFieldData(
@@ -147,16 +178,20 @@ public class IntersectSketchUDAF extends AbstractGenericUDAFResolver {
       final BytesWritable serializedSketch =
           (BytesWritable) intermediateObjectInspector.getStructFieldData(
           data, intermediateObjectInspector.getStructFieldRef(SKETCH_FIELD));
-      state.update(serializedSketch.getBytes());
+      state.update(HiveUtil.wrap(serializedSketch));
+      counters.partialMerged(startNanos, serializedSketch.getLength());
     }
 
     @Override
     public Object terminate(final @SuppressWarnings("deprecation") AggregationBuffer buf)
         throws HiveException {
+      final long startNanos = counters.start();
       final IntersectionState state = (IntersectionState) buf;
       final Sketch resultSketch = state.getResult();
       if (resultSketch == null) { return null; }
-      return new BytesWritable(resultSketch.toByteArray());
+      final BytesWritable result = new BytesWritable(resultSketch.toByteArray());
+      counters.terminated(startNanos);
+      return result;
     }
 
     @SuppressWarnings("deprecation")
@@ -172,10 +207,14 @@ public class IntersectSketchUDAF extends AbstractGenericUDAFResolver {
       state.reset();
     }
 
+    @AggregationType(estimable = true)
     static class IntersectionState extends AbstractAggregationBuffer {
       private long seed_;
       private Intersection intersection_;
 
+      // the intersection cannot retain more entries than the smallest incoming sketch
+      private int numEntries_;
+
       boolean isInitialized() {
         return intersection_ != null;
       }
@@ -183,14 +222,18 @@ public class IntersectSketchUDAF extends AbstractGenericUDAFResolver {
       void init(final long seed) {
         this.seed_ = seed;
         intersection_ = SetOperation.builder().setSeed(seed).buildIntersection();
+        numEntries_ = -1;
       }
 
       long getSeed() {
         return seed_;
       }
 
-      void update(final byte[] serializedSketch) {
-        intersection_.update(Sketches.wrapSketch(Memory.wrap(serializedSketch), seed_));
+      void update(final Memory serializedSketch) {
+        final Sketch sketch = Sketches.wrapSketch(serializedSketch, seed_);
+        intersection_.update(sketch);
+        final int numEntries = sketch.getRetainedEntries(true);
+        if (numEntries_ < 0 || numEntries < numEntries_) { numEntries_ = numEntries; }
       }
 
       Sketch getResult() {
@@ -201,6 +244,14 @@ public class IntersectSketchUDAF extends AbstractGenericUDAFResolver {
       void reset() {
         intersection_ = null;
       }
+
+      @Override
+      public int estimate() {
+        final JavaDataModel model = JavaDataModel.get();
+        if (numEntries_ <= 0) { return model.object(); }
+        return model.object() * 2 + model.lengthForLongArrayOfSize(
+            ceilingPowerOf2((int) Math.ceil(numEntries_ / REBUILD_THRESHOLD)));
+      }
     }
   }
 }
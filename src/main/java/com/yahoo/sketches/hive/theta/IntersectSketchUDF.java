@@ -7,17 +7,22 @@ package com.yahoo.sketches.hive.theta;
 
 import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.theta.Intersection;
 import com.yahoo.sketches.theta.SetOperation;
 import com.yahoo.sketches.theta.Sketch;
 
 /**
  * Hive intersection sketch UDF.
- *
+ * Any number of sketches can be given, either as arguments or as an array.
+ * They are intersected in one pass, which stops at the first empty sketch,
+ * and the result is serialized once.
  */
 public class IntersectSketchUDF extends UDF {
 
@@ -35,33 +40,58 @@ public class IntersectSketchUDF extends UDF {
    */
   public BytesWritable evaluate(final BytesWritable firstSketchBytes,
       final BytesWritable secondSketchBytes, final long hashSeed) {
-    Sketch firstSketch = null;
-    if (firstSketchBytes != null && firstSketchBytes.getLength() > 0) {
-      firstSketch = Sketch.wrap(Memory.wrap(firstSketchBytes.getBytes()), hashSeed);
-    }
+    return evaluate(Arrays.asList(firstSketchBytes, secondSketchBytes), hashSeed);
+  }
 
-    Sketch secondSketch = null;
-    if (secondSketchBytes != null && secondSketchBytes.getLength() > 0) {
-      secondSketch = Sketch.wrap(Memory.wrap(secondSketchBytes.getBytes()), hashSeed);
-    }
+  /**
+   * Main logic called by hive if hashSeed is not passed in. Computes the
+   * intersection of any number of sketches of same or different column.
+   *
+   * @param sketchesBytes
+   *          sketches to be intersected.
+   * @return resulting sketch of intersection.
+   */
+  public BytesWritable evaluate(final BytesWritable... sketchesBytes) {
+    return evaluate(Arrays.asList(sketchesBytes), DEFAULT_UPDATE_SEED);
+  }
 
+  /**
+   * Main logic called by hive if an array of sketches is passed in.
+   * Computes the intersection of all sketches of the array.
+   *
+   * @param sketchesBytes
+   *          array of sketches to be intersected.
+   * @param hashSeed
+   *          Only required if input sketches were constructed using an update seed that was not the default.
+   * @return resulting sketch of intersection.
+   */
+  public BytesWritable evaluate(final List<BytesWritable> sketchesBytes, final long hashSeed) {
     final Intersection intersect = SetOperation.builder().setSeed(hashSeed).buildIntersection();
-    intersect.update(firstSketch);
-    intersect.update(secondSketch);
+    if (sketchesBytes == null || sketchesBytes.isEmpty()) {
+      intersect.update(null);
+    } else {
+      for (final BytesWritable sketchBytes: sketchesBytes) {
+        Sketch sketch = null;
+        if (sketchBytes != null && sketchBytes.getLength() > 0) {
+          sketch = Sketch.wrap(HiveUtil.wrap(sketchBytes), hashSeed);
+        }
+        intersect.update(sketch);
+        // the intersection stays empty, so the rest of the sketches are not wrapped
+        if (sketch == null || sketch.isEmpty()) { break; }
+      }
+    }
     return new BytesWritable(intersect.getResult().toByteArray());
   }
 
   /**
-   * Main logic called by hive if sketchSize is not passed in. Computes the
-   * intersection of two sketches of same or different column.
+   * Main logic called by hive if an array of sketches is passed in.
    *
-   * @param firstSketchBytes
-   *          first sketch to be intersected.
-   * @param secondSketchBytes
-   *          second sketch to be intersected.
+   * @param sketchesBytes
+   *          array of sketches to be intersected.
    * @return resulting sketch of intersection.
    */
-  public BytesWritable evaluate(final BytesWritable firstSketchBytes, final BytesWritable secondSketchBytes) {
-    return evaluate(firstSketchBytes, secondSketchBytes, DEFAULT_UPDATE_SEED);
+  public BytesWritable evaluate(final List<BytesWritable> sketchesBytes) {
+    return evaluate(sketchesBytes, DEFAULT_UPDATE_SEED);
   }
+
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.theta;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.HiveCharObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.HiveVarcharObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.io.Text;
+
+import com.yahoo.sketches.theta.Union;
+import com.yahoo.sketches.theta.UpdateSketch;
+
+/**
+ * Feeds raw input values of one primitive type into a sketch or a union.
+ * The type of the input column is known once the evaluator is initialized,
+ * so the dispatch on the primitive category happens once per evaluator
+ * instead of once per row.
+ */
+abstract class KeyUpdater {
+
+  abstract void update(UpdateSketch sketch, Object value);
+
+  abstract void update(Union union, Object value);
+
+  static KeyUpdater getInstance(final PrimitiveObjectInspector inspector) {
+    switch (inspector.getPrimitiveCategory()) {
+    case BINARY:
+      return new KeyUpdater() {
+        @Override
+        void update(final UpdateSketch sketch, final Object value) {
+          sketch.update(PrimitiveObjectInspectorUtils.getBinary(value, inspector).getBytes());
+        }
+
+        @Override
+        void update(final Union union, final Object value) {
+          union.update(PrimitiveObjectInspectorUtils.getBinary(value, inspector).getBytes());
+        }
+      };
+    case BYTE:
+      return new KeyUpdater() {
+        @Override
+        void update(final UpdateSketch sketch, final Object value) {
+          sketch.update(PrimitiveObjectInspectorUtils.getByte(value, inspector));
+        }
+
+        @Override
+        void update(final Union union, final Object value) {
+          union.update(PrimitiveObjectInspectorUtils.getByte(value, inspector));
+        }
+      };
+    case DOUBLE:
+      return new KeyUpdater() {
+        @Override
+        void update(final UpdateSketch sketch, final Object value) {
+          sketch.update(PrimitiveObjectInspectorUtils.getDouble(value, inspector));
+        }
+
+        @Override
+        void update(final Union union, final Object value) {
+          union.update(PrimitiveObjectInspectorUtils.getDouble(value, inspector));
+        }
+      };
+    case FLOAT:
+      return new KeyUpdater() {
+        @Override
+        void update(final UpdateSketch sketch, final Object value) {
+          sketch.update(PrimitiveObjectInspectorUtils.getFloat(value, inspector));
+        }
+
+        @Override
+        void update(final Union union, final Object value) {
+          union.update(PrimitiveObjectInspectorUtils.getFloat(value, inspector));
+        }
+      };
+    case INT:
+      return new KeyUpdater() {
+        @Override
+        void update(final UpdateSketch sketch, final Object value) {
+          sketch.update(PrimitiveObjectInspectorUtils.getInt(value, inspector));
+        }
+
+        @Override
+        void update(final Union union, final Object value) {
+          union.update(PrimitiveObjectInspectorUtils.getInt(value, inspector));
+        }
+      };
+    case LONG:
+      return new KeyUpdater() {
+        @Override
+        void update(final UpdateSketch sketch, final Object value) {
+          sketch.update(PrimitiveObjectInspectorUtils.getLong(value, inspector));
+        }
+
+        @Override
+        void update(final Union union, final Object value) {
+          union.update(PrimitiveObjectInspectorUtils.getLong(value, inspector));
+        }
+      };
+    // Text, char and varchar values are hashed straight from their UTF-8 bytes.
+    // This is exactly what update(String) does after encoding the string,
+    // so the hashes are the same without decoding into a String and encoding it back.
+    case STRING:
+      return new KeyUpdater() {
+        @Override
+        void update(final UpdateSketch sketch, final Object value) {
+          sketch.update(getBytes(
+              ((StringObjectInspector) inspector).getPrimitiveWritableObject(value)));
+        }
+
+        @Override
+        void update(final Union union, final Object value) {
+          union.update(getBytes(
+              ((StringObjectInspector) inspector).getPrimitiveWritableObject(value)));
+        }
+      };
+    case CHAR:
+      return new KeyUpdater() {
+        @Override
+        void update(final UpdateSketch sketch, final Object value) {
+          sketch.update(getBytes(
+              ((HiveCharObjectInspector) inspector).getPrimitiveWritableObject(value).getTextValue()));
+        }
+
+        @Override
+        void update(final Union union, final Object value) {
+          union.update(getBytes(
+              ((HiveCharObjectInspector) inspector).getPrimitiveWritableObject(value).getTextValue()));
+        }
+      };
+    case VARCHAR:
+      return new KeyUpdater() {
+        @Override
+        void update(final UpdateSketch sketch, final Object value) {
+          sketch.update(getBytes(
+              ((HiveVarcharObjectInspector) inspector).getPrimitiveWritableObject(value).getTextValue()));
+        }
+
+        @Override
+        void update(final Union union, final Object value) {
+          union.update(getBytes(
+              ((HiveVarcharObjectInspector) inspector).getPrimitiveWritableObject(value).getTextValue()));
+        }
+      };
+    default:
+      throw new IllegalArgumentException(
+        "Unrecongnized input data type category " + inspector.getPrimitiveCategory()
+        + ", please use data of the following types: "
+        + "byte, double, float, int, long, char, varchar or string.");
+    }
+  }
+
+  // the backing array of a Text may be longer than its content
+  static byte[] getBytes(final Text text) {
+    if (text.getLength() == text.getBytes().length) { return text.getBytes(); }
+    return Arrays.copyOf(text.getBytes(), text.getLength());
+  }
+
+}
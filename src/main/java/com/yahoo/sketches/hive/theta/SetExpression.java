@@ -0,0 +1,248 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.theta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.yahoo.memory.Memory;
+import com.yahoo.sketches.theta.AnotB;
+import com.yahoo.sketches.theta.Intersection;
+import com.yahoo.sketches.theta.SetOperation;
+import com.yahoo.sketches.theta.SetOperationBuilder;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.Union;
+
+/**
+ * Set expression over theta sketches, compiled once into a tree of set operations.
+ * Sketches are referred to by the letters A to Z in the order they are given.
+ * '|' is union, '&amp;' is intersection and '-' is difference (A and not B).
+ * Intersection binds tighter than union and difference, which are applied from left to right.
+ * Parentheses group sub-expressions.
+ *
+ * <p>Operands are wrapped, and intermediate results are compact sketches on the heap,
+ * so nothing is serialized until the final result. A missing sketch is an empty set.</p>
+ */
+abstract class SetExpression {
+
+  /**
+   * @param sketches serialized sketches referred to by the expression, null if missing
+   * @param seed seed of the sketches
+   * @return result or null for an empty set
+   */
+  abstract Sketch evaluate(Memory[] sketches, long seed);
+
+  // largest index of a sketch the expression refers to
+  abstract int getMaxIndex();
+
+  /**
+   * @param expression text of the expression
+   * @param nominalEntries nominal entries of the unions
+   * @param seed seed of the set operations
+   * @return compiled expression
+   * @throws IllegalArgumentException if the expression is malformed
+   */
+  static SetExpression compile(final String expression, final int nominalEntries, final long seed) {
+    final SetOperationBuilder builder = SetOperation.builder().setNominalEntries(nominalEntries);
+    final Parser parser = new Parser(expression, builder.setSeed(seed));
+    final SetExpression result = parser.parseUnion();
+    if (parser.peek() != Parser.END) {
+      throw parser.error("unexpected '" + parser.peek() + "'");
+    }
+    return result;
+  }
+
+  private static final class Parser {
+
+    static final char END = 0;
+
+    private final String text;
+    private final SetOperationBuilder builder;
+    private int position;
+
+    Parser(final String text, final SetOperationBuilder builder) {
+      this.text = text;
+      this.builder = builder;
+    }
+
+    // union and difference, left to right, with consecutive unions merged into one
+    SetExpression parseUnion() {
+      SetExpression result = parseIntersection();
+      while (peek() == '|' || peek() == '-') {
+        final char operator = next();
+        final SetExpression operand = parseIntersection();
+        if (operator == '-') {
+          result = new Difference(result, operand, builder.buildANotB());
+        } else if (result instanceof UnionNode) {
+          ((UnionNode) result).operands.add(operand);
+        } else {
+          result = new UnionNode(result, operand, builder.buildUnion());
+        }
+      }
+      return result;
+    }
+
+    private SetExpression parseIntersection() {
+      final SetExpression first = parseOperand();
+      if (peek() != '&') { return first; }
+      final List<SetExpression> operands = new ArrayList<>();
+      operands.add(first);
+      while (peek() == '&') {
+        next();
+        operands.add(parseOperand());
+      }
+      return new IntersectionNode(operands, builder.buildIntersection());
+    }
+
+    private SetExpression parseOperand() {
+      final char c = next();
+      if (c == '(') {
+        final SetExpression result = parseUnion();
+        if (next() != ')') { throw error("')' expected"); }
+        return result;
+      }
+      final char letter = Character.toUpperCase(c);
+      if (letter >= 'A' && letter <= 'Z') {
+        return new Operand(letter - 'A');
+      }
+      throw error(c == END ? "unexpected end" : "unexpected '" + c + "'");
+    }
+
+    char peek() {
+      while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+        position++;
+      }
+      return position < text.length() ? text.charAt(position) : END;
+    }
+
+    private char next() {
+      final char c = peek();
+      if (c != END) { position++; }
+      return c;
+    }
+
+    IllegalArgumentException error(final String message) {
+      return new IllegalArgumentException("Invalid set expression '" + text + "': "
+          + message + " at position " + position);
+    }
+
+  }
+
+  private static final class Operand extends SetExpression {
+
+    private final int index;
+
+    Operand(final int index) {
+      this.index = index;
+    }
+
+    @Override
+    Sketch evaluate(final Memory[] sketches, final long seed) {
+      return sketches[index] == null ? null : Sketch.wrap(sketches[index], seed);
+    }
+
+    @Override
+    int getMaxIndex() {
+      return index;
+    }
+
+  }
+
+  private static final class UnionNode extends SetExpression {
+
+    private final List<SetExpression> operands = new ArrayList<>();
+    private final Union union;
+
+    UnionNode(final SetExpression first, final SetExpression second, final Union union) {
+      operands.add(first);
+      operands.add(second);
+      this.union = union;
+    }
+
+    @Override
+    Sketch evaluate(final Memory[] sketches, final long seed) {
+      union.reset();
+      for (final SetExpression operand: operands) {
+        final Sketch sketch = operand.evaluate(sketches, seed);
+        if (sketch != null) { union.update(sketch); }
+      }
+      return union.getResult();
+    }
+
+    @Override
+    int getMaxIndex() {
+      int max = 0;
+      for (final SetExpression operand: operands) {
+        max = Math.max(max, operand.getMaxIndex());
+      }
+      return max;
+    }
+
+  }
+
+  private static final class IntersectionNode extends SetExpression {
+
+    private final List<SetExpression> operands;
+    private final Intersection intersection;
+
+    IntersectionNode(final List<SetExpression> operands, final Intersection intersection) {
+      this.operands = operands;
+      this.intersection = intersection;
+    }
+
+    @Override
+    Sketch evaluate(final Memory[] sketches, final long seed) {
+      intersection.reset();
+      for (final SetExpression operand: operands) {
+        final Sketch sketch = operand.evaluate(sketches, seed);
+        // the rest of the operands cannot change an empty result
+        if (sketch == null) { return null; }
+        intersection.update(sketch);
+      }
+      return intersection.getResult();
+    }
+
+    @Override
+    int getMaxIndex() {
+      int max = 0;
+      for (final SetExpression operand: operands) {
+        max = Math.max(max, operand.getMaxIndex());
+      }
+      return max;
+    }
+
+  }
+
+  private static final class Difference extends SetExpression {
+
+    private final SetExpression left;
+    private final SetExpression right;
+    private final AnotB aNotB;
+
+    Difference(final SetExpression left, final SetExpression right, final AnotB aNotB) {
+      this.left = left;
+      this.right = right;
+      this.aNotB = aNotB;
+    }
+
+    @Override
+    Sketch evaluate(final Memory[] sketches, final long seed) {
+      final Sketch a = left.evaluate(sketches, seed);
+      if (a == null) { return null; }
+      final Sketch b = right.evaluate(sketches, seed);
+      if (b == null) { return a; }
+      aNotB.update(a, b);
+      return aNotB.getResult();
+    }
+
+    @Override
+    int getMaxIndex() {
+      return Math.max(left.getMaxIndex(), right.getMaxIndex());
+    }
+
+  }
+
+}
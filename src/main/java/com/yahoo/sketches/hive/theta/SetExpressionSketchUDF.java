@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.theta;
+
+import static com.yahoo.sketches.Util.DEFAULT_NOMINAL_ENTRIES;
+import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.BytesWritable;
+
+import com.yahoo.memory.Memory;
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.hive.HiveUtil;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.UpdateSketch;
+
+/**
+ * Hive UDF to evaluate a set expression over any number of sketches in one call,
+ * instead of nesting the union, intersect and exclude UDFs.
+ * The expression is compiled once, and the sketches are wrapped without copying.
+ * Only the final result is serialized.
+ */
+@Description(
+    name = "setExpression",
+    value = "_FUNC_(expression, sketch A, sketch B, ..., size, seed)",
+    extended = "Returns a sketch of the given set expression over the given sketches."
+    + " The sketches are referred to in the expression by the letters A to Z in the order"
+    + " of the arguments. '|' is union, '&' is intersection and '-' is difference (A and not B)."
+    + " Intersection binds tighter than union and difference, which are applied from left to right."
+    + " For example: (A | B) & C - D. The expression must be a constant."
+    + " Missing sketches are treated as empty sets."
+    + " Optional constant size is the nominal number of entries of the unions,"
+    + " which must be a power of 2 (default 4096)."
+    + " Optional constant seed must match the seed of the sketches,"
+    + " and using it is not recommended unless you really know why you need it.")
+public class SetExpressionSketchUDF extends GenericUDF {
+
+  private static final int MAX_SKETCHES = 26;
+
+  private PrimitiveObjectInspector[] inputObjectInspectors;
+  private SetExpression expression;
+  private Memory[] sketches;
+  private byte[] emptyResult;
+  private long seed;
+
+  @Override
+  public ObjectInspector initialize(final ObjectInspector[] arguments) throws UDFArgumentException {
+    int numSketches = 0;
+    while (numSketches + 1 < arguments.length && isBinary(arguments[numSketches + 1])) {
+      numSketches++;
+    }
+    final int numConstants = arguments.length - 1 - numSketches;
+    if (numSketches < 1 || numSketches > MAX_SKETCHES || numConstants > 2) {
+      throw new UDFArgumentLengthException("Expression, 1 to " + MAX_SKETCHES
+          + " sketches and optional size and seed expected, but " + arguments.length
+          + " arguments were received");
+    }
+    ObjectInspectorValidator.validateGivenPrimitiveCategory(arguments[0], 0, PrimitiveCategory.STRING);
+    final Object text = getConstantValue(arguments[0], 0);
+
+    int nominalEntries = DEFAULT_NOMINAL_ENTRIES;
+    if (numConstants > 0) {
+      final int index = numSketches + 1;
+      ObjectInspectorValidator.validateIntegralParameter(arguments[index], index);
+      nominalEntries = PrimitiveObjectInspectorUtils.getInt(getConstantValue(arguments[index], index),
+          (PrimitiveObjectInspector) arguments[index]);
+    }
+    seed = DEFAULT_UPDATE_SEED;
+    if (numConstants > 1) {
+      final int index = numSketches + 2;
+      ObjectInspectorValidator.validateIntegralParameter(arguments[index], index);
+      seed = PrimitiveObjectInspectorUtils.getLong(getConstantValue(arguments[index], index),
+          (PrimitiveObjectInspector) arguments[index]);
+    }
+
+    try {
+      expression = SetExpression.compile(text.toString(), nominalEntries, seed);
+    } catch (final IllegalArgumentException | SketchesArgumentException e) {
+      throw new UDFArgumentException(e.getMessage());
+    }
+    if (expression.getMaxIndex() >= numSketches) {
+      throw new UDFArgumentLengthException("Expression '" + text + "' refers to sketch "
+          + (char) ('A' + expression.getMaxIndex()) + ", but only " + numSketches + " sketches were given");
+    }
+    inputObjectInspectors = new PrimitiveObjectInspector[numSketches];
+    for (int i = 0; i < numSketches; i++) {
+      inputObjectInspectors[i] = (PrimitiveObjectInspector) arguments[i + 1];
+    }
+    sketches = new Memory[numSketches];
+    emptyResult = UpdateSketch.builder().setSeed(seed).build().compact().toByteArray();
+    return PrimitiveObjectInspectorFactory.writableBinaryObjectInspector;
+  }
+
+  private static boolean isBinary(final ObjectInspector inspector) {
+    return inspector.getCategory() == ObjectInspector.Category.PRIMITIVE
+        && ((PrimitiveObjectInspector) inspector).getPrimitiveCategory() == PrimitiveCategory.BINARY;
+  }
+
+  private static Object getConstantValue(final ObjectInspector inspector, final int index)
+      throws UDFArgumentTypeException {
+    if (!(inspector instanceof ConstantObjectInspector)) {
+      throw new UDFArgumentTypeException(index, "Constant expected as parameter " + (index + 1));
+    }
+    final Object value = ((ConstantObjectInspector) inspector).getWritableConstantValue();
+    if (value == null) {
+      throw new UDFArgumentTypeException(index, "Parameter " + (index + 1) + " must not be NULL");
+    }
+    return value;
+  }
+
+  @Override
+  public Object evaluate(final DeferredObject[] arguments) throws HiveException {
+    for (int i = 0; i < sketches.length; i++) {
+      final Object value = arguments[i + 1].get();
+      sketches[i] = null;
+      if (value != null) {
+        final BytesWritable serializedSketch =
+            (BytesWritable) inputObjectInspectors[i].getPrimitiveWritableObject(value);
+        if (serializedSketch.getLength() > 0) {
+          sketches[i] = HiveUtil.wrap(serializedSketch);
+        }
+      }
+    }
+    Sketch result = expression.evaluate(sketches, seed);
+    if (result == null) { return new BytesWritable(emptyResult); }
+    if (result instanceof UpdateSketch) { result = ((UpdateSketch) result).compact(); }
+    return new BytesWritable(result.toByteArray());
+  }
+
+  @Override
+  public String getDisplayString(final String[] children) {
+    return getStandardDisplayString("setExpression", children);
+  }
+
+}
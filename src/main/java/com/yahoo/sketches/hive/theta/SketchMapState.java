@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.theta;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AbstractAggregationBuffer;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+
+import com.yahoo.memory.Memory;
+
+/**
+ * One sketch per dimension value, all with the same parameters.
+ * Raw values are fed into a SketchState, serialized sketches into a UnionState,
+ * the same as in DataToSketchUDAF.
+ */
+@AggregationType(estimable = true)
+class SketchMapState extends AbstractAggregationBuffer {
+
+  private boolean initialized_;
+  private int nominalEntries_;
+  private float samplingProbability_;
+  private long seed_;
+
+  private final Map<String, State> states_ = new HashMap<>();
+
+  boolean isInitialized() {
+    return initialized_;
+  }
+
+  void init(final int nominalEntries, final float samplingProbability, final long seed) {
+    nominalEntries_ = nominalEntries;
+    samplingProbability_ = samplingProbability;
+    seed_ = seed;
+    initialized_ = true;
+  }
+
+  int getNominalEntries() {
+    return nominalEntries_;
+  }
+
+  long getSeed() {
+    return seed_;
+  }
+
+  void update(final String dimension, final Object value, final KeyUpdater keyUpdater) {
+    State state = states_.get(dimension);
+    if (state == null) {
+      state = new SketchState();
+      state.init(nominalEntries_, samplingProbability_, seed_);
+      states_.put(dimension, state);
+    }
+    state.update(value, keyUpdater);
+  }
+
+  void update(final String dimension, final Memory serializedSketch) {
+    UnionState state = (UnionState) states_.get(dimension);
+    if (state == null) {
+      state = new UnionState();
+      state.init(nominalEntries_, seed_);
+      states_.put(dimension, state);
+    }
+    state.update(serializedSketch);
+  }
+
+  // ordered compact sketches by dimension value, or null if no rows were seen
+  Map<Text, BytesWritable> getResult() {
+    if (!initialized_) { return null; }
+    final Map<Text, BytesWritable> result = new HashMap<>();
+    for (final Map.Entry<String, State> entry: states_.entrySet()) {
+      // each value is kept by Hive, so it is serialized at its exact size
+      final byte[] serializedSketch = entry.getValue().getResult(null).toByteArray();
+      result.put(new Text(entry.getKey()), new BytesWritable(serializedSketch));
+    }
+    return result;
+  }
+
+  void reset() {
+    initialized_ = false;
+    states_.clear();
+  }
+
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    int size = model.object() + model.hashMap(states_.size());
+    for (final Map.Entry<String, State> entry: states_.entrySet()) {
+      size += model.lengthForStringOfLength(entry.getKey().length()) + entry.getValue().estimate();
+    }
+    return size;
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.theta;
+
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
+
+import com.yahoo.memory.WritableMemory;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.UpdateSketch;
+
+@AggregationType(estimable = true)
+class SketchState extends State {
+
+  private UpdateSketch sketch_;
+
+  @Override
+  boolean isInitialized() {
+    return sketch_ != null;
+  }
+
+  @Override
+  void init(final int nominalEntries, final float samplingProbability, final long seed) {
+    super.init(nominalEntries, samplingProbability, seed);
+    sketch_ = UpdateSketch.builder().setNominalEntries(nominalEntries).setP(samplingProbability)
+        .setSeed(seed).build();
+  }
+
+  @Override
+  void update(final Object value, final KeyUpdater keyUpdater) {
+    keyUpdater.update(sketch_, value);
+  }
+
+  @Override
+  Sketch getResult(final WritableMemory dstMem) {
+    if (sketch_ == null) { return null; }
+    // trim to nominal entries to match the result of a union
+    return sketch_.rebuild().compact(true, dstMem);
+  }
+
+  @Override
+  void reset() {
+    sketch_ = null;
+  }
+
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    if (sketch_ == null) { return model.object(); }
+    return model.object() * 2 + model.lengthForByteArrayOfSize(sketch_.getCurrentBytes(false));
+  }
+
+}
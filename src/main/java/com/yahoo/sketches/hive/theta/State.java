@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.theta;
+
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AbstractAggregationBuffer;
+
+import com.yahoo.memory.WritableMemory;
+import com.yahoo.sketches.Util;
+import com.yahoo.sketches.theta.Sketch;
+
+abstract class State extends AbstractAggregationBuffer {
+
+  static final float DEFAULT_SAMPLING_PROBABILITY = 1;
+
+  private int nominalEntries_;
+  private long seed_;
+
+  void init(final int nominalEntries, final float samplingProbability, final long seed) {
+    nominalEntries_ = nominalEntries;
+    seed_ = seed;
+  }
+
+  int getNominalEntries() {
+    return nominalEntries_;
+  }
+
+  long getSeed() {
+    return seed_;
+  }
+
+  // the result is trimmed to the nominal entries rounded up to a power of 2
+  int getMaxResultBytes() {
+    return Sketch.getMaxCompactSketchBytes(Util.ceilingPowerOf2(nominalEntries_));
+  }
+
+  abstract boolean isInitialized();
+
+  abstract void update(final Object value, final KeyUpdater keyUpdater);
+
+  // writes the result as an ordered compact sketch into the given memory
+  abstract Sketch getResult(final WritableMemory dstMem);
+
+  abstract void reset();
+
+  // called once the final result of the buffer has been serialized,
+  // after which Hive either resets the buffer or drops it without a reset
+  void release() {}
+
+}
@@ -5,17 +5,32 @@
 
 package com.yahoo.sketches.hive.theta;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.BoundarySpec;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.Direction;
+import org.apache.hadoop.hive.ql.plan.ptf.BoundaryDef;
+import org.apache.hadoop.hive.ql.plan.ptf.CurrentRowDef;
+import org.apache.hadoop.hive.ql.plan.ptf.RangeBoundaryDef;
+import org.apache.hadoop.hive.ql.plan.ptf.WindowFrameDef;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFStreamingEvaluator;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.memory.WritableMemory;
+import com.yahoo.sketches.hive.Counters;
+import com.yahoo.sketches.hive.HiveUtil;
+import com.yahoo.sketches.hive.OffHeapMemory;
+import com.yahoo.sketches.hive.ParallelMerge;
 import com.yahoo.sketches.theta.Sketch;
 
 /**
@@ -35,6 +50,44 @@ public abstract class UnionEvaluator extends GenericUDAFEvaluator {
   // FOR PARTIAL2 and FINAL modes: ObjectInspectors for partial aggregations
   protected transient StructObjectInspector intermediateObjectInspector;
 
+  // output objects are reused across groups,
+  // since Hive serializes each output before asking for the next one
+  private transient IntWritable nominalEntriesOutput;
+  private transient LongWritable seedOutput;
+  private transient BytesWritable sketchOutput;
+  private transient List<Object> intermediateOutput;
+
+  protected transient Counters counters = Counters.DISABLED;
+
+  // null unless unions are allocated off-heap
+  protected transient OffHeapMemory offHeapMemory;
+
+  // null unless partials are merged in parallel
+  private transient ParallelMerge parallelMerge;
+  private transient boolean mergesPartials;
+
+  @Override
+  public void configure(final MapredContext context) {
+    counters = Counters.getInstance(context, "Sketches: theta");
+    offHeapMemory = OffHeapMemory.getInstance(context);
+    parallelMerge = ParallelMerge.getInstance(context);
+  }
+
+  @Override
+  public ObjectInspector init(final Mode mode, final ObjectInspector[] parameters) throws HiveException {
+    nominalEntriesOutput = new IntWritable();
+    seedOutput = new LongWritable();
+    sketchOutput = new BytesWritable();
+    intermediateOutput = Arrays.<Object>asList(nominalEntriesOutput, seedOutput, sketchOutput);
+    mergesPartials = mode == Mode.PARTIAL2 || mode == Mode.FINAL;
+    return super.init(mode, parameters);
+  }
+
+  // partials are merged in parallel only in the modes where the partials of many tasks meet
+  protected ParallelMerge getParallelMerge() {
+    return mergesPartials ? parallelMerge : null;
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -47,16 +100,16 @@ public abstract class UnionEvaluator extends GenericUDAFEvaluator {
   @Override
   public Object terminatePartial(final @SuppressWarnings("deprecation") AggregationBuffer agg)
       throws HiveException {
-    final UnionState state = (UnionState) agg;
-    final Sketch intermediate = state.getResult();
-    if (intermediate == null) { return null; }
-    final byte[] bytes = intermediate.toByteArray();
+    final State state = (State) agg;
+    if (!state.isInitialized()) { return null; }
+    final long startNanos = counters.start();
+    serializeResult(state);
+    counters.partialTerminated(startNanos, sketchOutput.getLength());
     // sampling probability is not relevant for merging
-    return Arrays.asList(
-      new IntWritable(state.getNominalEntries()),
-      new LongWritable(state.getSeed()),
-      new BytesWritable(bytes)
-    );
+    nominalEntriesOutput.set(state.getNominalEntries());
+    seedOutput.set(state.getSeed());
+    state.release();
+    return intermediateOutput;
   }
 
   /*
@@ -71,6 +124,7 @@ public abstract class UnionEvaluator extends GenericUDAFEvaluator {
   public void merge(final @SuppressWarnings("deprecation") AggregationBuffer agg,
       final Object partial) throws HiveException {
     if (partial == null) { return; }
+    final long startNanos = counters.start();
     final UnionState state = (UnionState) agg;
     if (!state.isInitialized()) {
       initializeState(state, partial);
@@ -78,7 +132,8 @@ public abstract class UnionEvaluator extends GenericUDAFEvaluator {
     final BytesWritable serializedSketch =
         (BytesWritable) intermediateObjectInspector.getStructFieldData(
             partial, intermediateObjectInspector.getStructFieldRef(SKETCH_FIELD));
-    state.update(Memory.wrap(serializedSketch.getBytes()));
+    state.update(HiveUtil.wrap(serializedSketch));
+    counters.partialMerged(startNanos, serializedSketch.getLength());
   }
 
   private void initializeState(final UnionState state, final Object partial) {
@@ -100,10 +155,21 @@ public abstract class UnionEvaluator extends GenericUDAFEvaluator {
   @Override
   public Object terminate(final @SuppressWarnings("deprecation") AggregationBuffer agg)
       throws HiveException {
-    final UnionState state = (UnionState) agg;
-    final Sketch result = state.getResult();
-    if (result == null) { return null; }
-    return new BytesWritable(result.toByteArray());
+    final State state = (State) agg;
+    if (!state.isInitialized()) { return null; }
+    final long startNanos = counters.start();
+    final BytesWritable result = serializeResult(state);
+    state.release();
+    counters.terminated(startNanos);
+    return result;
+  }
+
+  // writes the result straight into the backing array of the reusable output
+  private BytesWritable serializeResult(final State state) {
+    sketchOutput.setSize(state.getMaxResultBytes());
+    final Sketch result = state.getResult(WritableMemory.wrap(sketchOutput.getBytes()));
+    sketchOutput.setSize(result.getCurrentBytes(true));
+    return sketchOutput;
   }
 
   /*
@@ -116,10 +182,75 @@ public abstract class UnionEvaluator extends GenericUDAFEvaluator {
   @Override
   public void reset(final @SuppressWarnings("deprecation") AggregationBuffer agg)
       throws HiveException {
-    final UnionState state = (UnionState) agg;
+    final State state = (State) agg;
     state.reset();
   }
 
+  /**
+   * Cumulative frames (ROWS BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW) are computed
+   * incrementally in streaming mode: each row is added to the union of the partition,
+   * and the current result is returned for that row.
+   * Other frames are left to Hive to compute from the buffered partition,
+   * since rows can't be removed from a sketch.
+   */
+  @Override
+  public GenericUDAFEvaluator getWindowingEvaluator(final WindowFrameDef frame) {
+    final BoundaryDef start = frame.getStart();
+    if (start instanceof RangeBoundaryDef && start.getDirection() == Direction.PRECEDING
+        && start.getAmt() == BoundarySpec.UNBOUNDED_AMOUNT && frame.getEnd() instanceof CurrentRowDef) {
+      return new CumulativeEvaluator();
+    }
+    return null;
+  }
+
+  // shares the buffers and the already initialized state of the wrapped evaluator
+  private final class CumulativeEvaluator extends GenericUDAFStreamingEvaluator<Object> {
+
+    CumulativeEvaluator() {
+      super(UnionEvaluator.this, BoundarySpec.UNBOUNDED_AMOUNT, 0);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public AggregationBuffer getNewAggregationBuffer() throws HiveException {
+      return wrappedEval.getNewAggregationBuffer();
+    }
+
+    @Override
+    public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer agg,
+        final Object[] parameters) throws HiveException {
+      wrappedEval.iterate(agg, parameters);
+    }
+
+    @Override
+    public Object terminate(final @SuppressWarnings("deprecation") AggregationBuffer agg)
+        throws HiveException {
+      return wrappedEval.terminate(agg);
+    }
+
+    @Override
+    public void reset(final @SuppressWarnings("deprecation") AggregationBuffer agg)
+        throws HiveException {
+      wrappedEval.reset(agg);
+    }
+
+    // each row gets its own copy, since Hive holds on to the results of several rows
+    @Override
+    public Object getNextResult(final @SuppressWarnings("deprecation") AggregationBuffer agg)
+        throws HiveException {
+      final State state = (State) agg;
+      if (!state.isInitialized()) { return NULL_RESULT; }
+      return new BytesWritable(serializeResult(state).copyBytes());
+    }
+
+    // every row got its result in getNextResult
+    @Override
+    public int getRowsRemainingAfterTerminate() throws HiveException {
+      return 0;
+    }
+
+  }
+
   /**
    *
    * @see org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator#getNewAggregationBuffer()
@@ -127,7 +258,15 @@ public abstract class UnionEvaluator extends GenericUDAFEvaluator {
   @SuppressWarnings("deprecation")
   @Override
   public AggregationBuffer getNewAggregationBuffer() throws HiveException {
-    return new UnionState();
+    return new UnionState(offHeapMemory, getParallelMerge());
+  }
+
+  // frees off-heap memory of buffers that were not reset
+  @Override
+  public void close() throws IOException {
+    if (offHeapMemory != null) {
+      offHeapMemory.freeAll();
+    }
   }
 
 }
@@ -25,8 +25,9 @@ import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.Pr
 import org.apache.hadoop.hive.serde2.objectinspector.StandardStructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.HiveUtil;
 
 /**
  * Hive UDAF to compute union of theta Sketch objects
@@ -43,6 +44,8 @@ import com.yahoo.memory.Memory;
     + "in the estimation of uniques with 95% confidence. "
     + "The default size is defined in the sketches-core library and at the time of this writing "
     + "was 4096 (about 3% error). "
+    + "Sketches larger than the size are re-sampled down to it as they are merged, "
+    + "so the partial results shuffled between the map and reduce phases are within the size. "
     + "The seed is optional, and using it is not recommended unless you really know why you need it")
 public class UnionSketchUDAF extends AbstractGenericUDAFResolver {
 
@@ -142,14 +145,20 @@ public class UnionSketchUDAF extends AbstractGenericUDAFResolver {
     @Override
     public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer agg,
         final Object[] parameters) throws HiveException {
-      if (parameters[0] == null) { return; }
+      if (parameters[0] == null) {
+        counters.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters.start();
       final UnionState state = (UnionState) agg;
       if (!state.isInitialized()) {
         initializeState(state, parameters);
       }
-      final byte[] serializedSketch = (byte[]) inputObjectInspector.getPrimitiveJavaObject(parameters[0]);
+      final BytesWritable serializedSketch =
+          (BytesWritable) inputObjectInspector.getPrimitiveWritableObject(parameters[0]);
       if (serializedSketch == null) { return; }
-      state.update(Memory.wrap(serializedSketch));
+      state.update(HiveUtil.wrap(serializedSketch));
+      counters.rowIngested(startNanos);
     }
 
     private void initializeState(final UnionState state, final Object[] parameters) {
@@ -8,15 +8,20 @@ package com.yahoo.sketches.hive.theta;
 import static com.yahoo.sketches.Util.DEFAULT_NOMINAL_ENTRIES;
 import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.theta.SetOperation;
 import com.yahoo.sketches.theta.Union;
 
 /**
  * Hive union sketch UDF.
+ * Any number of sketches can be given, either as arguments or as an array.
+ * They are merged into one union and the result is serialized once.
  */
 public class UnionSketchUDF extends UDF {
 
@@ -38,18 +43,7 @@ public class UnionSketchUDF extends UDF {
    */
   public BytesWritable evaluate(final BytesWritable firstSketch, final BytesWritable secondSketch,
       final int sketchSize, final long seed) {
-
-    final Union union = SetOperation.builder().setSeed(seed).setNominalEntries(sketchSize).buildUnion();
-
-    if ((firstSketch != null) && (firstSketch.getLength() >= EMPTY_SKETCH_SIZE_BYTES)) {
-      union.update(Memory.wrap(firstSketch.getBytes()));
-    }
-
-    if ((secondSketch != null) && (secondSketch.getLength() >= EMPTY_SKETCH_SIZE_BYTES)) {
-      union.update(Memory.wrap(secondSketch.getBytes()));
-    }
-
-    return new BytesWritable(union.getResult().toByteArray());
+    return evaluate(Arrays.asList(firstSketch, secondSketch), sketchSize, seed);
   }
 
   /**
@@ -71,17 +65,67 @@ public class UnionSketchUDF extends UDF {
   }
 
   /**
-   * Main logic called by hive if sketchSize is not passed in. Union two
-   * sketches of same or different column.
+   * Main logic called by hive if sketchSize is not passed in. Union any number
+   * of sketches of same or different column.
    *
-   * @param firstSketch
-   *          first sketch to be unioned.
-   * @param secondSketch
-   *          second sketch to be unioned.
+   * @param sketches
+   *          sketches to be unioned.
+   * @return resulting sketch of union.
+   */
+  public BytesWritable evaluate(final BytesWritable... sketches) {
+    return evaluate(Arrays.asList(sketches), DEFAULT_NOMINAL_ENTRIES, DEFAULT_UPDATE_SEED);
+  }
+
+  /**
+   * Main logic called by hive if an array of sketches is passed in.
+   * Union all sketches of the array.
+   *
+   * @param sketches
+   *          array of sketches to be unioned.
+   * @param sketchSize
+   *          final output unioned sketch size.
+   *          This must be a power of 2 and larger than 16.
+   * @param seed using the seed is not recommended unless you really know why you need it.
+   * @return resulting sketch of union.
+   */
+  public BytesWritable evaluate(final List<BytesWritable> sketches, final int sketchSize, final long seed) {
+
+    final Union union = SetOperation.builder().setSeed(seed).setNominalEntries(sketchSize).buildUnion();
+
+    if (sketches != null) {
+      for (final BytesWritable sketch: sketches) {
+        if ((sketch != null) && (sketch.getLength() >= EMPTY_SKETCH_SIZE_BYTES)) {
+          union.update(HiveUtil.wrap(sketch));
+        }
+      }
+    }
+
+    return new BytesWritable(union.getResult().toByteArray());
+  }
+
+  /**
+   * Main logic called by hive if an array of sketches and sketchSize are passed in.
+   *
+   * @param sketches
+   *          array of sketches to be unioned.
+   * @param sketchSize
+   *          final output unioned sketch size.
+   *          This must be a power of 2 and larger than 16.
+   * @return resulting sketch of union.
+   */
+  public BytesWritable evaluate(final List<BytesWritable> sketches, final int sketchSize) {
+    return evaluate(sketches, sketchSize, DEFAULT_UPDATE_SEED);
+  }
+
+  /**
+   * Main logic called by hive if an array of sketches is passed in.
+   *
+   * @param sketches
+   *          array of sketches to be unioned.
    * @return resulting sketch of union.
    */
-  public BytesWritable evaluate(final BytesWritable firstSketch, final BytesWritable secondSketch) {
-    return evaluate(firstSketch, secondSketch, DEFAULT_NOMINAL_ENTRIES, DEFAULT_UPDATE_SEED);
+  public BytesWritable evaluate(final List<BytesWritable> sketches) {
+    return evaluate(sketches, DEFAULT_NOMINAL_ENTRIES, DEFAULT_UPDATE_SEED);
   }
 
 }
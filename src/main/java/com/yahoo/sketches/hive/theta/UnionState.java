@@ -5,95 +5,210 @@
 
 package com.yahoo.sketches.hive.theta;
 
-import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AbstractAggregationBuffer;
-import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
 
 import com.yahoo.memory.Memory;
+import com.yahoo.memory.WritableDirectHandle;
+import com.yahoo.memory.WritableMemory;
+import com.yahoo.sketches.ResizeFactor;
+import com.yahoo.sketches.Util;
+import com.yahoo.sketches.hive.OffHeapMemory;
+import com.yahoo.sketches.hive.ParallelMerge;
+import com.yahoo.sketches.theta.CompactSketch;
 import com.yahoo.sketches.theta.SetOperation;
+import com.yahoo.sketches.theta.SetOperationBuilder;
 import com.yahoo.sketches.theta.Sketch;
 import com.yahoo.sketches.theta.Union;
 
-class UnionState extends AbstractAggregationBuffer {
+@AggregationType(estimable = true)
+class UnionState extends State {
+
+  // preamble of a serialized sketch: the number of preamble longs in the low bits of the first byte,
+  // followed by the number of retained hashes unless the sketch is empty
+  private static final int PREAMBLE_LONGS_MASK = 0x3F;
+  private static final int RETAINED_ENTRIES_INT = 8;
+
+  // null unless unions are allocated off-heap
+  private final OffHeapMemory offHeapMemory_;
+  private WritableDirectHandle handle_;
 
-  static final float DEFAULT_SAMPLING_PROBABILITY = 1;
+  // null unless partials are merged in parallel
+  private final ParallelMerge parallelMerge_;
+  private int numPartials_;
+  private List<byte[]> queuedPartials_;
+  private long queuedBytes_;
 
-  private int nominalEntries_;
-  private long seed_;
   private Union union_;
 
-  public boolean isInitialized() {
+  // upper bound on the number of hashes retained by the union, used to estimate its size
+  private long numEntries_;
+
+  UnionState() {
+    this(null, null);
+  }
+
+  UnionState(final OffHeapMemory offHeapMemory, final ParallelMerge parallelMerge) {
+    offHeapMemory_ = offHeapMemory;
+    parallelMerge_ = parallelMerge;
+  }
+
+  @Override
+  boolean isInitialized() {
     return union_ != null;
   }
 
   // sampling probability is not relevant for merging
-  public void init(final int nominalEntries, final long seed) {
-    init(nominalEntries, UnionState.DEFAULT_SAMPLING_PROBABILITY, seed);
+  void init(final int nominalEntries, final long seed) {
+    init(nominalEntries, DEFAULT_SAMPLING_PROBABILITY, seed);
   }
 
-  public void init(final int nominalEntries, final float samplingProbability, final long seed) {
-    this.nominalEntries_ = nominalEntries;
-    this.seed_ = seed;
-    union_ = SetOperation.builder().setNominalEntries(nominalEntries).setP(samplingProbability)
-        .setSeed(seed).buildUnion();
+  @Override
+  void init(final int nominalEntries, final float samplingProbability, final long seed) {
+    super.init(nominalEntries, samplingProbability, seed);
+    final SetOperationBuilder builder =
+        SetOperation.builder().setNominalEntries(nominalEntries).setP(samplingProbability).setSeed(seed);
+    if (offHeapMemory_ == null) {
+      union_ = builder.buildUnion();
+    } else {
+      freeMemory();
+      handle_ = offHeapMemory_.allocate(SetOperation.getMaxUnionBytes(nominalEntries));
+      union_ = builder.buildUnion(handle_.get());
+    }
+    numEntries_ = 0;
+    numPartials_ = 0;
+    clearQueue();
   }
 
-  public int getNominalEntries() {
-    return nominalEntries_;
+  void update(final Memory mem) {
+    if (parallelMerge_ != null && ++numPartials_ > ParallelMerge.THRESHOLD) {
+      // the memory may be reused by the caller, so the partial is copied
+      final byte[] partial = new byte[(int) mem.getCapacity()];
+      mem.getByteArray(0, partial, 0, partial.length);
+      queuedPartials_.add(partial);
+      queuedBytes_ += partial.length;
+      if (queuedPartials_.size() >= ParallelMerge.BATCH_SIZE) { mergeQueue(); }
+      return;
+    }
+    // ordered compact sketches are read straight from memory, up to the theta of the union
+    union_.update(mem);
+    numEntries_ += getRetainedEntries(mem);
   }
 
-  public long getSeed() {
-    return seed_;
+  // read from the preamble, since wrapping every incoming sketch again just for its size
+  // costs as much as the update for small sketches
+  private static int getRetainedEntries(final Memory mem) {
+    if ((mem.getByte(0) & PREAMBLE_LONGS_MASK) < 2) { return 0; }
+    return mem.getInt(RETAINED_ENTRIES_INT);
   }
 
-  public void update(final Memory mem) {
-    union_.update(mem);
+  private void mergeQueue() {
+    if (queuedPartials_ == null || queuedPartials_.isEmpty()) { return; }
+    final Sketch merged =
+        parallelMerge_.merge(queuedPartials_, new UnionMerger(getNominalEntries(), getSeed()));
+    union_.update(merged);
+    numEntries_ += merged.getRetainedEntries(true);
+    clearQueue();
   }
 
-  public void update(final Object value, final PrimitiveObjectInspector objectInspector) {
-    switch (objectInspector.getPrimitiveCategory()) {
-    case BINARY:
-      union_.update(PrimitiveObjectInspectorUtils.getBinary(value, objectInspector).getBytes());
-      return;
-    case BYTE:
-      union_.update(PrimitiveObjectInspectorUtils.getByte(value, objectInspector));
-      return;
-    case DOUBLE:
-      union_.update(PrimitiveObjectInspectorUtils.getDouble(value, objectInspector));
-      return;
-    case FLOAT:
-      union_.update(PrimitiveObjectInspectorUtils.getFloat(value, objectInspector));
-      return;
-    case INT:
-      union_.update(PrimitiveObjectInspectorUtils.getInt(value, objectInspector));
-      return;
-    case LONG:
-      union_.update(PrimitiveObjectInspectorUtils.getLong(value, objectInspector));
-      return;
-    case STRING:
-      union_.update(PrimitiveObjectInspectorUtils.getString(value, objectInspector));
-      return;
-    case CHAR:
-      union_.update(PrimitiveObjectInspectorUtils.getHiveChar(value, objectInspector).getValue());
-      return;
-    case VARCHAR:
-      union_.update(PrimitiveObjectInspectorUtils.getHiveVarchar(value, objectInspector).getValue());
-      return;
-    default:
-      throw new IllegalArgumentException(
-        "Unrecongnized input data type " + value.getClass().getSimpleName() + " category "
-        + objectInspector.getPrimitiveCategory() + ", please use data of the following types: "
-        + "byte, double, float, int, long, char, varchar or string.");
-    }
+  private void clearQueue() {
+    if (parallelMerge_ == null) { return; }
+    queuedPartials_ = new ArrayList<>();
+    queuedBytes_ = 0;
   }
 
-  public Sketch getResult() {
+  @Override
+  void update(final Object value, final KeyUpdater keyUpdater) {
+    numEntries_++;
+    keyUpdater.update(union_, value);
+  }
+
+  @Override
+  Sketch getResult(final WritableMemory dstMem) {
     if (union_ == null) { return null; }
-    return union_.getResult();
+    mergeQueue();
+    return union_.getResult(true, dstMem);
   }
 
-  public void reset() {
+  @Override
+  void reset() {
     union_ = null;
+    numPartials_ = 0;
+    queuedPartials_ = null;
+    queuedBytes_ = 0;
+    freeMemory();
+  }
+
+  // an off-heap union is freed right away instead of when the task closes
+  @Override
+  void release() {
+    if (handle_ != null) { reset(); }
+  }
+
+  private void freeMemory() {
+    if (handle_ == null) { return; }
+    offHeapMemory_.free(handle_);
+    handle_ = null;
+  }
+
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    if (union_ == null) { return model.object(); }
+    // direct memory of an off-heap union is counted as well, so that Hive flushes
+    // a hash aggregation before the direct memory of its buffers runs out
+    final int unionBytes = handle_ != null ? model.object() + (int) handle_.get().getCapacity()
+        : model.lengthForLongArrayOfSize(getHashTableCapacity(getNominalEntries(), numEntries_));
+    return model.object() * 2 + unionBytes + (int) queuedBytes_;
+  }
+
+  // follows the growth of the hash table of the union:
+  // starts small, grows by the default resize factor up to twice the nominal entries
+  static int getHashTableCapacity(final int nominalEntries, final long numEntries) {
+    final int lgMaxCapacity = Integer.numberOfTrailingZeros(Util.ceilingPowerOf2(nominalEntries)) + 1;
+    int lgCapacity = Util.startingSubMultiple(lgMaxCapacity, ResizeFactor.X8, Util.MIN_LG_ARR_LONGS);
+    while (lgCapacity < lgMaxCapacity && numEntries > (1L << lgCapacity) * Util.RESIZE_THRESHOLD) {
+      lgCapacity = Math.min(lgCapacity + ResizeFactor.X8.lg(), lgMaxCapacity);
+    }
+    return 1 << lgCapacity;
+  }
+
+  // a union is commutative and associative, so the result is the same set of retained hashes
+  // as merging the partials one after another
+  private static final class UnionMerger implements ParallelMerge.Merger<CompactSketch> {
+
+    private final int nominalEntries_;
+    private final long seed_;
+
+    UnionMerger(final int nominalEntries, final long seed) {
+      nominalEntries_ = nominalEntries;
+      seed_ = seed;
+    }
+
+    @Override
+    public CompactSketch merge(final List<byte[]> partials) {
+      final Union union = buildUnion();
+      for (final byte[] partial: partials) {
+        union.update(Memory.wrap(partial));
+      }
+      return union.getResult();
+    }
+
+    @Override
+    public CompactSketch merge(final CompactSketch first, final CompactSketch second) {
+      final Union union = buildUnion();
+      union.update(first);
+      union.update(second);
+      return union.getResult();
+    }
+
+    private Union buildUnion() {
+      return SetOperation.builder().setNominalEntries(nominalEntries_).setSeed(seed_).buildUnion();
+    }
+
   }
 
 }
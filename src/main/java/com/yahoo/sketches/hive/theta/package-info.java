@@ -6,6 +6,27 @@
 /**
  * Hive UDFs and UDAFs for Theta sketch.
  *
+ * <p>Setting sketches.counters.enabled to true publishes Hadoop counters for the UDAFs
+ * in this package under the group "Sketches: theta": rows ingested, null rows skipped,
+ * partials merged, bytes serialized and deserialized, and nanoseconds spent in each phase.
+ *
+ * <p>Setting sketches.offheap.enabled to true allocates the unions used for merging
+ * in direct memory, outside of the Java heap. The memory is freed once the result of a buffer
+ * is serialized or the buffer is reset, and is counted in the size of the buffer reported to Hive.
+ *
+ * <p>Setting sketches.merge.parallelism to more than 1 merges partial sketches in FINAL and
+ * PARTIAL2 modes of groups with more than 64 partials in batches, as a tree reduction on a pool
+ * of that many threads. The pool is shared by the JVM and keeps the size first configured in it.
+ * The result is the same union as merging them one by one.
+ *
+ * <p>The union UDAFs can be used as window functions. Cumulative windows
+ * (ROWS BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW) are computed incrementally as the rows stream by.
+ *
+ * <p>SetExpressionSketchUDF evaluates an expression such as (A | B) &amp; C - D over several sketches
+ * in one call. The expression is compiled once, and intermediate results are not serialized.
+ * EstimateWithBoundsSketchUDF returns the estimate, bounds, retained entries and theta of a sketch
+ * in one struct. DownsampleSketchUDF re-samples a sketch to a smaller size without the original data.
+ *
  * @author Will Lauer
  * @author Alexander Saydakov
  */
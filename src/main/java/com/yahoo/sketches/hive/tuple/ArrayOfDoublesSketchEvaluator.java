@@ -6,17 +6,21 @@
 package com.yahoo.sketches.hive.tuple;
 
 import java.util.Arrays;
+import java.util.List;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.IntWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.Counters;
+import com.yahoo.sketches.hive.HiveUtil;
+import com.yahoo.sketches.hive.ParallelMerge;
 import com.yahoo.sketches.tuple.ArrayOfDoublesSketch;
-import com.yahoo.sketches.tuple.ArrayOfDoublesSketches;
 
 abstract class ArrayOfDoublesSketchEvaluator extends GenericUDAFEvaluator {
 
@@ -27,24 +31,62 @@ abstract class ArrayOfDoublesSketchEvaluator extends GenericUDAFEvaluator {
   protected PrimitiveObjectInspector nominalNumEntriesInspector_;
   protected StructObjectInspector intermediateInspector_;
 
+  // output objects are reused across groups,
+  // since Hive serializes each output before asking for the next one
+  private IntWritable nominalNumEntriesOutput_;
+  private IntWritable numValuesOutput_;
+  private Object[] intermediateOutput_;
+  private List<Object> intermediateOutputList_;
+
+  protected Counters counters_ = Counters.DISABLED;
+
+  // null unless partials are merged in parallel
+  private ParallelMerge parallelMerge_;
+  private boolean mergesPartials_;
+
+  @Override
+  public void configure(final MapredContext context) {
+    counters_ = Counters.getInstance(context, "Sketches: tuple");
+    parallelMerge_ = ParallelMerge.getInstance(context);
+  }
+
+  @Override
+  public ObjectInspector init(final Mode mode, final ObjectInspector[] parameters) throws HiveException {
+    nominalNumEntriesOutput_ = new IntWritable();
+    numValuesOutput_ = new IntWritable();
+    intermediateOutput_ = new Object[] {nominalNumEntriesOutput_, numValuesOutput_, null};
+    intermediateOutputList_ = Arrays.asList(intermediateOutput_);
+    mergesPartials_ = mode == Mode.PARTIAL2 || mode == Mode.FINAL;
+    return super.init(mode, parameters);
+  }
+
+  // partials are merged in parallel only in the modes where the partials of many tasks meet
+  protected ParallelMerge getParallelMerge() {
+    return mergesPartials_ ? parallelMerge_ : null;
+  }
+
   @Override
   public Object terminatePartial(final @SuppressWarnings("deprecation") AggregationBuffer buf)
       throws HiveException {
+    final long startNanos = counters_.start();
     final ArrayOfDoublesState state = (ArrayOfDoublesState) buf;
     final ArrayOfDoublesSketch intermediate = state.getResult();
     if (intermediate == null) { return null; }
-    final byte[] bytes = intermediate.toByteArray();
-    return Arrays.asList(
-      new IntWritable(state.getNominalNumEntries()),
-      new IntWritable(state.getNumValues()),
-      new BytesWritable(bytes)
-    );
+    nominalNumEntriesOutput_.set(state.getNominalNumEntries());
+    numValuesOutput_.set(state.getNumValues());
+    // the serialized size is not exposed by this version of the library,
+    // so the sketch cannot be written into a reusable buffer
+    final BytesWritable serializedSketch = new BytesWritable(intermediate.toByteArray());
+    intermediateOutput_[2] = serializedSketch;
+    counters_.partialTerminated(startNanos, serializedSketch.getLength());
+    return intermediateOutputList_;
   }
 
   @Override
   public void merge(final @SuppressWarnings("deprecation") AggregationBuffer buf, final Object data)
       throws HiveException {
     if (data == null) { return; }
+    final long startNanos = counters_.start();
     final ArrayOfDoublesUnionState state = (ArrayOfDoublesUnionState) buf;
     if (!state.isInitialized()) {
       initializeState(state, data);
@@ -52,7 +94,8 @@ abstract class ArrayOfDoublesSketchEvaluator extends GenericUDAFEvaluator {
     final BytesWritable serializedSketch =
         (BytesWritable) intermediateInspector_.getStructFieldData(
             data, intermediateInspector_.getStructFieldRef(SKETCH_FIELD));
-    state.update(ArrayOfDoublesSketches.wrapSketch(Memory.wrap(serializedSketch.getBytes())));
+    state.update(HiveUtil.wrap(serializedSketch));
+    counters_.partialMerged(startNanos, serializedSketch.getLength());
   }
 
   private void initializeState(final ArrayOfDoublesUnionState state, final Object data) {
@@ -66,11 +109,14 @@ abstract class ArrayOfDoublesSketchEvaluator extends GenericUDAFEvaluator {
   @Override
   public Object terminate(final @SuppressWarnings("deprecation") AggregationBuffer buf)
       throws HiveException {
+    final long startNanos = counters_.start();
     final ArrayOfDoublesState state = (ArrayOfDoublesState) buf;
     if (state == null) { return null; }
     final ArrayOfDoublesSketch result = state.getResult();
     if (result == null) { return null; }
-    return new BytesWritable(result.toByteArray());
+    final BytesWritable serializedSketch = new BytesWritable(result.toByteArray());
+    counters_.terminated(startNanos);
+    return serializedSketch;
   }
 
   @Override
@@ -5,6 +5,8 @@
 
 package com.yahoo.sketches.hive.tuple;
 
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
 
@@ -12,6 +14,7 @@ import com.yahoo.sketches.tuple.ArrayOfDoublesSketch;
 import com.yahoo.sketches.tuple.ArrayOfDoublesUpdatableSketch;
 import com.yahoo.sketches.tuple.ArrayOfDoublesUpdatableSketchBuilder;
 
+@AggregationType(estimable = true)
 class ArrayOfDoublesSketchState extends ArrayOfDoublesState {
 
   private ArrayOfDoublesUpdatableSketch sketch_;
@@ -26,39 +29,13 @@ class ArrayOfDoublesSketchState extends ArrayOfDoublesState {
         .setSamplingProbability(samplingProbability).setNumberOfValues(numValues).build();
   }
 
-  void update(final Object[] data, final PrimitiveObjectInspector keyInspector,
+  void update(final Object[] data, final KeyUpdater keyUpdater,
       final PrimitiveObjectInspector[] valuesInspectors) {
     final double[] values = new double[valuesInspectors.length];
     for (int i = 0; i < values.length; i++) {
       values[i] = PrimitiveObjectInspectorUtils.getDouble(data[i + 1], valuesInspectors[i]);
     }
-    switch (keyInspector.getPrimitiveCategory()) {
-    case BINARY:
-      sketch_.update(PrimitiveObjectInspectorUtils.getBinary(data[0], keyInspector).getBytes(), values);
-      return;
-    case BYTE:
-      sketch_.update(PrimitiveObjectInspectorUtils.getByte(data[0], keyInspector), values);
-      return;
-    case DOUBLE:
-      sketch_.update(PrimitiveObjectInspectorUtils.getDouble(data[0], keyInspector), values);
-      return;
-    case FLOAT:
-      sketch_.update(PrimitiveObjectInspectorUtils.getFloat(data[0], keyInspector), values);
-      return;
-    case INT:
-      sketch_.update(PrimitiveObjectInspectorUtils.getInt(data[0], keyInspector), values);
-      return;
-    case LONG:
-      sketch_.update(PrimitiveObjectInspectorUtils.getLong(data[0], keyInspector), values);
-      return;
-    case STRING:
-      sketch_.update(PrimitiveObjectInspectorUtils.getString(data[0], keyInspector), values);
-      return;
-    default:
-      throw new IllegalArgumentException(
-          "Unrecongnized input data type, please use data of type: "
-      + "byte, double, float, int, long, or string only.");
-    }
+    keyUpdater.update(sketch_, data[0], values);
   }
 
   @Override
@@ -75,4 +52,12 @@ class ArrayOfDoublesSketchState extends ArrayOfDoublesState {
     sketch_ = null;
   }
 
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    if (sketch_ == null) { return model.object(); }
+    return model.object() * 2 + getHashTableBytes(
+        Util.getHashTableCapacity(getNominalNumEntries(), sketch_.getRetainedEntries()));
+  }
+
 }
@@ -14,7 +14,7 @@ import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDF;
 import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.tuple.ArrayOfDoublesSketch;
 import com.yahoo.sketches.tuple.ArrayOfDoublesSketches;
 
@@ -36,9 +36,9 @@ public class ArrayOfDoublesSketchesTTestUDF extends UDF {
   public List<Double> evaluate(final BytesWritable serializedSketchA, final BytesWritable serializedSketchB) {
     if (serializedSketchA == null || serializedSketchB == null) { return null; }
     final ArrayOfDoublesSketch sketchA =
-        ArrayOfDoublesSketches.wrapSketch(Memory.wrap(serializedSketchA.getBytes()));
+        ArrayOfDoublesSketches.wrapSketch(HiveUtil.wrap(serializedSketchA));
     final ArrayOfDoublesSketch sketchB =
-        ArrayOfDoublesSketches.wrapSketch(Memory.wrap(serializedSketchB.getBytes()));
+        ArrayOfDoublesSketches.wrapSketch(HiveUtil.wrap(serializedSketchB));
 
     if (sketchA.getNumValues() != sketchB.getNumValues()) {
       throw new IllegalArgumentException("Both sketches must have the same number of values");
@@ -6,6 +6,7 @@
 package com.yahoo.sketches.hive.tuple;
 
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AbstractAggregationBuffer;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
 
 import com.yahoo.sketches.tuple.ArrayOfDoublesSketch;
 
@@ -29,6 +30,12 @@ abstract class ArrayOfDoublesState extends AbstractAggregationBuffer {
 
   abstract ArrayOfDoublesSketch getResult();
 
+  // keys and values are kept in two flat arrays
+  int getHashTableBytes(final int capacity) {
+    final JavaDataModel model = JavaDataModel.get();
+    return model.lengthForLongArrayOfSize(capacity) + model.lengthForDoubleArrayOfSize(capacity * numValues_);
+  }
+
   abstract void reset();
 
 }
@@ -5,14 +5,42 @@
 
 package com.yahoo.sketches.hive.tuple;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
+
+import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.ParallelMerge;
+import com.yahoo.sketches.tuple.ArrayOfDoublesCompactSketch;
 import com.yahoo.sketches.tuple.ArrayOfDoublesSetOperationBuilder;
 import com.yahoo.sketches.tuple.ArrayOfDoublesSketch;
+import com.yahoo.sketches.tuple.ArrayOfDoublesSketches;
 import com.yahoo.sketches.tuple.ArrayOfDoublesUnion;
 
+@AggregationType(estimable = true)
 class ArrayOfDoublesUnionState extends ArrayOfDoublesState {
 
+  // null unless partials are merged in parallel
+  private final ParallelMerge parallelMerge_;
+  private int numPartials_;
+  private List<byte[]> queuedPartials_;
+  private long queuedBytes_;
+
   private ArrayOfDoublesUnion union_;
 
+  // upper bound on the number of entries retained by the union, used to estimate its size
+  private long numEntries_;
+
+  ArrayOfDoublesUnionState() {
+    this(null);
+  }
+
+  ArrayOfDoublesUnionState(final ParallelMerge parallelMerge) {
+    parallelMerge_ = parallelMerge;
+  }
+
   boolean isInitialized() {
     return union_ != null;
   }
@@ -22,21 +50,101 @@ class ArrayOfDoublesUnionState extends ArrayOfDoublesState {
     super.init(nominalNumEntries, numValues);
     union_ = new ArrayOfDoublesSetOperationBuilder()
         .setNominalEntries(nominalNumEntries).setNumberOfValues(numValues).buildUnion();
+    numEntries_ = 0;
+    numPartials_ = 0;
+    clearQueue();
+  }
+
+  void update(final Memory serializedSketch) {
+    if (parallelMerge_ != null && ++numPartials_ > ParallelMerge.THRESHOLD) {
+      // the memory may be reused by the caller, so the partial is copied
+      final byte[] partial = new byte[(int) serializedSketch.getCapacity()];
+      serializedSketch.getByteArray(0, partial, 0, partial.length);
+      queuedPartials_.add(partial);
+      queuedBytes_ += partial.length;
+      if (queuedPartials_.size() >= ParallelMerge.BATCH_SIZE) { mergeQueue(); }
+      return;
+    }
+    update(ArrayOfDoublesSketches.wrapSketch(serializedSketch));
   }
 
-  void update(final ArrayOfDoublesSketch sketch) {
+  private void update(final ArrayOfDoublesSketch sketch) {
     union_.update(sketch);
+    numEntries_ += sketch.getRetainedEntries();
+  }
+
+  private void mergeQueue() {
+    if (queuedPartials_ == null || queuedPartials_.isEmpty()) { return; }
+    update(parallelMerge_.merge(queuedPartials_,
+        new UnionMerger(getNominalNumEntries(), getNumValues())));
+    clearQueue();
+  }
+
+  private void clearQueue() {
+    if (parallelMerge_ == null) { return; }
+    queuedPartials_ = new ArrayList<>();
+    queuedBytes_ = 0;
   }
 
   @Override
   ArrayOfDoublesSketch getResult() {
     if (union_ == null) { return null; }
+    mergeQueue();
     return union_.getResult();
   }
 
   @Override
   void reset() {
     union_ = null;
+    numPartials_ = 0;
+    queuedPartials_ = null;
+    queuedBytes_ = 0;
+  }
+
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    if (union_ == null) { return model.object(); }
+    return model.object() * 3 + (int) queuedBytes_
+        + getHashTableBytes(Util.getHashTableCapacity(getNominalNumEntries(), numEntries_));
+  }
+
+
+  // the values of a key are summed, so they may differ in the last bits
+  // from merging one by one because of the different order of additions
+  private static final class UnionMerger implements ParallelMerge.Merger<ArrayOfDoublesCompactSketch> {
+
+    private final int nominalNumEntries_;
+    private final int numValues_;
+
+    UnionMerger(final int nominalNumEntries, final int numValues) {
+      nominalNumEntries_ = nominalNumEntries;
+      numValues_ = numValues;
+    }
+
+    @Override
+    public ArrayOfDoublesCompactSketch merge(final List<byte[]> partials) {
+      final ArrayOfDoublesUnion union = buildUnion();
+      for (final byte[] partial: partials) {
+        union.update(ArrayOfDoublesSketches.wrapSketch(Memory.wrap(partial)));
+      }
+      return union.getResult();
+    }
+
+    @Override
+    public ArrayOfDoublesCompactSketch merge(final ArrayOfDoublesCompactSketch first,
+        final ArrayOfDoublesCompactSketch second) {
+      final ArrayOfDoublesUnion union = buildUnion();
+      union.update(first);
+      union.update(second);
+      return union.getResult();
+    }
+
+    private ArrayOfDoublesUnion buildUnion() {
+      return new ArrayOfDoublesSetOperationBuilder()
+          .setNominalEntries(nominalNumEntries_).setNumberOfValues(numValues_).buildUnion();
+    }
+
   }
 
 }
@@ -24,6 +24,8 @@ import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
 
+import com.yahoo.sketches.hive.HiveUtil;
+
 @Description(
   name = "DataToArrayOfDoublesSketch",
   value = "_FUNC_(key, double param 1, ..., double param N, nominal number of entries, sampling probability)",
@@ -81,20 +83,26 @@ public class DataToArrayOfDoublesSketchUDAF extends AbstractGenericUDAFResolver
 
     private static final float DEFAULT_SAMPLING_PROBABILITY = 1f;
 
-    private PrimitiveObjectInspector keyInspector_;
+    private KeyUpdater keyUpdater_;
     private PrimitiveObjectInspector[] valuesInspectors_;
     private PrimitiveObjectInspector samplingProbabilityInspector_;
 
     private int numValues_;
     private Mode mode_;
 
+    // FOR PARTIAL1 and COMPLETE modes: parameters of new sketches,
+    // resolved once in init if the arguments are constants with known values
+    private boolean parametersResolved_;
+    private int nominalNumEntries_;
+    private float samplingProbability_;
+
     @Override
     public ObjectInspector init(final Mode mode, final ObjectInspector[] parameters) throws HiveException {
       super.init(mode, parameters);
       mode_ = mode;
       if (mode == Mode.PARTIAL1 || mode == Mode.COMPLETE) {
         // input is original data
-        keyInspector_ = (PrimitiveObjectInspector) parameters[0];
+        keyUpdater_ = KeyUpdater.getInstance((PrimitiveObjectInspector) parameters[0]);
         numValues_ = 0;
         while (numValues_ + 1 < parameters.length) {
           if (((PrimitiveObjectInspector) parameters[numValues_ + 1]).getPrimitiveCategory()
@@ -113,6 +121,11 @@ public class DataToArrayOfDoublesSketchUDAF extends AbstractGenericUDAFResolver
         if (parameters.length > numValues_ + 2) {
           samplingProbabilityInspector_ = (PrimitiveObjectInspector) parameters[numValues_ + 2];
         }
+        final Object[] constantValues = HiveUtil.getConstantValues(parameters, numValues_ + 1);
+        parametersResolved_ = constantValues != null;
+        if (parametersResolved_) {
+          resolveParameters(constantValues);
+        }
       } else {
         // input for PARTIAL2 and FINAL is the output from PARTIAL1
         intermediateInspector_ = (StructObjectInspector) parameters[0];
@@ -136,26 +149,38 @@ public class DataToArrayOfDoublesSketchUDAF extends AbstractGenericUDAFResolver
     @Override
     public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer buf,
         final Object[] data) throws HiveException {
-      if (data[0] == null) { return; }
+      if (data[0] == null) {
+        counters_.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters_.start();
       final ArrayOfDoublesSketchState state = (ArrayOfDoublesSketchState) buf;
       if (!state.isInitialized()) {
         initializeState(state, data);
       }
-      state.update(data, keyInspector_, valuesInspectors_);
+      state.update(data, keyUpdater_, valuesInspectors_);
+      counters_.rowIngested(startNanos);
     }
 
     private void initializeState(final ArrayOfDoublesSketchState state, final Object[] data) {
-      int nominalNumEntries = DEFAULT_NOMINAL_ENTRIES;
+      if (!parametersResolved_) {
+        resolveParameters(data);
+      }
+      state.init(nominalNumEntries_, samplingProbability_, numValues_);
+    }
+
+    // reads the parameters from a row or from the values of the constant arguments
+    private void resolveParameters(final Object[] data) {
+      nominalNumEntries_ = DEFAULT_NOMINAL_ENTRIES;
       if (nominalNumEntriesInspector_ != null) {
-        nominalNumEntries =
+        nominalNumEntries_ =
             PrimitiveObjectInspectorUtils.getInt(data[numValues_ + 1], nominalNumEntriesInspector_);
       }
-      float samplingProbability = DEFAULT_SAMPLING_PROBABILITY;
+      samplingProbability_ = DEFAULT_SAMPLING_PROBABILITY;
       if (samplingProbabilityInspector_ != null) {
-        samplingProbability = PrimitiveObjectInspectorUtils.getFloat(data[numValues_ + 2],
+        samplingProbability_ = PrimitiveObjectInspectorUtils.getFloat(data[numValues_ + 2],
             samplingProbabilityInspector_);
       }
-      state.init(nominalNumEntries, samplingProbability, numValues_);
     }
 
     @SuppressWarnings("deprecation")
@@ -164,7 +189,7 @@ public class DataToArrayOfDoublesSketchUDAF extends AbstractGenericUDAFResolver
       if (mode_ == Mode.PARTIAL1 || mode_ == Mode.COMPLETE) {
         return new ArrayOfDoublesSketchState();
       }
-      return new ArrayOfDoublesUnionState();
+      return new ArrayOfDoublesUnionState(getParallelMerge());
     }
 
   }
@@ -6,6 +6,7 @@
 package com.yahoo.sketches.hive.tuple;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
@@ -84,6 +85,10 @@ public class DataToDoubleSummaryWithModeSketchUDAF extends DataToSketchUDAF {
     private static final String SUMMARY_MODE_FIELD = "summaryMode";
     private PrimitiveObjectInspector summaryModeInspector_;
     private DoubleSummary.Mode summaryMode_;
+    private IntWritable nominalNumEntriesOutput_;
+    private Text summaryModeOutput_;
+    private Object[] intermediateOutput_;
+    private List<Object> intermediateOutputList_;
 
     public DataToDoubleSummaryWithModeSketchEvaluator() {
       summaryMode_ = DoubleSummary.Mode.Sum;
@@ -98,6 +103,10 @@ public class DataToDoubleSummaryWithModeSketchUDAF extends DataToSketchUDAF {
     @Override
     public ObjectInspector init(final Mode mode, final ObjectInspector[] inspectors) throws HiveException {
       final ObjectInspector resultInspector = super.init(mode, inspectors);
+      nominalNumEntriesOutput_ = new IntWritable();
+      summaryModeOutput_ = new Text();
+      intermediateOutput_ = new Object[] {nominalNumEntriesOutput_, summaryModeOutput_, null};
+      intermediateOutputList_ = Arrays.asList(intermediateOutput_);
       if (mode == Mode.PARTIAL1 || mode == Mode.COMPLETE) {
         // input is original data
         if (inspectors.length > 4) {
@@ -137,16 +146,17 @@ public class DataToDoubleSummaryWithModeSketchUDAF extends DataToSketchUDAF {
     @Override
     public Object terminatePartial(final @SuppressWarnings("deprecation") AggregationBuffer buf)
         throws HiveException {
+      final long startNanos = counters_.start();
       @SuppressWarnings("unchecked")
       final State<DoubleSummary> state = (State<DoubleSummary>) buf;
       final Sketch<DoubleSummary> intermediate = state.getResult();
       if (intermediate == null) { return null; }
-      final byte[] bytes = intermediate.toByteArray();
-      return Arrays.asList(
-        new IntWritable(state.getNominalNumEntries()),
-        new Text(summaryMode_.toString()),
-        new BytesWritable(bytes)
-      );
+      nominalNumEntriesOutput_.set(state.getNominalNumEntries());
+      summaryModeOutput_.set(summaryMode_.toString());
+      final BytesWritable serializedSketch = new BytesWritable(intermediate.toByteArray());
+      intermediateOutput_[2] = serializedSketch;
+      counters_.partialTerminated(startNanos, serializedSketch.getLength());
+      return intermediateOutputList_;
     }
 
     @Override
@@ -83,7 +83,7 @@ public abstract class DataToSketchUDAF extends AbstractGenericUDAFResolver {
 
     private static final float DEFAULT_SAMPLING_PROBABILITY = 1f;
 
-    private PrimitiveObjectInspector keyInspector_;
+    private KeyUpdater keyUpdater_;
     private PrimitiveObjectInspector valueInspector_;
     private PrimitiveObjectInspector samplingProbabilityInspector_;
 
@@ -95,7 +95,7 @@ public abstract class DataToSketchUDAF extends AbstractGenericUDAFResolver {
       mode_ = mode;
       if (mode == Mode.PARTIAL1 || mode == Mode.COMPLETE) {
         // input is original data
-        keyInspector_ = (PrimitiveObjectInspector) inspectors[0];
+        keyUpdater_ = KeyUpdater.getInstance((PrimitiveObjectInspector) inspectors[0]);
         valueInspector_ = (PrimitiveObjectInspector) inspectors[1];
         if (inspectors.length > 2) {
           nominalNumEntriesInspector_ = (PrimitiveObjectInspector) inspectors[2];
@@ -125,13 +125,18 @@ public abstract class DataToSketchUDAF extends AbstractGenericUDAFResolver {
     @Override
     public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer buf, final Object[] data)
         throws HiveException {
-      if (data[0] == null) { return; }
+      if (data[0] == null) {
+        counters_.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters_.start();
       @SuppressWarnings("unchecked")
       final SketchState<U, S> state = (SketchState<U, S>) buf;
       if (!state.isInitialized()) {
         initializeState(state, data);
       }
-      state.update(data[0], keyInspector_, extractValue(data[1], valueInspector_));
+      state.update(data[0], keyUpdater_, extractValue(data[1], valueInspector_));
+      counters_.rowIngested(startNanos);
     }
 
     private void initializeState(final SketchState<U, S> state, final Object[] data) {
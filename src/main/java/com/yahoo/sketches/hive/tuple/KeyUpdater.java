@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.tuple;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.io.Text;
+
+import com.yahoo.sketches.tuple.ArrayOfDoublesUpdatableSketch;
+import com.yahoo.sketches.tuple.UpdatableSketch;
+
+/**
+ * Feeds keys of one primitive type into a sketch along with their values.
+ * The type of the key column is known once the evaluator is initialized,
+ * so the dispatch on the primitive category happens once per evaluator
+ * instead of once per row.
+ */
+abstract class KeyUpdater {
+
+  abstract <U> void update(UpdatableSketch<U, ?> sketch, Object data, U value);
+
+  abstract void update(ArrayOfDoublesUpdatableSketch sketch, Object data, double[] values);
+
+  static KeyUpdater getInstance(final PrimitiveObjectInspector inspector) {
+    switch (inspector.getPrimitiveCategory()) {
+    case BINARY:
+      return new KeyUpdater() {
+        @Override
+        <U> void update(final UpdatableSketch<U, ?> sketch, final Object data, final U value) {
+          sketch.update(PrimitiveObjectInspectorUtils.getBinary(data, inspector).getBytes(), value);
+        }
+
+        @Override
+        void update(final ArrayOfDoublesUpdatableSketch sketch, final Object data, final double[] values) {
+          sketch.update(PrimitiveObjectInspectorUtils.getBinary(data, inspector).getBytes(), values);
+        }
+      };
+    case BYTE:
+      return new KeyUpdater() {
+        @Override
+        <U> void update(final UpdatableSketch<U, ?> sketch, final Object data, final U value) {
+          sketch.update(PrimitiveObjectInspectorUtils.getByte(data, inspector), value);
+        }
+
+        @Override
+        void update(final ArrayOfDoublesUpdatableSketch sketch, final Object data, final double[] values) {
+          sketch.update(PrimitiveObjectInspectorUtils.getByte(data, inspector), values);
+        }
+      };
+    case DOUBLE:
+      return new KeyUpdater() {
+        @Override
+        <U> void update(final UpdatableSketch<U, ?> sketch, final Object data, final U value) {
+          sketch.update(PrimitiveObjectInspectorUtils.getDouble(data, inspector), value);
+        }
+
+        @Override
+        void update(final ArrayOfDoublesUpdatableSketch sketch, final Object data, final double[] values) {
+          sketch.update(PrimitiveObjectInspectorUtils.getDouble(data, inspector), values);
+        }
+      };
+    case FLOAT:
+      return new KeyUpdater() {
+        @Override
+        <U> void update(final UpdatableSketch<U, ?> sketch, final Object data, final U value) {
+          sketch.update(PrimitiveObjectInspectorUtils.getFloat(data, inspector), value);
+        }
+
+        @Override
+        void update(final ArrayOfDoublesUpdatableSketch sketch, final Object data, final double[] values) {
+          sketch.update(PrimitiveObjectInspectorUtils.getFloat(data, inspector), values);
+        }
+      };
+    case INT:
+      return new KeyUpdater() {
+        @Override
+        <U> void update(final UpdatableSketch<U, ?> sketch, final Object data, final U value) {
+          sketch.update(PrimitiveObjectInspectorUtils.getInt(data, inspector), value);
+        }
+
+        @Override
+        void update(final ArrayOfDoublesUpdatableSketch sketch, final Object data, final double[] values) {
+          sketch.update(PrimitiveObjectInspectorUtils.getInt(data, inspector), values);
+        }
+      };
+    case LONG:
+      return new KeyUpdater() {
+        @Override
+        <U> void update(final UpdatableSketch<U, ?> sketch, final Object data, final U value) {
+          sketch.update(PrimitiveObjectInspectorUtils.getLong(data, inspector), value);
+        }
+
+        @Override
+        void update(final ArrayOfDoublesUpdatableSketch sketch, final Object data, final double[] values) {
+          sketch.update(PrimitiveObjectInspectorUtils.getLong(data, inspector), values);
+        }
+      };
+    // strings are hashed straight from the UTF-8 bytes of the Text,
+    // which is exactly what update(String) does after encoding the string
+    case STRING:
+      return new KeyUpdater() {
+        @Override
+        <U> void update(final UpdatableSketch<U, ?> sketch, final Object data, final U value) {
+          sketch.update(
+              getBytes(((StringObjectInspector) inspector).getPrimitiveWritableObject(data)), value);
+        }
+
+        @Override
+        void update(final ArrayOfDoublesUpdatableSketch sketch, final Object data, final double[] values) {
+          sketch.update(
+              getBytes(((StringObjectInspector) inspector).getPrimitiveWritableObject(data)), values);
+        }
+      };
+    default:
+      throw new IllegalArgumentException(
+          "Unrecongnized input data type, please use data of type: "
+      + "byte, double, float, int, long, or string only.");
+    }
+  }
+
+  // the backing array of a Text may be longer than its content
+  static byte[] getBytes(final Text text) {
+    if (text.getLength() == text.getBytes().length) { return text.getBytes(); }
+    return Arrays.copyOf(text.getBytes(), text.getLength());
+  }
+
+}
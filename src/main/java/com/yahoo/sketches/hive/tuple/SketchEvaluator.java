@@ -6,15 +6,19 @@
 package com.yahoo.sketches.hive.tuple;
 
 import java.util.Arrays;
+import java.util.List;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.IntWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.Counters;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.tuple.Sketch;
 import com.yahoo.sketches.tuple.Sketches;
 import com.yahoo.sketches.tuple.Summary;
@@ -30,6 +34,19 @@ abstract class SketchEvaluator<S extends Summary> extends GenericUDAFEvaluator {
   protected PrimitiveObjectInspector nominalNumEntriesInspector_;
   protected StructObjectInspector intermediateInspector_;
 
+  // output objects are reused across groups,
+  // since Hive serializes each output before asking for the next one
+  private IntWritable nominalNumEntriesOutput_;
+  private Object[] intermediateOutput_;
+  private List<Object> intermediateOutputList_;
+
+  protected Counters counters_ = Counters.DISABLED;
+
+  @Override
+  public void configure(final MapredContext context) {
+    counters_ = Counters.getInstance(context, "Sketches: tuple");
+  }
+
   /**
    * Get an instance of SummaryDeserializer
    * @return SummaryDeserializer
@@ -54,24 +71,35 @@ abstract class SketchEvaluator<S extends Summary> extends GenericUDAFEvaluator {
    */
   protected abstract SummarySetOperations<S> getSummarySetOperationsForIterate(Object[] data);
 
+  @Override
+  public ObjectInspector init(final Mode mode, final ObjectInspector[] parameters) throws HiveException {
+    nominalNumEntriesOutput_ = new IntWritable();
+    intermediateOutput_ = new Object[] {nominalNumEntriesOutput_, null};
+    intermediateOutputList_ = Arrays.asList(intermediateOutput_);
+    return super.init(mode, parameters);
+  }
+
   @Override
   public Object terminatePartial(final @SuppressWarnings("deprecation") AggregationBuffer buf)
       throws HiveException {
+    final long startNanos = counters_.start();
     @SuppressWarnings("unchecked")
     final State<S> state = (State<S>) buf;
     final Sketch<S> intermediate = state.getResult();
     if (intermediate == null) { return null; }
-    final byte[] bytes = intermediate.toByteArray();
-    return Arrays.asList(
-      new IntWritable(state.getNominalNumEntries()),
-      new BytesWritable(bytes)
-    );
+    nominalNumEntriesOutput_.set(state.getNominalNumEntries());
+    // this version of the library can only serialize into a new array
+    final BytesWritable serializedSketch = new BytesWritable(intermediate.toByteArray());
+    intermediateOutput_[1] = serializedSketch;
+    counters_.partialTerminated(startNanos, serializedSketch.getLength());
+    return intermediateOutputList_;
   }
 
   @Override
   public void merge(final @SuppressWarnings("deprecation") AggregationBuffer buf, final Object data)
       throws HiveException {
     if (data == null) { return; }
+    final long startNanos = counters_.start();
     @SuppressWarnings("unchecked")
     final UnionState<S> state = (UnionState<S>) buf;
     if (!state.isInitialized()) {
@@ -80,7 +108,8 @@ abstract class SketchEvaluator<S extends Summary> extends GenericUDAFEvaluator {
     final BytesWritable serializedSketch =
         (BytesWritable) intermediateInspector_.getStructFieldData(
             data, intermediateInspector_.getStructFieldRef(SKETCH_FIELD));
-    state.update(Sketches.heapifySketch(Memory.wrap(serializedSketch.getBytes()), getSummaryDeserializer()));
+    state.update(Sketches.heapifySketch(HiveUtil.wrap(serializedSketch), getSummaryDeserializer()));
+    counters_.partialMerged(startNanos, serializedSketch.getLength());
   }
 
   protected void initializeState(final UnionState<S> state, final Object data) {
@@ -101,12 +130,15 @@ abstract class SketchEvaluator<S extends Summary> extends GenericUDAFEvaluator {
   @Override
   public Object terminate(final @SuppressWarnings("deprecation") AggregationBuffer buf)
       throws HiveException {
+    final long startNanos = counters_.start();
     @SuppressWarnings("unchecked")
     final State<S> state = (State<S>) buf;
     if (state == null) { return null; }
     final Sketch<S> result = state.getResult();
     if (result == null) { return null; }
-    return new BytesWritable(result.toByteArray());
+    final BytesWritable serializedSketch = new BytesWritable(result.toByteArray());
+    counters_.terminated(startNanos);
+    return serializedSketch;
   }
 
   @Override
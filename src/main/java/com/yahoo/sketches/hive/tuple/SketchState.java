@@ -5,8 +5,8 @@
 
 package com.yahoo.sketches.hive.tuple;
 
-import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
 
 import com.yahoo.sketches.tuple.Sketch;
 import com.yahoo.sketches.tuple.SummaryFactory;
@@ -14,6 +14,7 @@ import com.yahoo.sketches.tuple.UpdatableSketch;
 import com.yahoo.sketches.tuple.UpdatableSketchBuilder;
 import com.yahoo.sketches.tuple.UpdatableSummary;
 
+@AggregationType(estimable = true)
 class SketchState<U, S extends UpdatableSummary<U>> extends State<S> {
 
   private UpdatableSketch<U, S> sketch_;
@@ -29,34 +30,8 @@ class SketchState<U, S extends UpdatableSummary<U>> extends State<S> {
         .setSamplingProbability(samplingProbability).build();
   }
 
-  void update(final Object data, final PrimitiveObjectInspector keyObjectInspector, final U value) {
-    switch (keyObjectInspector.getPrimitiveCategory()) {
-    case BINARY:
-      sketch_.update(PrimitiveObjectInspectorUtils.getBinary(data, keyObjectInspector).getBytes(), value);
-      return;
-    case BYTE:
-      sketch_.update(PrimitiveObjectInspectorUtils.getByte(data, keyObjectInspector), value);
-      return;
-    case DOUBLE:
-      sketch_.update(PrimitiveObjectInspectorUtils.getDouble(data, keyObjectInspector), value);
-      return;
-    case FLOAT:
-      sketch_.update(PrimitiveObjectInspectorUtils.getFloat(data, keyObjectInspector), value);
-      return;
-    case INT:
-      sketch_.update(PrimitiveObjectInspectorUtils.getInt(data, keyObjectInspector), value);
-      return;
-    case LONG:
-      sketch_.update(PrimitiveObjectInspectorUtils.getLong(data, keyObjectInspector), value);
-      return;
-    case STRING:
-      sketch_.update(PrimitiveObjectInspectorUtils.getString(data, keyObjectInspector), value);
-      return;
-    default:
-      throw new IllegalArgumentException(
-          "Unrecongnized input data type, please use data of type: "
-      + "byte, double, float, int, long, or string only.");
-    }
+  void update(final Object data, final KeyUpdater keyUpdater, final U value) {
+    keyUpdater.update(sketch_, data, value);
   }
 
   @Override
@@ -73,4 +48,14 @@ class SketchState<U, S extends UpdatableSummary<U>> extends State<S> {
     sketch_ = null;
   }
 
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    if (sketch_ == null) { return model.object(); }
+    final int capacity = sketch_.getCurrentCapacity();
+    return model.object() * 2
+        + model.lengthForLongArrayOfSize(capacity) + model.lengthForObjectArrayOfSize(capacity)
+        + sketch_.getRetainedEntries() * getSummaryBytes();
+  }
+
 }
@@ -6,6 +6,7 @@
 package com.yahoo.sketches.hive.tuple;
 
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AbstractAggregationBuffer;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
 
 import com.yahoo.sketches.tuple.Sketch;
 import com.yahoo.sketches.tuple.Summary;
@@ -24,6 +25,12 @@ abstract class State<S extends Summary> extends AbstractAggregationBuffer {
 
   abstract Sketch<S> getResult();
 
+  // on-heap size of a summary with one value and a mode such as DoubleSummary
+  static int getSummaryBytes() {
+    final JavaDataModel model = JavaDataModel.get();
+    return model.object() + model.primitive2() + model.ref();
+  }
+
   abstract void reset();
 
 }
@@ -24,9 +24,10 @@ import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.Pr
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.BytesWritable;
+
+import com.yahoo.sketches.hive.HiveUtil;
 
-import com.yahoo.memory.Memory;
-import com.yahoo.sketches.tuple.ArrayOfDoublesSketches;
 
 @Description(
   name = "UnionArrayOfDoublesSketch",
@@ -109,14 +110,20 @@ public class UnionArrayOfDoublesSketchUDAF extends AbstractGenericUDAFResolver {
     @Override
     public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer buf, final Object[] data)
         throws HiveException {
-      if (data[0] == null) { return; }
+      if (data[0] == null) {
+        counters_.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters_.start();
       final ArrayOfDoublesUnionState state = (ArrayOfDoublesUnionState) buf;
       if (!state.isInitialized()) {
         initializeState(state, data);
       }
-      final byte[] serializedSketch = (byte[]) sketchInspector_.getPrimitiveJavaObject(data[0]);
+      final BytesWritable serializedSketch =
+          (BytesWritable) sketchInspector_.getPrimitiveWritableObject(data[0]);
       if (serializedSketch == null) { return; }
-      state.update(ArrayOfDoublesSketches.wrapSketch(Memory.wrap(serializedSketch)));
+      state.update(HiveUtil.wrap(serializedSketch));
+      counters_.rowIngested(startNanos);
     }
 
     private void initializeState(final ArrayOfDoublesUnionState state, final Object[] data) {
@@ -134,7 +141,7 @@ public class UnionArrayOfDoublesSketchUDAF extends AbstractGenericUDAFResolver {
     @SuppressWarnings("deprecation")
     @Override
     public AggregationBuffer getNewAggregationBuffer() throws HiveException {
-      return new ArrayOfDoublesUnionState();
+      return new ArrayOfDoublesUnionState(getParallelMerge());
     }
 
   }
@@ -22,8 +22,9 @@ import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.Pr
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.io.BytesWritable;
 
-import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.HiveUtil;
 import com.yahoo.sketches.tuple.Sketches;
 import com.yahoo.sketches.tuple.Summary;
 
@@ -103,15 +104,21 @@ public abstract class UnionSketchUDAF extends AbstractGenericUDAFResolver {
     @Override
     public void iterate(final @SuppressWarnings("deprecation") AggregationBuffer buf, final Object[] data)
         throws HiveException {
-      if (data[0] == null) { return; }
+      if (data[0] == null) {
+        counters_.nullRowSkipped();
+        return;
+      }
+      final long startNanos = counters_.start();
       @SuppressWarnings("unchecked")
       final UnionState<S> state = (UnionState<S>) buf;
       if (!state.isInitialized()) {
         initializeState(state, data);
       }
-      final byte[] serializedSketch = (byte[]) sketchInspector_.getPrimitiveJavaObject(data[0]);
+      final BytesWritable serializedSketch =
+          (BytesWritable) sketchInspector_.getPrimitiveWritableObject(data[0]);
       if (serializedSketch == null) { return; }
-      state.update(Sketches.heapifySketch(Memory.wrap(serializedSketch), getSummaryDeserializer()));
+      state.update(Sketches.heapifySketch(HiveUtil.wrap(serializedSketch), getSummaryDeserializer()));
+      counters_.rowIngested(startNanos);
     }
 
     protected void initializeState(final UnionState<S> state, final Object[] data) {
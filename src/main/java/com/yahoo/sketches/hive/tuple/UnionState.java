@@ -5,15 +5,22 @@
 
 package com.yahoo.sketches.hive.tuple;
 
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationType;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
+
 import com.yahoo.sketches.tuple.Sketch;
 import com.yahoo.sketches.tuple.Summary;
 import com.yahoo.sketches.tuple.SummarySetOperations;
 import com.yahoo.sketches.tuple.Union;
 
+@AggregationType(estimable = true)
 class UnionState<S extends Summary> extends State<S> {
 
   private Union<S> union_;
 
+  // upper bound on the number of entries retained by the union, used to estimate its size
+  private long numEntries_;
+
   boolean isInitialized() {
     return union_ != null;
   }
@@ -21,10 +28,12 @@ class UnionState<S extends Summary> extends State<S> {
   void init(final int nominalNumEntries, final SummarySetOperations<S> summarySetOps) {
     super.init(nominalNumEntries);
     union_ = new Union<S>(nominalNumEntries, summarySetOps);
+    numEntries_ = 0;
   }
 
   void update(final Sketch<S> sketch) {
     union_.update(sketch);
+    numEntries_ += sketch.getRetainedEntries();
   }
 
   @Override
@@ -38,4 +47,14 @@ class UnionState<S extends Summary> extends State<S> {
     union_ = null;
   }
 
+  @Override
+  public int estimate() {
+    final JavaDataModel model = JavaDataModel.get();
+    if (union_ == null) { return model.object(); }
+    final int capacity = Util.getHashTableCapacity(getNominalNumEntries(), numEntries_);
+    return model.object() * 3
+        + model.lengthForLongArrayOfSize(capacity) + model.lengthForObjectArrayOfSize(capacity)
+        + (int) Math.min(numEntries_, capacity) * getSummaryBytes();
+  }
+
 }
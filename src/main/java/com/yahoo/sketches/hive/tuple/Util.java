@@ -0,0 +1,26 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.tuple;
+
+import com.yahoo.sketches.ResizeFactor;
+
+final class Util {
+
+  // follows the growth of the hash table of a quick select sketch with the default resize factor:
+  // starts small and grows up to twice the nominal number of entries
+  static int getHashTableCapacity(final int nominalNumEntries, final long numEntries) {
+    final int lgMaxCapacity =
+        Integer.numberOfTrailingZeros(com.yahoo.sketches.Util.ceilingPowerOf2(nominalNumEntries)) + 1;
+    int lgCapacity = com.yahoo.sketches.Util.startingSubMultiple(lgMaxCapacity, ResizeFactor.X8,
+        com.yahoo.sketches.Util.MIN_LG_ARR_LONGS);
+    while (lgCapacity < lgMaxCapacity
+        && numEntries >= (1L << lgCapacity) * com.yahoo.sketches.Util.RESIZE_THRESHOLD) {
+      lgCapacity = Math.min(lgCapacity + ResizeFactor.X8.lg(), lgMaxCapacity);
+    }
+    return 1 << lgCapacity;
+  }
+
+}
@@ -22,6 +22,16 @@
  * <p>UDFs for ArrayOfDoublesSketch: DataToArrayOfDoublesSketchUDAF, UnionArrayOfDoublesSketchUDAF,
  * ArrayOfDoublesSketchToEstimatesUDF, ArrayOfDoublesSketchToValuesUDTF.
  *
+ * <p>Setting sketches.counters.enabled to true publishes Hadoop counters for the UDAFs
+ * in this package under the group "Sketches: tuple": rows ingested, null rows skipped,
+ * partials merged, bytes serialized and deserialized, and nanoseconds spent in each phase.
+ *
+ * <p>Setting sketches.merge.parallelism to more than 1 merges partial sketches in FINAL and
+ * PARTIAL2 modes of groups with more than 64 partials in batches, as a tree reduction on a pool
+ * of that many threads. The pool is shared by the JVM and keeps the size first configured in it.
+ * The result is the same union as merging them one by one.
+ * The sums of values may differ in the last bits because of a different order of additions.
+ *
  * @author Alexander Saydakov
  */
 package com.yahoo.sketches.hive.tuple;
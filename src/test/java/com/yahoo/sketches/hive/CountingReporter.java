@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.hive.ql.exec.MapredContext;
+import org.apache.hadoop.mapred.Counters.Counter;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.Reporter;
+import org.testng.Assert;
+
+/**
+ * Reporter that sums the counters published by the evaluators of one sketch family
+ */
+public class CountingReporter implements Reporter {
+
+  private final String group_;
+  private final Map<String, Long> counters_ = new HashMap<>();
+
+  public CountingReporter(final String group) {
+    group_ = group;
+  }
+
+  /**
+   * Initializes a context with counters enabled and this reporter set.
+   * The caller is expected to call MapredContext.close() at the end.
+   * @param isMap true for a map task
+   * @return context to configure the evaluator with
+   */
+  public MapredContext initContext(final boolean isMap) {
+    final JobConf conf = new JobConf();
+    conf.setBoolean(Counters.ENABLED_CONF, true);
+    final MapredContext context = MapredContext.init(isMap, conf);
+    context.setReporter(this);
+    return context;
+  }
+
+  /**
+   * @param name counter name
+   * @return sum of the published values, or null if it was never published
+   */
+  public Long get(final String name) {
+    return counters_.get(name);
+  }
+
+  @Override
+  public void incrCounter(final String group, final String counter, final long amount) {
+    Assert.assertEquals(group, group_);
+    final Long value = counters_.get(counter);
+    counters_.put(counter, value == null ? amount : value + amount);
+  }
+
+  @Override
+  public void incrCounter(final Enum<?> key, final long amount) { }
+
+  @Override
+  public Counter getCounter(final Enum<?> name) { return null; }
+
+  @Override
+  public Counter getCounter(final String group, final String name) { return null; }
+
+  @Override
+  public void progress() { }
+
+  @Override
+  public void setStatus(final String status) { }
+
+  @Override
+  public InputSplit getInputSplit() { return null; }
+
+  @Override
+  public float getProgress() { return 0; }
+
+}
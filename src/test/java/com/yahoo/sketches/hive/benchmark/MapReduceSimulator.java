@@ -0,0 +1,285 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.AbstractGenericUDAFResolver;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AbstractAggregationBuffer;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationBuffer;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.Mode;
+import org.apache.hadoop.hive.ql.udf.generic.SimpleGenericUDAFParameterInfo;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils.ObjectInspectorCopyOption;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Runs a UDAF the way a Hive job with map-side combining does, but in one process:
+ * N mappers (PARTIAL1) on a thread pool, combiners each merging a group of mapper
+ * partials (PARTIAL2), and a single reducer merging everything (FINAL).
+ *
+ * <p>Every phase gets its own evaluator instances initialized from the resolver,
+ * and partials are deep-copied between phases, so evaluators cannot share state
+ * the way they never could across tasks in a real job.
+ *
+ * <p>Reported per phase: wall time, payload bytes crossing the phase boundary
+ * (sum of the primitive field sizes, excluding serde framing), and the peak
+ * size of a single aggregation buffer as reported by estimate()
+ * (-1 for buffers that do not report their size).
+ */
+@SuppressWarnings("deprecation")
+public class MapReduceSimulator {
+
+  private final AbstractGenericUDAFResolver resolver_;
+  private final ObjectInspector[] inputInspectors_;
+  private final int numMappers_;
+  private final int combinerFanIn_;
+  private final int numThreads_;
+
+  /**
+   * @param resolver resolver of the UDAF under test
+   * @param inputInspectors inspectors of the original input columns
+   * @param numMappers number of simulated mappers
+   * @param combinerFanIn number of mapper partials merged by one combiner (PARTIAL2),
+   * 1 means no combining
+   * @param numThreads size of the thread pool running mappers and combiners
+   */
+  public MapReduceSimulator(final AbstractGenericUDAFResolver resolver, final ObjectInspector[] inputInspectors,
+      final int numMappers, final int combinerFanIn, final int numThreads) {
+    resolver_ = resolver;
+    inputInspectors_ = inputInspectors;
+    numMappers_ = numMappers;
+    combinerFanIn_ = combinerFanIn;
+    numThreads_ = numThreads;
+  }
+
+  /**
+   * Runs the simulation
+   * @param input provides rows for a given mapper index
+   * @return report with the result of the aggregation and measurements
+   * @throws Exception if anything goes wrong
+   */
+  public Report run(final IntFunction<Iterable<Object[]>> input) throws Exception {
+    final Report report = new Report();
+    final ExecutorService executor = Executors.newFixedThreadPool(numThreads_);
+    try {
+      // map
+      final ObjectInspector mapOutputInspector = newEvaluator().init(Mode.PARTIAL1, inputInspectors_);
+      final ObjectInspector shuffleInspector =
+          ObjectInspectorUtils.getStandardObjectInspector(mapOutputInspector, ObjectInspectorCopyOption.WRITABLE);
+      long start = System.nanoTime();
+      final List<Future<TaskResult>> mapTasks = new ArrayList<>();
+      for (int i = 0; i < numMappers_; i++) {
+        final int mapper = i;
+        mapTasks.add(executor.submit(() -> runMapper(input.apply(mapper), mapOutputInspector)));
+      }
+      final List<Object> mapOutputs = new ArrayList<>();
+      for (final Future<TaskResult> task: mapTasks) {
+        final TaskResult result = task.get();
+        report.rows += result.rows;
+        report.mapOutputBytes += result.outputBytes;
+        report.mapPeakBufferBytes = Math.max(report.mapPeakBufferBytes, result.peakBufferBytes);
+        if (result.output != null) { mapOutputs.add(result.output); }
+      }
+      report.mapNanos = System.nanoTime() - start;
+
+      // combine
+      List<Object> reduceInputs = mapOutputs;
+      if (combinerFanIn_ > 1) {
+        start = System.nanoTime();
+        final ObjectInspector combineOutputInspector =
+            newEvaluator().init(Mode.PARTIAL2, new ObjectInspector[] {shuffleInspector});
+        final List<Future<TaskResult>> combineTasks = new ArrayList<>();
+        for (int i = 0; i < mapOutputs.size(); i += combinerFanIn_) {
+          final List<Object> partials = mapOutputs.subList(i, Math.min(i + combinerFanIn_, mapOutputs.size()));
+          combineTasks.add(executor.submit(
+              () -> runMerger(Mode.PARTIAL2, partials, shuffleInspector, combineOutputInspector)));
+        }
+        reduceInputs = new ArrayList<>();
+        for (final Future<TaskResult> task: combineTasks) {
+          final TaskResult result = task.get();
+          report.combineOutputBytes += result.outputBytes;
+          report.combinePeakBufferBytes = Math.max(report.combinePeakBufferBytes, result.peakBufferBytes);
+          if (result.output != null) { reduceInputs.add(result.output); }
+        }
+        report.combineNanos = System.nanoTime() - start;
+      }
+
+      // reduce
+      start = System.nanoTime();
+      final ObjectInspector resultInspector =
+          newEvaluator().init(Mode.FINAL, new ObjectInspector[] {shuffleInspector});
+      final TaskResult result = runMerger(Mode.FINAL, reduceInputs, shuffleInspector, resultInspector);
+      report.reduceNanos = System.nanoTime() - start;
+      report.reduceInputs = reduceInputs.size();
+      report.resultBytes = result.outputBytes;
+      report.reducePeakBufferBytes = result.peakBufferBytes;
+      report.result = result.output;
+    } finally {
+      executor.shutdown();
+    }
+    return report;
+  }
+
+  private GenericUDAFEvaluator newEvaluator() throws Exception {
+    return resolver_.getEvaluator(new SimpleGenericUDAFParameterInfo(inputInspectors_, false, false));
+  }
+
+  private TaskResult runMapper(final Iterable<Object[]> rows, final ObjectInspector outputInspector)
+      throws Exception {
+    final GenericUDAFEvaluator eval = newEvaluator();
+    eval.init(Mode.PARTIAL1, inputInspectors_);
+    final AggregationBuffer buf = eval.getNewAggregationBuffer();
+    final TaskResult result = new TaskResult();
+    for (final Object[] row: rows) {
+      eval.iterate(buf, row);
+      result.rows++;
+      if ((result.rows & 0x3FF) == 0) { result.samplePeak(buf); }
+    }
+    result.samplePeak(buf);
+    result.setOutput(eval.terminatePartial(buf), outputInspector);
+    eval.close();
+    return result;
+  }
+
+  private TaskResult runMerger(final Mode mode, final List<Object> partials,
+      final ObjectInspector inputInspector, final ObjectInspector outputInspector) throws Exception {
+    final GenericUDAFEvaluator eval = newEvaluator();
+    eval.init(mode, new ObjectInspector[] {inputInspector});
+    final AggregationBuffer buf = eval.getNewAggregationBuffer();
+    final TaskResult result = new TaskResult();
+    for (final Object partial: partials) {
+      eval.merge(buf, partial);
+      result.samplePeak(buf);
+    }
+    result.setOutput(mode == Mode.FINAL ? eval.terminate(buf) : eval.terminatePartial(buf), outputInspector);
+    eval.close();
+    return result;
+  }
+
+  /**
+   * Payload size of a Hive object: sum of the sizes of its primitive fields
+   * @param data Hive object
+   * @param inspector object inspector for the given object
+   * @return size in bytes
+   */
+  static long sizeOf(final Object data, final ObjectInspector inspector) {
+    if (data == null) { return 0; }
+    switch (inspector.getCategory()) {
+    case STRUCT:
+      final StructObjectInspector structInspector = (StructObjectInspector) inspector;
+      long size = 0;
+      for (final StructField field: structInspector.getAllStructFieldRefs()) {
+        size += sizeOf(structInspector.getStructFieldData(data, field), field.getFieldObjectInspector());
+      }
+      return size;
+    case PRIMITIVE:
+      final PrimitiveObjectInspector primitiveInspector = (PrimitiveObjectInspector) inspector;
+      final Object value = primitiveInspector.getPrimitiveWritableObject(data);
+      switch (primitiveInspector.getPrimitiveCategory()) {
+      case BINARY:
+        return ((BytesWritable) value).getLength();
+      case STRING:
+        return ((Text) value).getLength();
+      case BOOLEAN:
+      case BYTE:
+        return 1;
+      case SHORT:
+        return 2;
+      case INT:
+      case FLOAT:
+        return 4;
+      default:
+        return 8;
+      }
+    default:
+      throw new IllegalArgumentException("unsupported category " + inspector.getCategory());
+    }
+  }
+
+  private static final class TaskResult {
+    long rows;
+    long outputBytes;
+    long peakBufferBytes = -1;
+    Object output;
+
+    // not conditional on GenericUDAFEvaluator.isEstimable() since the AggregationType annotation
+    // is not retained at runtime in some Hive versions, and the default estimate() is -1 anyway
+    void samplePeak(final AggregationBuffer buf) {
+      if (buf instanceof AbstractAggregationBuffer) {
+        peakBufferBytes = Math.max(peakBufferBytes, ((AbstractAggregationBuffer) buf).estimate());
+      }
+    }
+
+    // deep copy, as if the output was serialized and sent to another task
+    void setOutput(final Object data, final ObjectInspector inspector) throws HiveException {
+      outputBytes = sizeOf(data, inspector);
+      output = ObjectInspectorUtils.copyToStandardObject(data, inspector, ObjectInspectorCopyOption.WRITABLE);
+    }
+  }
+
+  /**
+   * Result and measurements of one simulated job
+   */
+  public static final class Report {
+    long rows;
+    long mapNanos;
+    long combineNanos;
+    long reduceNanos;
+    long mapOutputBytes;
+    long combineOutputBytes;
+    long resultBytes;
+    long mapPeakBufferBytes = -1;
+    long combinePeakBufferBytes = -1;
+    long reducePeakBufferBytes = -1;
+    int reduceInputs;
+    Object result;
+
+    /**
+     * @return result of the aggregation (output of terminate in FINAL mode)
+     */
+    public Object getResult() {
+      return result;
+    }
+
+    /**
+     * @return map phase throughput in rows per second
+     */
+    public double getMapRowsPerSecond() {
+      return rows * 1e9 / mapNanos;
+    }
+
+    /**
+     * @return total wall time of all phases in nanoseconds
+     */
+    public long getTotalNanos() {
+      return mapNanos + combineNanos + reduceNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("rows: %d, map: %.1f ms (%.0f rows/s, %d bytes out, peak buffer %d),"
+          + " combine: %.1f ms (%d bytes out, peak buffer %d),"
+          + " reduce: %.1f ms (%d partials in, %d bytes out, peak buffer %d)",
+          rows, mapNanos / 1e6, getMapRowsPerSecond(), mapOutputBytes, mapPeakBufferBytes,
+          combineNanos / 1e6, combineOutputBytes, combinePeakBufferBytes,
+          reduceNanos / 1e6, reduceInputs, resultBytes, reducePeakBufferBytes);
+    }
+  }
+
+}
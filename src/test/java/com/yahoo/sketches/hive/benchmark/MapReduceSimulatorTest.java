@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.yahoo.memory.Memory;
+import com.yahoo.sketches.ArrayOfStringsSerDe;
+import com.yahoo.sketches.frequencies.ItemsSketch;
+import com.yahoo.sketches.hll.HllSketch;
+import com.yahoo.sketches.quantiles.DoublesSketch;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.Sketches;
+import com.yahoo.sketches.tuple.DoubleSummary;
+import com.yahoo.sketches.tuple.DoubleSummaryDeserializer;
+import com.yahoo.sketches.tuple.SketchIterator;
+
+public class MapReduceSimulatorTest {
+
+  private static final int MAPPERS = 16;
+  private static final int ROWS_PER_MAPPER = 1000;
+
+  private static final ObjectInspector stringInspector =
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.STRING);
+
+  private static final ObjectInspector doubleInspector =
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.DOUBLE);
+
+  // every mapper gets a distinct range of keys
+  private static IntFunction<Iterable<Object[]>> input(final LongFunction<Object[]> toRow) {
+    return mapper -> {
+      final List<Object[]> rows = new ArrayList<>(ROWS_PER_MAPPER);
+      for (int i = 0; i < ROWS_PER_MAPPER; i++) {
+        rows.add(toRow.apply((long) mapper * ROWS_PER_MAPPER + i));
+      }
+      return rows;
+    };
+  }
+
+  @Test
+  public void theta() throws Exception {
+    final MapReduceSimulator simulator = new MapReduceSimulator(new com.yahoo.sketches.hive.theta.DataToSketchUDAF(),
+        new ObjectInspector[] { stringInspector }, MAPPERS, 4, 4);
+    final MapReduceSimulator.Report report = simulator.run(input(key -> new Object[] { new Text("key" + key) }));
+    Assert.assertEquals(report.rows, MAPPERS * ROWS_PER_MAPPER);
+    Assert.assertEquals(report.reduceInputs, MAPPERS / 4);
+    Assert.assertTrue(report.mapOutputBytes > 0);
+    Assert.assertTrue(report.combineOutputBytes > 0);
+    final Sketch result = Sketches.wrapSketch(Memory.wrap(((BytesWritable) report.getResult()).getBytes()));
+    Assert.assertEquals(result.getEstimate(), MAPPERS * ROWS_PER_MAPPER, MAPPERS * ROWS_PER_MAPPER * 0.05);
+  }
+
+  @Test
+  public void hll() throws Exception {
+    final MapReduceSimulator simulator = new MapReduceSimulator(new com.yahoo.sketches.hive.hll.DataToSketchUDAF(),
+        new ObjectInspector[] { stringInspector }, MAPPERS, 4, 4);
+    final MapReduceSimulator.Report report = simulator.run(input(key -> new Object[] { new Text("key" + key) }));
+    final HllSketch result = HllSketch.heapify(Memory.wrap(((BytesWritable) report.getResult()).getBytes()));
+    Assert.assertEquals(result.getEstimate(), MAPPERS * ROWS_PER_MAPPER, MAPPERS * ROWS_PER_MAPPER * 0.05);
+  }
+
+  @Test
+  public void quantilesDoubles() throws Exception {
+    final MapReduceSimulator simulator = new MapReduceSimulator(
+        new com.yahoo.sketches.hive.quantiles.DataToDoublesSketchUDAF(),
+        new ObjectInspector[] { doubleInspector }, MAPPERS, 1, 4);
+    final MapReduceSimulator.Report report = simulator.run(input(key -> new Object[] { new DoubleWritable(key) }));
+    Assert.assertEquals(report.reduceInputs, MAPPERS);
+    Assert.assertEquals(report.combineOutputBytes, 0);
+    final DoublesSketch result = DoublesSketch.wrap(Memory.wrap(((BytesWritable) report.getResult()).getBytes()));
+    Assert.assertEquals(result.getN(), MAPPERS * ROWS_PER_MAPPER);
+    Assert.assertEquals(result.getMinValue(), 0.0);
+    Assert.assertEquals(result.getMaxValue(), MAPPERS * ROWS_PER_MAPPER - 1.0);
+  }
+
+  @Test
+  public void quantilesStrings() throws Exception {
+    final MapReduceSimulator simulator = new MapReduceSimulator(
+        new com.yahoo.sketches.hive.quantiles.DataToStringsSketchUDAF(),
+        new ObjectInspector[] { stringInspector }, MAPPERS, 4, 4);
+    final MapReduceSimulator.Report report = simulator.run(input(key -> new Object[] { new Text("key" + key) }));
+    final com.yahoo.sketches.quantiles.ItemsSketch<String> result = com.yahoo.sketches.quantiles.ItemsSketch
+        .getInstance(Memory.wrap(((BytesWritable) report.getResult()).getBytes()),
+            Comparator.naturalOrder(), new ArrayOfStringsSerDe());
+    Assert.assertEquals(result.getN(), MAPPERS * ROWS_PER_MAPPER);
+  }
+
+  @Test
+  public void frequencies() throws Exception {
+    final IntWritable maxMapSize = new IntWritable(64);
+    final MapReduceSimulator simulator = new MapReduceSimulator(
+        new com.yahoo.sketches.hive.frequencies.DataToStringsSketchUDAF(),
+        new ObjectInspector[] { stringInspector, PrimitiveObjectInspectorFactory
+            .getPrimitiveWritableConstantObjectInspector(TypeInfoFactory.intTypeInfo, maxMapSize) },
+        MAPPERS, 4, 4);
+    // one heavy hitter in every mapper
+    final MapReduceSimulator.Report report = simulator.run(
+        input(key -> new Object[] { new Text(key % 2 == 0 ? "heavy" : "key" + key), maxMapSize }));
+    final ItemsSketch<String> result = ItemsSketch.getInstance(
+        Memory.wrap(((BytesWritable) report.getResult()).getBytes()), new ArrayOfStringsSerDe());
+    Assert.assertEquals(result.getStreamLength(), MAPPERS * ROWS_PER_MAPPER);
+    Assert.assertTrue(result.getEstimate("heavy") >= MAPPERS * ROWS_PER_MAPPER / 2);
+  }
+
+  @Test
+  public void tuple() throws Exception {
+    final MapReduceSimulator simulator = new MapReduceSimulator(
+        new com.yahoo.sketches.hive.tuple.DataToDoubleSummarySketchUDAF(),
+        new ObjectInspector[] { stringInspector, doubleInspector }, MAPPERS, 4, 4);
+    final MapReduceSimulator.Report report = simulator.run(
+        input(key -> new Object[] { new Text("key" + (key % 100)), new DoubleWritable(1) }));
+    final com.yahoo.sketches.tuple.Sketch<DoubleSummary> result = com.yahoo.sketches.tuple.Sketches
+        .heapifySketch(Memory.wrap(((BytesWritable) report.getResult()).getBytes()),
+            new DoubleSummaryDeserializer());
+    Assert.assertEquals(result.getRetainedEntries(), 100);
+    final SketchIterator<DoubleSummary> it = result.iterator();
+    while (it.next()) {
+      Assert.assertEquals(it.getSummary().getValue(), (double) MAPPERS * ROWS_PER_MAPPER / 100);
+    }
+  }
+
+  @Test
+  public void sizeOfStruct() throws Exception {
+    final ObjectInspector inspector = ObjectInspectorFactory.getStandardStructObjectInspector(
+        Arrays.asList("a", "b", "c"),
+        Arrays.asList(
+            PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.INT),
+            PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.LONG),
+            PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.BINARY)
+        )
+    );
+    final Object data = Arrays.asList(new IntWritable(1), new LongWritable(2), new BytesWritable(new byte[10]));
+    Assert.assertEquals(MapReduceSimulator.sizeOf(data, inspector), 4 + 8 + 10);
+  }
+
+}
@@ -6,6 +6,7 @@ package com.yahoo.sketches.hive.frequencies;
 
 import java.util.Arrays;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.Mode;
@@ -25,6 +26,7 @@ import com.yahoo.memory.Memory;
 import com.yahoo.sketches.ArrayOfItemsSerDe;
 import com.yahoo.sketches.ArrayOfStringsSerDe;
 import com.yahoo.sketches.frequencies.ItemsSketch;
+import com.yahoo.sketches.hive.CountingReporter;
 
 public class DataToStringsSketchUDAFTest {
 
@@ -165,4 +167,63 @@ public class DataToStringsSketchUDAFTest {
     );
   }
 
+  @Test
+  public void estimateSize() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { stringInspector, intInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToStringsSketchUDAF().getEvaluator(info);
+    eval.init(Mode.PARTIAL1, inspectors);
+
+    @SuppressWarnings("unchecked")
+    ItemsState<String> state = (ItemsState<String>) eval.getNewAggregationBuffer();
+    ItemsSketch<String> sketch = new ItemsSketch<String>(256);
+    eval.iterate(state, new Object[] { new org.apache.hadoop.io.Text("item000000"), new IntWritable(256) });
+    final int sizeAfterOneItem = state.estimate();
+    for (int i = 0; i < 1000; i++) {
+      final String item = String.format("item%06d", i);
+      eval.iterate(state, new Object[] { new org.apache.hadoop.io.Text(item), new IntWritable(256) });
+      sketch.update(item);
+    }
+    // the map has grown to its maximum size: a reference, a count and a state per slot,
+    // plus the active strings themselves
+    final int sizeAfterIterate = state.estimate();
+    final int mapBytes = 256 * (8 + 8 + 2);
+    Assert.assertTrue(sizeAfterIterate > sizeAfterOneItem);
+    Assert.assertTrue(sizeAfterIterate > mapBytes + sketch.getNumActiveItems() * 40);
+    Assert.assertTrue(sizeAfterIterate < mapBytes + sketch.getNumActiveItems() * 200);
+    eval.close();
+
+    eval.init(Mode.FINAL, new ObjectInspector[] { binaryInspector });
+    @SuppressWarnings("unchecked")
+    ItemsState<String> state2 = (ItemsState<String>) eval.getNewAggregationBuffer();
+    eval.merge(state2, new BytesWritable(sketch.toByteArray(serDe)));
+    Assert.assertEquals(state2.estimate(), sizeAfterIterate, sizeAfterIterate / 10);
+    eval.close();
+  }
+
+  @Test
+  public void iterateTerminatePartialCountersPublishedWhenEnabled() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { stringInspector, intInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToStringsSketchUDAF().getEvaluator(info);
+    CountingReporter counters = new CountingReporter("Sketches: frequencies");
+    eval.configure(counters.initContext(true));
+    eval.init(Mode.PARTIAL1, inspectors);
+
+    @SuppressWarnings("unchecked")
+    ItemsState<String> state = (ItemsState<String>) eval.getNewAggregationBuffer();
+    eval.iterate(state, new Object[] { new org.apache.hadoop.io.Text("a"), new IntWritable(256) });
+    eval.iterate(state, new Object[] { null, new IntWritable(256) });
+    eval.iterate(state, new Object[] { new org.apache.hadoop.io.Text("b"), new IntWritable(256) });
+
+    BytesWritable bytes = (BytesWritable) eval.terminatePartial(state);
+    Assert.assertEquals(counters.get("ROWS_INGESTED"), Long.valueOf(2));
+    Assert.assertEquals(counters.get("NULL_ROWS_SKIPPED"), Long.valueOf(1));
+    Assert.assertEquals(counters.get("BYTES_SERIALIZED"), Long.valueOf(bytes.getLength()));
+    Assert.assertNull(counters.get("PARTIALS_MERGED"));
+
+    eval.close();
+    MapredContext.close();
+  }
+
 }
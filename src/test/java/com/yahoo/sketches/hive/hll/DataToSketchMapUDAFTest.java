@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.hll;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationBuffer;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.Mode;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFParameterInfo;
+import org.apache.hadoop.hive.ql.udf.generic.SimpleGenericUDAFParameterInfo;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hll.HllSketch;
+
+@SuppressWarnings("deprecation")
+public class DataToSketchMapUDAFTest {
+
+  static final ObjectInspector longInspector =
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.LONG);
+
+  static final ObjectInspector stringInspector =
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(PrimitiveCategory.STRING);
+
+  static final ObjectInspector arrayInspector =
+      ObjectInspectorFactory.getStandardListObjectInspector(stringInspector);
+
+  static final ObjectInspector structInspector = ObjectInspectorFactory.getStandardStructObjectInspector(
+      Arrays.asList("country", "device"),
+      Arrays.asList(stringInspector, stringInspector)
+    );
+
+  @Test(expectedExceptions = UDFArgumentException.class)
+  public void initTooFewArgs() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { longInspector };
+    new DataToSketchMapUDAF().getEvaluator(new SimpleGenericUDAFParameterInfo(inspectors, false, false));
+  }
+
+  @Test(expectedExceptions = UDFArgumentTypeException.class)
+  public void initPrimitiveDimensions() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { longInspector, stringInspector };
+    new DataToSketchMapUDAF().getEvaluator(new SimpleGenericUDAFParameterInfo(inspectors, false, false));
+  }
+
+  @Test(expectedExceptions = UDFArgumentTypeException.class)
+  public void initNonConstantSize() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] {
+        longInspector, arrayInspector, PrimitiveObjectInspectorFactory.writableIntObjectInspector };
+    new DataToSketchMapUDAF().getEvaluator(new SimpleGenericUDAFParameterInfo(inspectors, false, false));
+  }
+
+  // PARTIAL1 on two splits, then FINAL: sketches of the same dimension value are merged
+  @Test
+  public void partial1ThenFinalModeArrayDimensions() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { longInspector, arrayInspector,
+        PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+            TypeInfoFactory.intTypeInfo, new IntWritable(10)) };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator partialEval = new DataToSketchMapUDAF().getEvaluator(info);
+    ObjectInspector intermediateInspector = partialEval.init(Mode.PARTIAL1, inspectors);
+    GenericUDAFEvaluator finalEval = new DataToSketchMapUDAF().getEvaluator(info);
+    finalEval.init(Mode.FINAL, new ObjectInspector[] { intermediateInspector });
+
+    AggregationBuffer finalState = finalEval.getNewAggregationBuffer();
+    for (int split = 0; split < 2; split++) {
+      AggregationBuffer state = partialEval.getNewAggregationBuffer();
+      for (long user = split * 50; user < split * 50 + 100; user++) {
+        // users 0-99 in the first split, 50-149 in the second one
+        String country = user % 2 == 0 ? "US" : "UK";
+        partialEval.iterate(state, new Object[] { new LongWritable(user),
+            Arrays.asList(new Text(country), null, new Text("app" + (user % 5))) });
+      }
+      // rows without a key or dimensions are skipped
+      partialEval.iterate(state, new Object[] { null, Arrays.asList(new Text("US")) });
+      partialEval.iterate(state, new Object[] { new LongWritable(1000), null });
+      List<?> partial = (List<?>) partialEval.terminatePartial(state);
+      Assert.assertEquals(((IntWritable) partial.get(0)).get(), 10);
+      Assert.assertEquals(partial.get(1), new Text("HLL_4"));
+      Assert.assertEquals(((Map<?, ?>) partial.get(2)).size(), 7);
+      finalEval.merge(finalState, partial);
+    }
+
+    Map<?, ?> result = (Map<?, ?>) finalEval.terminate(finalState);
+    Assert.assertEquals(result.size(), 7);
+    Assert.assertEquals(getEstimate(result, "US"), 75.0);
+    Assert.assertEquals(getEstimate(result, "UK"), 75.0);
+    for (int app = 0; app < 5; app++) {
+      Assert.assertEquals(getEstimate(result, "app" + app), 30.0);
+    }
+
+    finalEval.reset(finalState);
+    Assert.assertNull(finalEval.terminate(finalState));
+    partialEval.close();
+    finalEval.close();
+  }
+
+  @Test
+  public void completeModeStructDimensions() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { longInspector, structInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToSketchMapUDAF().getEvaluator(info);
+    eval.init(Mode.COMPLETE, inspectors);
+
+    AggregationBuffer state = eval.getNewAggregationBuffer();
+    eval.iterate(state, new Object[] { new LongWritable(1), Arrays.asList(new Text("US"), new Text("phone")) });
+    eval.iterate(state, new Object[] { new LongWritable(2), Arrays.asList(new Text("US"), null) });
+    eval.iterate(state, new Object[] { new LongWritable(1), Arrays.asList(new Text("UK"), new Text("US")) });
+
+    Map<?, ?> result = (Map<?, ?>) eval.terminate(state);
+    Assert.assertEquals(result.size(), 4);
+    Assert.assertEquals(getEstimate(result, "country=US"), 2.0);
+    Assert.assertEquals(getEstimate(result, "country=UK"), 1.0);
+    Assert.assertEquals(getEstimate(result, "device=phone"), 1.0);
+    Assert.assertEquals(getEstimate(result, "device=US"), 1.0);
+    eval.close();
+  }
+
+  private static double getEstimate(final Map<?, ?> sketches, final String dimension) {
+    BytesWritable bytes = (BytesWritable) sketches.get(new Text(dimension));
+    HllSketch sketch = HllSketch.heapify(Memory.wrap(bytes.getBytes()));
+    return Math.round(sketch.getEstimate());
+  }
+
+}
@@ -5,9 +5,11 @@
 
 package com.yahoo.sketches.hive.hll;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.parse.SemanticException;
@@ -27,6 +29,7 @@ import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -374,4 +377,80 @@ public class DataToSketchUDAFTest {
     );
   }
 
+  @Test
+  public void estimateSizeInPartial1Mode() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { intInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToSketchUDAF().getEvaluator(info);
+    eval.init(Mode.PARTIAL1, inspectors);
+
+    State state = (State) eval.getNewAggregationBuffer();
+    HllSketch sketch = new HllSketch(SketchEvaluator.DEFAULT_LG_K, SketchEvaluator.DEFAULT_HLL_TYPE);
+    // goes through list, set and HLL modes
+    for (int i = 0; i < 10000; i++) {
+      eval.iterate(state, new Object[] {new IntWritable(i)});
+      sketch.update(i);
+      if (i % 500 == 0) {
+        Assert.assertEquals(state.estimate(), sketch.getUpdatableSerializationBytes(), 256);
+      }
+    }
+
+    eval.close();
+  }
+
+  @Test
+  public void completeModeStringValuesHashedAsUtf8WhenConfigured() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { stringInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+
+    final String[] values = {"a long value to grow the buffer", "a", "\u00fc", "\u65e5\u672c"};
+    HllSketch charsSketch = new HllSketch(SketchEvaluator.DEFAULT_LG_K, SketchEvaluator.DEFAULT_HLL_TYPE);
+    HllSketch bytesSketch = new HllSketch(SketchEvaluator.DEFAULT_LG_K, SketchEvaluator.DEFAULT_HLL_TYPE);
+    for (String value: values) {
+      charsSketch.update(value.toCharArray());
+      bytesSketch.update(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    JobConf conf = new JobConf();
+    for (boolean hashUtf8Bytes: new boolean[] {false, true}) {
+      conf.setBoolean(DataToSketchUDAF.HASH_UTF8_BYTES_CONF, hashUtf8Bytes);
+      GenericUDAFEvaluator eval = new DataToSketchUDAF().getEvaluator(info);
+      eval.configure(MapredContext.init(true, conf));
+      eval.init(Mode.COMPLETE, inspectors);
+
+      State state = (State) eval.getNewAggregationBuffer();
+      // the same Text is reused, so its backing array is longer than the later values
+      Text text = new Text();
+      for (String value: values) {
+        text.set(value);
+        eval.iterate(state, new Object[] {text});
+      }
+
+      Object result = eval.terminate(state);
+      Assert.assertEquals(((BytesWritable) result).copyBytes(),
+          (hashUtf8Bytes ? bytesSketch : charsSketch).toCompactByteArray());
+      eval.close();
+    }
+    MapredContext.close();
+  }
+
+  // without a context the strings are hashed as chars, the same as before the setting existed
+  @Test
+  public void completeModeStringValuesNoContext() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { stringInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToSketchUDAF().getEvaluator(info);
+    eval.configure(null);
+    eval.init(Mode.COMPLETE, inspectors);
+
+    State state = (State) eval.getNewAggregationBuffer();
+    eval.iterate(state, new Object[] {new Text("\u00fc")});
+
+    HllSketch expected = new HllSketch(SketchEvaluator.DEFAULT_LG_K, SketchEvaluator.DEFAULT_HLL_TYPE);
+    expected.update("\u00fc".toCharArray());
+    Object result = eval.terminate(state);
+    Assert.assertEquals(((BytesWritable) result).copyBytes(), expected.toCompactByteArray());
+    eval.close();
+  }
+
 }
@@ -5,15 +5,24 @@
 
 package com.yahoo.sketches.hive.hll;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.BoundarySpec;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.Direction;
+import org.apache.hadoop.hive.ql.plan.ptf.CurrentRowDef;
+import org.apache.hadoop.hive.ql.plan.ptf.RangeBoundaryDef;
+import org.apache.hadoop.hive.ql.plan.ptf.WindowFrameDef;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationBuffer;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.Mode;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFParameterInfo;
+import org.apache.hadoop.hive.ql.udf.generic.ISupportStreamingModeForWindowing;
 import org.apache.hadoop.hive.ql.udf.generic.SimpleGenericUDAFParameterInfo;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
@@ -23,12 +32,18 @@ import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.yahoo.memory.Memory;
+import com.yahoo.memory.WritableMemory;
+import com.yahoo.sketches.hive.CountingReporter;
+import com.yahoo.sketches.hive.OffHeapMemory;
+import com.yahoo.sketches.hive.ParallelMerge;
 import com.yahoo.sketches.hll.HllSketch;
 import com.yahoo.sketches.hll.TgtHllType;
+import com.yahoo.sketches.hll.Union;
 
 public class UnionSketchUDAFTest {
 
@@ -276,6 +291,150 @@ public class UnionSketchUDAFTest {
   }
 
   // COMPLETE mode (single mode, alternative to MapReduce): iterate + terminate
+  @Test
+  public void finalModeOffHeap() throws Exception {
+    JobConf conf = new JobConf();
+    conf.setBoolean(OffHeapMemory.ENABLED_CONF, true);
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new UnionSketchUDAF().getEvaluator(info);
+    eval.configure(MapredContext.init(false, conf));
+    eval.init(Mode.FINAL, new ObjectInspector[] {structInspector});
+
+    long allocations = WritableMemory.getCurrentDirectMemoryAllocations();
+    State state = (State) eval.getNewAggregationBuffer();
+    Union expectedUnion = new Union(SketchEvaluator.DEFAULT_LG_K);
+    for (int i = 0; i < 2; i++) {
+      HllSketch sketch = new HllSketch(SketchEvaluator.DEFAULT_LG_K);
+      for (int j = 0; j < 10000; j++) { sketch.update(i * 5000 + j); }
+      expectedUnion.update(sketch);
+      eval.merge(state, Arrays.asList(
+        new IntWritable(SketchEvaluator.DEFAULT_LG_K),
+        new Text(SketchEvaluator.DEFAULT_HLL_TYPE.toString()),
+        new BytesWritable(sketch.toCompactByteArray()))
+      );
+    }
+    Assert.assertEquals(WritableMemory.getCurrentDirectMemoryAllocations(), allocations + 1);
+    // direct memory is part of the reported size
+    Assert.assertTrue(((UnionState) state).estimate()
+        > Union.getMaxSerializationBytes(SketchEvaluator.DEFAULT_LG_K));
+
+    Object result = eval.terminate(state);
+    HllSketch resultSketch = HllSketch.heapify(Memory.wrap(((BytesWritable) result).getBytes()));
+    Assert.assertEquals(resultSketch.getEstimate(), expectedUnion.getResult().getEstimate(), 0.01);
+    // freed once the result is serialized, since Hive may drop the buffer without a reset
+    Assert.assertEquals(WritableMemory.getCurrentDirectMemoryAllocations(), allocations);
+
+    // freed on reset
+    eval.merge(state, Arrays.asList(
+      new IntWritable(SketchEvaluator.DEFAULT_LG_K),
+      new Text(SketchEvaluator.DEFAULT_HLL_TYPE.toString()),
+      new BytesWritable(expectedUnion.getResult().toCompactByteArray()))
+    );
+    Assert.assertEquals(WritableMemory.getCurrentDirectMemoryAllocations(), allocations + 1);
+    eval.reset(state);
+    Assert.assertEquals(WritableMemory.getCurrentDirectMemoryAllocations(), allocations);
+
+    // freed on close if not reset
+    eval.merge(eval.getNewAggregationBuffer(), Arrays.asList(
+      new IntWritable(SketchEvaluator.DEFAULT_LG_K),
+      new Text(SketchEvaluator.DEFAULT_HLL_TYPE.toString()),
+      new BytesWritable(expectedUnion.getResult().toCompactByteArray()))
+    );
+    Assert.assertEquals(WritableMemory.getCurrentDirectMemoryAllocations(), allocations + 1);
+    eval.close();
+    Assert.assertEquals(WritableMemory.getCurrentDirectMemoryAllocations(), allocations);
+    MapredContext.close();
+  }
+
+  @Test
+  public void finalModeParallelMerge() throws Exception {
+    JobConf conf = new JobConf();
+    conf.setInt(ParallelMerge.PARALLELISM_CONF, 4);
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new UnionSketchUDAF().getEvaluator(info);
+    eval.configure(MapredContext.init(false, conf));
+    eval.init(Mode.FINAL, new ObjectInspector[] {structInspector});
+    GenericUDAFEvaluator sequentialEval = new UnionSketchUDAF().getEvaluator(info);
+    sequentialEval.init(Mode.FINAL, new ObjectInspector[] {structInspector});
+
+    // more than one batch with a remainder to be merged at the end
+    State state = (State) eval.getNewAggregationBuffer();
+    State sequentialState = (State) sequentialEval.getNewAggregationBuffer();
+    for (int i = 0; i < 300; i++) {
+      HllSketch sketch = new HllSketch(SketchEvaluator.DEFAULT_LG_K);
+      for (int j = 0; j < 200; j++) { sketch.update(i * 100 + j); }
+      List<Object> partial = Arrays.<Object>asList(
+        new IntWritable(SketchEvaluator.DEFAULT_LG_K),
+        new Text(SketchEvaluator.DEFAULT_HLL_TYPE.toString()),
+        new BytesWritable(sketch.toCompactByteArray())
+      );
+      eval.merge(state, partial);
+      sequentialEval.merge(sequentialState, partial);
+    }
+
+    HllSketch resultSketch = HllSketch.heapify(
+        Memory.wrap(((BytesWritable) eval.terminate(state)).getBytes()));
+    HllSketch sequentialSketch = HllSketch.heapify(
+        Memory.wrap(((BytesWritable) sequentialEval.terminate(sequentialState)).getBytes()));
+    Assert.assertEquals(resultSketch.getEstimate(), 30100, 30100 * 0.03);
+    Assert.assertEquals(resultSketch.getEstimate(), sequentialSketch.getEstimate(), 0.01);
+    eval.close();
+    MapredContext.close();
+  }
+
+  @Test
+  public void completeModeCumulativeWindow() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new UnionSketchUDAF().getEvaluator(info);
+    eval.init(Mode.COMPLETE, inspectors);
+
+    // sliding frames are not streamed
+    Assert.assertNull(eval.getWindowingEvaluator(getFrame(2)));
+
+    // ROWS BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW
+    GenericUDAFEvaluator streamingEval = eval.getWindowingEvaluator(getFrame(BoundarySpec.UNBOUNDED_AMOUNT));
+    Assert.assertTrue(streamingEval instanceof ISupportStreamingModeForWindowing);
+    ISupportStreamingModeForWindowing streaming = (ISupportStreamingModeForWindowing) streamingEval;
+    @SuppressWarnings("deprecation")
+    AggregationBuffer buf = streamingEval.getNewAggregationBuffer();
+
+    // a leading null row has a null result
+    streamingEval.aggregate(buf, new Object[] {null});
+    Assert.assertSame(streaming.getNextResult(buf), ISupportStreamingModeForWindowing.NULL_RESULT);
+
+    List<BytesWritable> results = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      HllSketch sketch = new HllSketch(SketchEvaluator.DEFAULT_LG_K);
+      for (int j = 0; j < 10; j++) { sketch.update(i * 5 + j); }
+      streamingEval.aggregate(buf, new Object[] {new BytesWritable(sketch.toCompactByteArray())});
+      results.add((BytesWritable) streaming.getNextResult(buf));
+    }
+    // results of earlier rows are not overwritten by later ones
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(HllSketch.heapify(Memory.wrap(results.get(i).getBytes())).getEstimate(), 10.0 + i * 5, 0.01);
+    }
+    Assert.assertNotNull(streamingEval.terminate(buf));
+    Assert.assertEquals(streaming.getRowsRemainingAfterTerminate(), 0);
+
+    // the next partition starts over
+    streamingEval.reset(buf);
+    Assert.assertSame(streaming.getNextResult(buf), ISupportStreamingModeForWindowing.NULL_RESULT);
+    eval.close();
+  }
+
+  private static WindowFrameDef getFrame(final int amountPreceding) {
+    RangeBoundaryDef start = new RangeBoundaryDef();
+    start.setDirection(Direction.PRECEDING);
+    start.setAmt(amountPreceding);
+    WindowFrameDef frame = new WindowFrameDef();
+    frame.setStart(start);
+    frame.setEnd(new CurrentRowDef());
+    return frame;
+  }
+
   @Test
   public void completeModeDefaultParams() throws Exception {
     ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
@@ -344,4 +503,37 @@ public class UnionSketchUDAFTest {
     eval.close();
   }
 
+  @Test
+  public void finalModeCountersPublishedWhenEnabled() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new UnionSketchUDAF().getEvaluator(info);
+    CountingReporter counters = new CountingReporter("Sketches: hll");
+    eval.configure(counters.initContext(false));
+    eval.init(Mode.FINAL, new ObjectInspector[] {structInspector});
+
+    State state = (State) eval.getNewAggregationBuffer();
+    long bytes = 0;
+    for (int i = 0; i < 2; i++) {
+      HllSketch sketch = new HllSketch(SketchEvaluator.DEFAULT_LG_K);
+      sketch.update(i);
+      BytesWritable serializedSketch = new BytesWritable(sketch.toCompactByteArray());
+      bytes += serializedSketch.getLength();
+      eval.merge(state, Arrays.asList(
+        new IntWritable(SketchEvaluator.DEFAULT_LG_K),
+        new Text(SketchEvaluator.DEFAULT_HLL_TYPE.toString()),
+        serializedSketch)
+      );
+    }
+
+    eval.terminate(state);
+    Assert.assertEquals(counters.get("PARTIALS_MERGED"), Long.valueOf(2));
+    Assert.assertEquals(counters.get("BYTES_DESERIALIZED"), Long.valueOf(bytes));
+    Assert.assertNull(counters.get("ROWS_INGESTED"));
+    Assert.assertNull(counters.get("BYTES_SERIALIZED"));
+
+    eval.close();
+    MapredContext.close();
+  }
+
 }
@@ -2,6 +2,7 @@ package com.yahoo.sketches.hive.quantiles;
 
 import java.util.Arrays;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.Mode;
@@ -19,6 +20,7 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.CountingReporter;
 import com.yahoo.sketches.quantiles.DoublesSketch;
 import com.yahoo.sketches.quantiles.UpdateDoublesSketch;
 
@@ -89,7 +91,7 @@ public class DataToDoublesSketchUDAFTest {
     ObjectInspector resultInspector = eval.init(Mode.PARTIAL1, inspectors);
     checkResultInspector(resultInspector);
 
-    DoublesUnionState state = (DoublesUnionState) eval.getNewAggregationBuffer();
+    DoublesSketchState state = (DoublesSketchState) eval.getNewAggregationBuffer();
     eval.iterate(state, new Object[] { new DoubleWritable(1.0) });
     eval.iterate(state, new Object[] { new DoubleWritable(2.0) });
 
@@ -110,7 +112,7 @@ public class DataToDoublesSketchUDAFTest {
     ObjectInspector resultInspector = eval.init(Mode.PARTIAL1, inspectors);
     checkResultInspector(resultInspector);
 
-    DoublesUnionState state = (DoublesUnionState) eval.getNewAggregationBuffer();
+    DoublesSketchState state = (DoublesSketchState) eval.getNewAggregationBuffer();
     eval.iterate(state, new Object[] { new DoubleWritable(1.0), new IntWritable(256) });
     eval.iterate(state, new Object[] { new DoubleWritable(2.0), new IntWritable(256) });
 
@@ -185,7 +187,7 @@ public class DataToDoublesSketchUDAFTest {
     ObjectInspector resultInspector = eval.init(Mode.COMPLETE, inspectors);
     checkResultInspector(resultInspector);
 
-    DoublesUnionState state = (DoublesUnionState) eval.getNewAggregationBuffer();
+    DoublesSketchState state = (DoublesSketchState) eval.getNewAggregationBuffer();
     eval.iterate(state, new Object[] { new DoubleWritable(1.0) });
     eval.iterate(state, new Object[] { new DoubleWritable(2.0) });
 
@@ -206,7 +208,7 @@ public class DataToDoublesSketchUDAFTest {
     ObjectInspector resultInspector = eval.init(Mode.COMPLETE, inspectors);
     checkResultInspector(resultInspector);
 
-    DoublesUnionState state = (DoublesUnionState) eval.getNewAggregationBuffer();
+    DoublesSketchState state = (DoublesSketchState) eval.getNewAggregationBuffer();
     eval.iterate(state, new Object[] { new DoubleWritable(1.0), new IntWritable(256) });
     eval.iterate(state, new Object[] { new DoubleWritable(2.0), new IntWritable(256) });
 
@@ -228,4 +230,61 @@ public class DataToDoublesSketchUDAFTest {
     );
   }
 
+  @Test
+  public void estimateSizeInPartial1Mode() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { doubleInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToDoublesSketchUDAF().getEvaluator(info);
+    eval.init(Mode.PARTIAL1, inspectors);
+
+    DoublesSketchState state = (DoublesSketchState) eval.getNewAggregationBuffer();
+    UpdateDoublesSketch sketch = DoublesSketch.builder().build();
+    for (int i = 0; i < 10000; i++) {
+      eval.iterate(state, new Object[] { new DoubleWritable(i) });
+      sketch.update(i);
+    }
+    Assert.assertEquals(state.estimate(), sketch.getUpdatableStorageBytes(), 128);
+    eval.close();
+  }
+
+  @Test
+  public void estimateSizeInFinalMode() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { doubleInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToDoublesSketchUDAF().getEvaluator(info);
+    eval.init(Mode.FINAL, new ObjectInspector[] {binaryInspector});
+
+    DoublesUnionState state = (DoublesUnionState) eval.getNewAggregationBuffer();
+    UpdateDoublesSketch sketch = DoublesSketch.builder().build();
+    for (int i = 0; i < 1000; i++) { sketch.update(i); }
+    eval.merge(state, new BytesWritable(sketch.toByteArray()));
+    eval.merge(state, new BytesWritable(sketch.toByteArray()));
+    Assert.assertEquals(state.estimate(), DoublesSketch.getUpdatableStorageBytes(128, 2000), 128);
+    eval.close();
+  }
+
+  @Test
+  public void partial1ModeCountersPublishedWhenEnabled() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { doubleInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToDoublesSketchUDAF().getEvaluator(info);
+    CountingReporter counters = new CountingReporter("Sketches: quantiles");
+    eval.configure(counters.initContext(true));
+    eval.init(Mode.PARTIAL1, inspectors);
+
+    DoublesState state = (DoublesState) eval.getNewAggregationBuffer();
+    eval.iterate(state, new Object[] { new DoubleWritable(1.0) });
+    eval.iterate(state, new Object[] { null });
+    eval.iterate(state, new Object[] { new DoubleWritable(2.0) });
+
+    BytesWritable bytes = (BytesWritable) eval.terminatePartial(state);
+    Assert.assertEquals(counters.get("ROWS_INGESTED"), Long.valueOf(2));
+    Assert.assertEquals(counters.get("NULL_ROWS_SKIPPED"), Long.valueOf(1));
+    Assert.assertEquals(counters.get("BYTES_SERIALIZED"), Long.valueOf(bytes.getLength()));
+    Assert.assertNull(counters.get("PARTIALS_MERGED"));
+
+    eval.close();
+    MapredContext.close();
+  }
+
 }
@@ -224,4 +224,35 @@ public class DataToStringsSketchUDAFTest {
     eval.close();
   }
 
+  @Test
+  public void estimateSize() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { stringInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToStringsSketchUDAF().getEvaluator(info);
+    eval.init(Mode.PARTIAL1, inspectors);
+
+    @SuppressWarnings("unchecked")
+    ItemsUnionState<String> state = (ItemsUnionState<String>) eval.getNewAggregationBuffer();
+    ItemsSketch<String> sketch = ItemsSketch.getInstance(comparator);
+    for (int i = 0; i < 10000; i++) {
+      final String item = String.format("item%06d", i);
+      eval.iterate(state, new Object[] { new org.apache.hadoop.io.Text(item) });
+      sketch.update(item);
+    }
+    // at least the retained strings themselves
+    final int sizeAfterIterate = state.estimate();
+    Assert.assertTrue(sizeAfterIterate > sketch.getRetainedItems() * 40);
+    Assert.assertTrue(sizeAfterIterate < sketch.getRetainedItems() * 200);
+    eval.close();
+
+    eval.init(Mode.FINAL, new ObjectInspector[] { binaryInspector });
+    @SuppressWarnings("unchecked")
+    ItemsUnionState<String> state2 = (ItemsUnionState<String>) eval.getNewAggregationBuffer();
+    eval.merge(state2, new BytesWritable(sketch.toByteArray(serDe)));
+    Assert.assertEquals(state2.estimate(), sizeAfterIterate, sizeAfterIterate / 10);
+    eval.merge(state2, new BytesWritable(sketch.toByteArray(serDe)));
+    Assert.assertTrue(state2.estimate() > sizeAfterIterate);
+    eval.close();
+  }
+
 }
@@ -4,13 +4,22 @@
  */
 package com.yahoo.sketches.hive.quantiles;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.BoundarySpec;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.Direction;
+import org.apache.hadoop.hive.ql.plan.ptf.CurrentRowDef;
+import org.apache.hadoop.hive.ql.plan.ptf.RangeBoundaryDef;
+import org.apache.hadoop.hive.ql.plan.ptf.WindowFrameDef;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationBuffer;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.Mode;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFParameterInfo;
+import org.apache.hadoop.hive.ql.udf.generic.ISupportStreamingModeForWindowing;
 import org.apache.hadoop.hive.ql.udf.generic.SimpleGenericUDAFParameterInfo;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
@@ -223,4 +232,104 @@ public class UnionDoublesSketchUDAFTest {
     eval.close();
   }
 
+  // COMPLETE mode in a window: streamed sliding frames must match unions of the same rows
+  @Test
+  public void completeModeSlidingWindow() throws Exception {
+    checkSlidingWindow(2, 0, 16);
+    checkSlidingWindow(1, 2, 16);
+    checkSlidingWindow(0, 0, 16);
+  }
+
+  // input sketches with a larger k are downsized even in frames with a single sketch
+  @Test
+  public void completeModeSlidingWindowDownsizeInput() throws Exception {
+    checkSlidingWindow(2, 0, 32);
+    checkSlidingWindow(0, 0, 32);
+  }
+
+  @Test
+  public void unboundedWindowNotStreamed() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new UnionDoublesSketchUDAF().getEvaluator(info);
+    eval.init(Mode.COMPLETE, inspectors);
+    Assert.assertNull(eval.getWindowingEvaluator(getFrame(BoundarySpec.UNBOUNDED_AMOUNT, 0)));
+    eval.close();
+  }
+
+  private static void checkSlidingWindow(final int numPreceding, final int numFollowing, final int sketchK)
+      throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector, intInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new UnionDoublesSketchUDAF().getEvaluator(info);
+    eval.init(Mode.COMPLETE, inspectors);
+    GenericUDAFEvaluator streamingEval = eval.getWindowingEvaluator(getFrame(numPreceding, numFollowing));
+    Assert.assertTrue(streamingEval instanceof ISupportStreamingModeForWindowing);
+    ISupportStreamingModeForWindowing streaming = (ISupportStreamingModeForWindowing) streamingEval;
+
+    // the first rows and rows 5 and 6 have no sketch
+    // each sketch has only a few values, so that unions of the frames are exact
+    final int numRows = 12;
+    BytesWritable[] sketches = new BytesWritable[numRows];
+    for (int i = 3; i < numRows; i++) {
+      if (i == 5 || i == 6) { continue; }
+      UpdateDoublesSketch sketch = DoublesSketch.builder().setK(sketchK).build();
+      for (int j = 0; j < 3; j++) { sketch.update(i * 10 + j); }
+      sketches[i] = new BytesWritable(sketch.toByteArray());
+    }
+
+    // the same calls as Hive makes in streaming mode, two partitions in a row
+    @SuppressWarnings("deprecation")
+    AggregationBuffer buf = streamingEval.getNewAggregationBuffer();
+    for (int partition = 0; partition < 2; partition++) {
+      List<Object> results = new ArrayList<>();
+      for (int i = 0; i < numRows; i++) {
+        streamingEval.aggregate(buf, new Object[] { sketches[i], new IntWritable(16) });
+        Object result = streaming.getNextResult(buf);
+        if (result != null) { results.add(result); }
+      }
+      streamingEval.terminate(buf);
+      for (int i = 0; i < streaming.getRowsRemainingAfterTerminate(); i++) {
+        Object result = streaming.getNextResult(buf);
+        if (result != null) { results.add(result); }
+      }
+      streamingEval.reset(buf);
+      Assert.assertEquals(results.size(), numRows);
+
+      for (int i = 0; i < numRows; i++) {
+        @SuppressWarnings("deprecation")
+        AggregationBuffer state = eval.getNewAggregationBuffer();
+        for (int j = Math.max(0, i - numPreceding); j <= Math.min(numRows - 1, i + numFollowing); j++) {
+          eval.iterate(state, new Object[] { sketches[j], new IntWritable(16) });
+        }
+        BytesWritable expected = (BytesWritable) eval.terminate(state);
+        if (expected == null) {
+          Assert.assertSame(results.get(i), ISupportStreamingModeForWindowing.NULL_RESULT);
+          continue;
+        }
+        DoublesSketch expectedSketch = DoublesSketch.wrap(Memory.wrap(expected.copyBytes()));
+        DoublesSketch resultSketch = DoublesSketch.wrap(Memory.wrap(((BytesWritable) results.get(i)).getBytes()));
+        Assert.assertEquals(resultSketch.getK(), 16);
+        Assert.assertEquals(resultSketch.getN(), expectedSketch.getN());
+        Assert.assertEquals(resultSketch.getMinValue(), expectedSketch.getMinValue());
+        Assert.assertEquals(resultSketch.getMaxValue(), expectedSketch.getMaxValue());
+        Assert.assertEquals(resultSketch.getQuantile(0.5), expectedSketch.getQuantile(0.5));
+      }
+    }
+    eval.close();
+  }
+
+  private static WindowFrameDef getFrame(final int numPreceding, final int numFollowing) {
+    RangeBoundaryDef start = new RangeBoundaryDef();
+    start.setDirection(Direction.PRECEDING);
+    start.setAmt(numPreceding);
+    RangeBoundaryDef end = new RangeBoundaryDef();
+    end.setDirection(Direction.FOLLOWING);
+    end.setAmt(numFollowing);
+    WindowFrameDef frame = new WindowFrameDef();
+    frame.setStart(start);
+    frame.setEnd(numFollowing == 0 ? new CurrentRowDef() : end);
+    return frame;
+  }
+
 }
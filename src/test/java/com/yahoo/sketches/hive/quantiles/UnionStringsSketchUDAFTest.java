@@ -7,6 +7,7 @@ package com.yahoo.sketches.hive.quantiles;
 import java.util.Arrays;
 import java.util.Comparator;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
@@ -25,6 +26,7 @@ import org.testng.annotations.Test;
 import com.yahoo.memory.Memory;
 import com.yahoo.sketches.ArrayOfItemsSerDe;
 import com.yahoo.sketches.ArrayOfStringsSerDe;
+import com.yahoo.sketches.hive.CountingReporter;
 import com.yahoo.sketches.quantiles.ItemsSketch;
 
 public class UnionStringsSketchUDAFTest {
@@ -233,4 +235,33 @@ public class UnionStringsSketchUDAFTest {
     eval.close();
   }
 
+  @Test
+  public void finalModeCountersPublishedWhenEnabled() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new UnionStringsSketchUDAF().getEvaluator(info);
+    CountingReporter counters = new CountingReporter("Sketches: quantiles");
+    eval.configure(counters.initContext(false));
+    eval.init(Mode.FINAL, inspectors);
+
+    @SuppressWarnings("unchecked")
+    ItemsUnionState<String> state = (ItemsUnionState<String>) eval.getNewAggregationBuffer();
+    long bytes = 0;
+    for (String value: new String[] {"a", "b"}) {
+      ItemsSketch<String> sketch = ItemsSketch.getInstance(256, comparator);
+      sketch.update(value);
+      BytesWritable serializedSketch = new BytesWritable(sketch.toByteArray(serDe));
+      bytes += serializedSketch.getLength();
+      eval.merge(state, serializedSketch);
+    }
+
+    eval.terminate(state);
+    Assert.assertEquals(counters.get("PARTIALS_MERGED"), Long.valueOf(2));
+    Assert.assertEquals(counters.get("BYTES_DESERIALIZED"), Long.valueOf(bytes));
+    Assert.assertNull(counters.get("ROWS_INGESTED"));
+
+    eval.close();
+    MapredContext.close();
+  }
+
 }
@@ -10,6 +10,7 @@ import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.parse.SemanticException;
@@ -35,6 +36,7 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.CountingReporter;
 import com.yahoo.sketches.theta.SetOperation;
 import com.yahoo.sketches.theta.Sketch;
 import com.yahoo.sketches.theta.Sketches;
@@ -154,7 +156,7 @@ public class DataToSketchUDAFTest {
     ObjectInspector resultInspector = eval.init(Mode.PARTIAL1, inspectors);
     checkIntermediateResultInspector(resultInspector);
 
-    UnionState state = (UnionState) eval.getNewAggregationBuffer();
+    State state = (State) eval.getNewAggregationBuffer();
     eval.iterate(state, new Object[] {new IntWritable(1)});
     eval.iterate(state, new Object[] {new IntWritable(2)});
 
@@ -181,7 +183,7 @@ public class DataToSketchUDAFTest {
     checkIntermediateResultInspector(resultInspector);
 
     final long seed = 1;
-    UnionState state = (UnionState) eval.getNewAggregationBuffer();
+    State state = (State) eval.getNewAggregationBuffer();
     eval.iterate(state, new Object[] {new Text("a"), new IntWritable(16), new FloatWritable(0.99f), new LongWritable(seed)});
     eval.iterate(state, new Object[] {new Text("b"), new IntWritable(16), new FloatWritable(0.99f), new LongWritable(seed)});
 
@@ -206,6 +208,35 @@ public class DataToSketchUDAFTest {
   }
 
   // PARTIAL2 mode (Combine phase in Map-Reduce): merge + terminatePartial
+  @Test
+  public void partial1ModeConstantParametersResolvedInInit() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] {
+      intInspector,
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(TypeInfoFactory.intTypeInfo,
+          new IntWritable(16)),
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(TypeInfoFactory.floatTypeInfo,
+          new FloatWritable(0.99f)),
+      PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(TypeInfoFactory.longTypeInfo,
+          new LongWritable(1))
+    };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToSketchUDAF().getEvaluator(info);
+    eval.init(Mode.PARTIAL1, inspectors);
+
+    // the parameters in the rows are not looked at
+    for (int i = 0; i < 2; i++) {
+      State state = (State) eval.getNewAggregationBuffer();
+      eval.iterate(state, new Object[] {new IntWritable(i), null, null, null});
+      List<?> r = (List<?>) eval.terminatePartial(state);
+      Assert.assertEquals(((IntWritable) (r.get(0))).get(), 16);
+      Assert.assertEquals(((LongWritable) (r.get(1))).get(), 1);
+      Sketch resultSketch = Sketches.wrapSketch(Memory.wrap(((BytesWritable) (r.get(2))).getBytes()), 1);
+      Assert.assertEquals(resultSketch.getRetainedEntries(true), 1);
+    }
+
+    eval.close();
+  }
+
   @Test
   public void partial2Mode() throws Exception {
     ObjectInspector[] inspectors = new ObjectInspector[] { intInspector };
@@ -290,7 +321,7 @@ public class DataToSketchUDAFTest {
     ObjectInspector resultInspector = eval.init(Mode.COMPLETE, inspectors);
     checkFinalResultInspector(resultInspector);
 
-    UnionState state = (UnionState) eval.getNewAggregationBuffer();
+    State state = (State) eval.getNewAggregationBuffer();
     eval.iterate(state, new Object[] {new IntWritable(1)});
     eval.iterate(state, new Object[] {new IntWritable(2)});
 
@@ -316,7 +347,7 @@ public class DataToSketchUDAFTest {
     checkFinalResultInspector(resultInspector);
 
     final long seed = 2;
-    UnionState state = (UnionState) eval.getNewAggregationBuffer();
+    State state = (State) eval.getNewAggregationBuffer();
     eval.iterate(state, new Object[] {new DoubleWritable(1), new IntWritable(16), new FloatWritable(0.99f), new LongWritable(seed)});
     eval.iterate(state, new Object[] {new DoubleWritable(2), new IntWritable(16), new FloatWritable(0.99f), new LongWritable(seed)});
 
@@ -363,4 +394,80 @@ public class DataToSketchUDAFTest {
     );
   }
 
+  @Test
+  public void estimateSizeInPartial1Mode() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { intInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToSketchUDAF().getEvaluator(info);
+    eval.init(Mode.PARTIAL1, inspectors);
+
+    SketchState state = (SketchState) eval.getNewAggregationBuffer();
+    UpdateSketch sketch = UpdateSketch.builder().build();
+    for (int i = 0; i < 10000; i++) {
+      eval.iterate(state, new Object[] {new IntWritable(i)});
+      sketch.update(i);
+      if (i % 500 == 0) {
+        Assert.assertEquals(state.estimate(), sketch.getCurrentBytes(false), 256);
+      }
+    }
+    Assert.assertEquals(state.estimate(), sketch.getCurrentBytes(false), 256);
+
+    eval.close();
+  }
+
+  @Test
+  public void completeModeStringValuesHashedAsUtf8() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { stringInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToSketchUDAF().getEvaluator(info);
+    eval.init(Mode.COMPLETE, inspectors);
+
+    final String[] values = {"a long value to grow the buffer", "a", "\u00fc", "\u65e5\u672c", ""};
+    State state = (State) eval.getNewAggregationBuffer();
+    UpdateSketch sketch = UpdateSketch.builder().build();
+    // the same Text is reused, so its backing array is longer than the later values
+    Text text = new Text();
+    for (String value: values) {
+      text.set(value);
+      eval.iterate(state, new Object[] {text});
+      sketch.update(value);
+    }
+
+    Sketch resultSketch = Sketches.wrapSketch(Memory.wrap(((BytesWritable) eval.terminate(state)).getBytes()));
+    Assert.assertEquals(resultSketch.getEstimate(), 4.0);
+    // same hashes as updating with strings, so the union has no extra entries
+    Union union = SetOperation.builder().buildUnion();
+    union.update(resultSketch);
+    union.update(sketch);
+    Assert.assertEquals(union.getResult().getEstimate(), 4.0);
+
+    eval.close();
+  }
+
+  @Test
+  public void partial1ModeCountersPublishedWhenEnabled() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { intInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new DataToSketchUDAF().getEvaluator(info);
+    CountingReporter counters = new CountingReporter("Sketches: theta");
+    MapredContext context = counters.initContext(true);
+    eval.configure(context);
+    eval.init(Mode.PARTIAL1, inspectors);
+
+    State state = (State) eval.getNewAggregationBuffer();
+    eval.iterate(state, new Object[] {new IntWritable(1)});
+    eval.iterate(state, new Object[] {null});
+    eval.iterate(state, new Object[] {new IntWritable(2)});
+
+    Object result = eval.terminatePartial(state);
+    BytesWritable bytes = (BytesWritable) ((List<?>) result).get(2);
+    Assert.assertEquals(counters.get("ROWS_INGESTED"), Long.valueOf(2));
+    Assert.assertEquals(counters.get("NULL_ROWS_SKIPPED"), Long.valueOf(1));
+    Assert.assertEquals(counters.get("BYTES_SERIALIZED"), Long.valueOf(bytes.getLength()));
+    Assert.assertNull(counters.get("PARTIALS_MERGED"));
+
+    eval.close();
+    MapredContext.close();
+  }
+
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.theta;
+
+import org.apache.hadoop.io.BytesWritable;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.yahoo.memory.Memory;
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.theta.SetOperation;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.Sketches;
+import com.yahoo.sketches.theta.Union;
+import com.yahoo.sketches.theta.UpdateSketch;
+
+public class DownsampleSketchUDFTest {
+
+  @Test
+  public void nullSketch() {
+    Assert.assertNull(new DownsampleSketchUDF().evaluate(null, 1024));
+  }
+
+  @Test
+  public void emptySketch() {
+    BytesWritable result = new DownsampleSketchUDF().evaluate(new BytesWritable(), 1024);
+    Sketch sketch = Sketches.wrapSketch(Memory.wrap(result.getBytes()));
+    Assert.assertEquals(sketch.getEstimate(), 0.0);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void invalidSize() {
+    new DownsampleSketchUDF().evaluate(new BytesWritable(UpdateSketch.builder().build().compact().toByteArray()), 5);
+  }
+
+  @Test
+  public void largeSketch() {
+    UpdateSketch sketch = UpdateSketch.builder().setNominalEntries(65536).build();
+    for (int i = 0; i < 200000; i++) {
+      sketch.update(i);
+    }
+    BytesWritable input = new BytesWritable(sketch.compact().toByteArray());
+
+    BytesWritable output = new DownsampleSketchUDF().evaluate(input, 4096);
+    Sketch result = Sketches.wrapSketch(Memory.wrap(output.getBytes()));
+    Assert.assertTrue(result.getRetainedEntries(true) <= 4096);
+    Assert.assertTrue(result.getTheta() < sketch.getTheta());
+    Assert.assertEquals(result.getEstimate(), 200000.0, 200000 * 0.05);
+    Assert.assertTrue(output.getLength() < input.getLength() / 10);
+  }
+
+  @Test
+  public void smallSketchAsIs() {
+    UpdateSketch sketch = UpdateSketch.builder().build();
+    for (int i = 0; i < 100; i++) {
+      sketch.update(i);
+    }
+    byte[] bytes = sketch.compact().toByteArray();
+    BytesWritable output = new DownsampleSketchUDF().evaluate(new BytesWritable(bytes), 1024);
+    Assert.assertEquals(output.copyBytes(), bytes);
+  }
+
+  // 1000 is rounded up to 1024 by the union, which would retain all 1010 entries
+  @Test
+  public void sizeNotPowerOf2SketchAsIs() {
+    UpdateSketch sketch = UpdateSketch.builder().setNominalEntries(1024).build();
+    for (int i = 0; i < 1010; i++) {
+      sketch.update(i);
+    }
+    byte[] bytes = sketch.compact().toByteArray();
+    BytesWritable output = new DownsampleSketchUDF().evaluate(new BytesWritable(bytes), 1000);
+    Assert.assertEquals(output.copyBytes(), bytes);
+    Union union = SetOperation.builder().setNominalEntries(1000).buildUnion();
+    union.update(sketch);
+    Assert.assertEquals(output.copyBytes(), union.getResult().toByteArray());
+  }
+
+  @Test
+  public void updateSketchExplicitSeed() {
+    final long seed = 1;
+    UpdateSketch sketch = UpdateSketch.builder().setSeed(seed).setNominalEntries(4096).build();
+    for (int i = 0; i < 100000; i++) {
+      sketch.update(i);
+    }
+    BytesWritable output = new DownsampleSketchUDF().evaluate(new BytesWritable(sketch.toByteArray()), 256, seed);
+    Sketch result = Sketches.wrapSketch(Memory.wrap(output.getBytes()), seed);
+    Assert.assertTrue(result.isCompact());
+    Assert.assertTrue(result.getRetainedEntries(true) <= 256);
+    Assert.assertEquals(result.getEstimate(), 100000.0, 100000 * 0.2);
+  }
+
+}
@@ -36,6 +36,24 @@ public class EstimateSketchUDFTest {
     assertEquals(testResult, 0.0);
   }
   
+  @Test
+  public void evaluatePaddedBuffer() {
+    EstimateSketchUDF testObject = new EstimateSketchUDF();
+
+    // an empty writable with a large backing array
+    BytesWritable testInput = new BytesWritable();
+    testInput.setCapacity(1024);
+    assertEquals(testObject.evaluate(testInput), 0.0);
+
+    UpdateSketch sketch = Sketches.updateSketchBuilder().setNominalEntries(1024).build();
+    for (int i = 0; i<128; i++) {
+      sketch.update(i);
+    }
+    byte[] bytes = sketch.compact().toByteArray();
+    testInput.set(bytes, 0, bytes.length);
+    assertEquals(testObject.evaluate(testInput), 128.0);
+  }
+
   @Test
   public void evaluateValid() {
     EstimateSketchUDF testObject = new EstimateSketchUDF();
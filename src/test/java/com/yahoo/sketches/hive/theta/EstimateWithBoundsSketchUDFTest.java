@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.theta;
+
+import java.util.List;
+
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.Sketches;
+import com.yahoo.sketches.theta.UpdateSketch;
+
+public class EstimateWithBoundsSketchUDFTest {
+
+  private static final ObjectInspector binaryInspector =
+      PrimitiveObjectInspectorFactory.writableBinaryObjectInspector;
+
+  @Test(expectedExceptions = UDFArgumentLengthException.class)
+  public void initTooManyArguments() throws Exception {
+    new EstimateWithBoundsSketchUDF().initialize(new ObjectInspector[] {
+        binaryInspector, getIntConstantInspector(2), getLongConstantInspector(1), getIntConstantInspector(1) });
+  }
+
+  @Test(expectedExceptions = UDFArgumentTypeException.class)
+  public void initNonConstantNumStdDevs() throws Exception {
+    new EstimateWithBoundsSketchUDF().initialize(new ObjectInspector[] {
+        binaryInspector, PrimitiveObjectInspectorFactory.writableIntObjectInspector });
+  }
+
+  @Test(expectedExceptions = UDFArgumentException.class)
+  public void initInvalidNumStdDevs() throws Exception {
+    new EstimateWithBoundsSketchUDF().initialize(new ObjectInspector[] {
+        binaryInspector, getIntConstantInspector(4) });
+  }
+
+  @Test
+  public void structFields() throws Exception {
+    StructObjectInspector inspector = (StructObjectInspector)
+        new EstimateWithBoundsSketchUDF().initialize(new ObjectInspector[] { binaryInspector });
+    List<? extends StructField> fields = inspector.getAllStructFieldRefs();
+    Assert.assertEquals(fields.size(), 5);
+    Assert.assertEquals(fields.get(0).getFieldName(), "estimate");
+    Assert.assertEquals(fields.get(1).getFieldName(), "lower_bound");
+    Assert.assertEquals(fields.get(2).getFieldName(), "upper_bound");
+    Assert.assertEquals(fields.get(3).getFieldName(), "retained_entries");
+    Assert.assertEquals(fields.get(4).getFieldName(), "theta");
+  }
+
+  @Test
+  public void nullAndEmpty() throws Exception {
+    EstimateWithBoundsSketchUDF udf = new EstimateWithBoundsSketchUDF();
+    udf.initialize(new ObjectInspector[] { binaryInspector });
+    List<?> result = (List<?>) udf.evaluate(new DeferredObject[] { new DeferredJavaObject(null) });
+    Assert.assertEquals(result.get(0), 0.0);
+    Assert.assertEquals(result.get(3), 0);
+    Assert.assertEquals(result.get(4), 1.0);
+
+    UpdateSketch sketch = Sketches.updateSketchBuilder().build();
+    result = (List<?>) udf.evaluate(new DeferredObject[] {
+        new DeferredJavaObject(new BytesWritable(sketch.compact().toByteArray())) });
+    Assert.assertEquals(result.get(0), 0.0);
+    Assert.assertEquals(result.get(3), 0);
+  }
+
+  @Test
+  public void exactMode() throws Exception {
+    EstimateWithBoundsSketchUDF udf = new EstimateWithBoundsSketchUDF();
+    udf.initialize(new ObjectInspector[] { binaryInspector });
+    UpdateSketch sketch = Sketches.updateSketchBuilder().build();
+    for (int i = 0; i < 100; i++) {
+      sketch.update(i);
+    }
+    List<?> result = (List<?>) udf.evaluate(new DeferredObject[] {
+        new DeferredJavaObject(new BytesWritable(sketch.compact().toByteArray())) });
+    Assert.assertEquals(result.get(0), 100.0);
+    Assert.assertEquals(result.get(1), 100.0);
+    Assert.assertEquals(result.get(2), 100.0);
+    Assert.assertEquals(result.get(3), 100);
+    Assert.assertEquals(result.get(4), 1.0);
+  }
+
+  @Test
+  public void estimationModeWithNumStdDevsAndSeed() throws Exception {
+    final long seed = 1;
+    EstimateWithBoundsSketchUDF udf = new EstimateWithBoundsSketchUDF();
+    udf.initialize(new ObjectInspector[] { binaryInspector, getIntConstantInspector(3),
+        getLongConstantInspector(seed) });
+    UpdateSketch sketch = Sketches.updateSketchBuilder().setSeed(seed).setNominalEntries(1024).build();
+    for (int i = 0; i < 10000; i++) {
+      sketch.update(i);
+    }
+    Sketch compactSketch = sketch.compact();
+    List<?> result = (List<?>) udf.evaluate(new DeferredObject[] {
+        new DeferredJavaObject(new BytesWritable(compactSketch.toByteArray())) });
+    Assert.assertEquals(result.get(0), compactSketch.getEstimate());
+    Assert.assertEquals(result.get(1), compactSketch.getLowerBound(3));
+    Assert.assertEquals(result.get(2), compactSketch.getUpperBound(3));
+    Assert.assertEquals(result.get(3), compactSketch.getRetainedEntries(true));
+    Assert.assertEquals(result.get(4), compactSketch.getTheta());
+    Assert.assertTrue((Double) result.get(4) < 1.0);
+
+    // the sketch in update form gives the same result
+    List<?> resultFromUpdateSketch = (List<?>) udf.evaluate(new DeferredObject[] {
+        new DeferredJavaObject(new BytesWritable(sketch.toByteArray())) });
+    Assert.assertEquals(resultFromUpdateSketch.get(0), result.get(0));
+  }
+
+  @Test
+  public void repeatedSketch() throws Exception {
+    EstimateWithBoundsSketchUDF udf = new EstimateWithBoundsSketchUDF();
+    udf.initialize(new ObjectInspector[] { binaryInspector });
+    UpdateSketch sketch = Sketches.updateSketchBuilder().setNominalEntries(1024).build();
+    for (int i = 0; i < 10000; i++) {
+      sketch.update(i);
+    }
+    BytesWritable serializedSketch = new BytesWritable(sketch.compact().toByteArray());
+    Object result1 = udf.evaluate(new DeferredObject[] { new DeferredJavaObject(serializedSketch) });
+    Object result2 = udf.evaluate(new DeferredObject[] { new DeferredJavaObject(serializedSketch) });
+    Assert.assertSame(result2, result1);
+
+    // the same instance reused with different content
+    UpdateSketch otherSketch = Sketches.updateSketchBuilder().setNominalEntries(1024).build();
+    for (int i = 0; i < 20000; i++) {
+      otherSketch.update(i);
+    }
+    byte[] otherBytes = otherSketch.compact().toByteArray();
+    serializedSketch.set(otherBytes, 0, otherBytes.length);
+    List<?> result3 = (List<?>) udf.evaluate(new DeferredObject[] { new DeferredJavaObject(serializedSketch) });
+    Assert.assertNotSame(result3, result1);
+    Assert.assertEquals(result3.get(0), otherSketch.getEstimate());
+  }
+
+  private static ObjectInspector getIntConstantInspector(final int value) {
+    return PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+        TypeInfoFactory.intTypeInfo, new IntWritable(value));
+  }
+
+  private static ObjectInspector getLongConstantInspector(final long value) {
+    return PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+        TypeInfoFactory.longTypeInfo, new LongWritable(value));
+  }
+
+}
@@ -298,4 +298,30 @@ public class IntersectSketchUDAFTest {
     Assert.assertEquals(primitiveInspector2.getPrimitiveCategory(), PrimitiveCategory.BINARY);
   }
 
+  @Test
+  public void estimateSize() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new IntersectSketchUDAF().getEvaluator(info);
+    eval.init(Mode.PARTIAL1, inspectors);
+
+    IntersectSketchUDAF.IntersectSketchUDAFEvaluator.IntersectionState state =
+        (IntersectSketchUDAF.IntersectSketchUDAFEvaluator.IntersectionState) eval.getNewAggregationBuffer();
+    final int emptySize = state.estimate();
+
+    UpdateSketch sketch1 = UpdateSketch.builder().build();
+    for (int i = 0; i < 1000; i++) { sketch1.update(i); }
+    eval.iterate(state, new Object[] { new BytesWritable(sketch1.compact().toByteArray()) });
+    final int sizeAfterLargeSketch = state.estimate();
+    Assert.assertTrue(sizeAfterLargeSketch > emptySize + 1000 * 8);
+
+    // the intersection cannot grow beyond the smallest sketch
+    UpdateSketch sketch2 = UpdateSketch.builder().build();
+    for (int i = 0; i < 10; i++) { sketch2.update(i); }
+    eval.iterate(state, new Object[] { new BytesWritable(sketch2.compact().toByteArray()) });
+    Assert.assertTrue(state.estimate() < sizeAfterLargeSketch);
+
+    eval.close();
+  }
+
 }
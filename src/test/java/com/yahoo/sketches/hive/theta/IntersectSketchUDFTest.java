@@ -4,8 +4,11 @@
  *******************************************************************************/
 package com.yahoo.sketches.hive.theta;
 
+import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
 import static org.testng.AssertJUnit.assertEquals;
 
+import java.util.Arrays;
+
 import org.apache.hadoop.io.BytesWritable;
 import org.testng.annotations.Test;
 
@@ -83,4 +86,78 @@ public class IntersectSketchUDFTest  {
     assertEquals(28.0, result.getEstimate());
   }
 
+  @Test
+  public void evaluateManySketches() {
+    IntersectSketchUDF testObject = new IntersectSketchUDF();
+
+    BytesWritable[] inputs = new BytesWritable[5];
+    for (int j = 0; j < 5; j++) {
+      UpdateSketch sketch = Sketches.updateSketchBuilder().setNominalEntries(1024).build();
+      for (int i = j * 10; i < 200; i++) {
+        sketch.update(i);
+      }
+      inputs[j] = new BytesWritable(sketch.compact().toByteArray());
+    }
+
+    BytesWritable output = testObject.evaluate(inputs);
+    Sketch result = Sketches.wrapSketch(Memory.wrap(output.getBytes()));
+    assertEquals(160.0, result.getEstimate());
+
+    BytesWritable outputFromArray = testObject.evaluate(Arrays.asList(inputs));
+    assertEquals(Arrays.toString(output.copyBytes()), Arrays.toString(outputFromArray.copyBytes()));
+  }
+
+  @Test
+  public void evaluateStopsAtEmptySketch() {
+    IntersectSketchUDF testObject = new IntersectSketchUDF();
+
+    UpdateSketch sketch = Sketches.updateSketchBuilder().setNominalEntries(1024).build();
+    for (int i = 0; i < 128; i++) {
+      sketch.update(i);
+    }
+    BytesWritable input = new BytesWritable(sketch.compact().toByteArray());
+
+    // the sketch after the empty one is not even wrapped
+    BytesWritable output = testObject.evaluate(Arrays.asList(input, null, new BytesWritable(new byte[] {1})),
+        DEFAULT_UPDATE_SEED);
+    Sketch result = Sketches.wrapSketch(Memory.wrap(output.getBytes()));
+    assertEquals(0.0, result.getEstimate());
+    assertEquals(Arrays.toString(testObject.evaluate(input, null).copyBytes()),
+        Arrays.toString(output.copyBytes()));
+  }
+
+  @Test
+  public void evaluateRepeatedSketchInReusedBuffers() {
+    IntersectSketchUDF testObject = new IntersectSketchUDF();
+
+    // the same segment sketch in every row, while the buffers are reused by the caller
+    BytesWritable factBuffer = new BytesWritable();
+    BytesWritable segmentBuffer = new BytesWritable();
+    byte[] segment = getSketchBytes(0, 1000);
+    for (int row = 0; row < 10; row++) {
+      byte[] fact = getSketchBytes(row * 100, row * 100 + 200);
+      factBuffer.set(fact, 0, fact.length);
+      segmentBuffer.set(segment, 0, segment.length);
+      BytesWritable output = testObject.evaluate(factBuffer, segmentBuffer);
+      BytesWritable expected = new IntersectSketchUDF().evaluate(new BytesWritable(fact), new BytesWritable(segment));
+      assertEquals(Arrays.toString(expected.copyBytes()), Arrays.toString(output.copyBytes()));
+      assertEquals(row < 9 ? 200.0 : 100.0, Sketches.wrapSketch(Memory.wrap(output.getBytes())).getEstimate());
+    }
+
+    // new content in the same buffer is seen
+    byte[] otherSegment = getSketchBytes(0, 50);
+    segmentBuffer.set(otherSegment, 0, otherSegment.length);
+    BytesWritable output = testObject.evaluate(factBuffer, segmentBuffer);
+    assertEquals(0.0, Sketches.wrapSketch(Memory.wrap(output.getBytes())).getEstimate());
+  }
+
+  // sketch of values from start inclusive to end exclusive
+  private static byte[] getSketchBytes(final int start, final int end) {
+    UpdateSketch sketch = Sketches.updateSketchBuilder().setNominalEntries(1024).build();
+    for (int i = start; i < end; i++) {
+      sketch.update(i);
+    }
+    return sketch.compact().toByteArray();
+  }
+
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2018, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hive.theta;
+
+import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
+
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.yahoo.memory.Memory;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.Sketches;
+import com.yahoo.sketches.theta.UpdateSketch;
+
+public class SetExpressionSketchUDFTest {
+
+  private static final ObjectInspector binaryInspector =
+      PrimitiveObjectInspectorFactory.writableBinaryObjectInspector;
+
+  @Test(expectedExceptions = UDFArgumentLengthException.class)
+  public void initNoSketches() throws Exception {
+    new SetExpressionSketchUDF().initialize(new ObjectInspector[] { getExpressionInspector("A") });
+  }
+
+  @Test(expectedExceptions = UDFArgumentTypeException.class)
+  public void initNonConstantExpression() throws Exception {
+    new SetExpressionSketchUDF().initialize(new ObjectInspector[] {
+        PrimitiveObjectInspectorFactory.writableStringObjectInspector, binaryInspector });
+  }
+
+  @Test(expectedExceptions = UDFArgumentException.class)
+  public void initMalformedExpression() throws Exception {
+    new SetExpressionSketchUDF().initialize(
+        new ObjectInspector[] { getExpressionInspector("(A | B"), binaryInspector, binaryInspector });
+  }
+
+  @Test(expectedExceptions = UDFArgumentException.class)
+  public void initUnknownOperator() throws Exception {
+    new SetExpressionSketchUDF().initialize(
+        new ObjectInspector[] { getExpressionInspector("A + B"), binaryInspector, binaryInspector });
+  }
+
+  @Test(expectedExceptions = UDFArgumentLengthException.class)
+  public void initMissingSketch() throws Exception {
+    new SetExpressionSketchUDF().initialize(
+        new ObjectInspector[] { getExpressionInspector("A | C"), binaryInspector, binaryInspector });
+  }
+
+  @Test(expectedExceptions = UDFArgumentTypeException.class)
+  public void initNonBinarySketch() throws Exception {
+    new SetExpressionSketchUDF().initialize(new ObjectInspector[] { getExpressionInspector("A | B"),
+        binaryInspector, PrimitiveObjectInspectorFactory.writableStringObjectInspector });
+  }
+
+  @Test
+  public void singleSketch() throws Exception {
+    SetExpressionSketchUDF udf = new SetExpressionSketchUDF();
+    udf.initialize(new ObjectInspector[] { getExpressionInspector(" a "), binaryInspector });
+    BytesWritable result = (BytesWritable) udf.evaluate(getArguments(getSketch(0, 100)));
+    Assert.assertEquals(getEstimate(result), 100.0);
+  }
+
+  @Test
+  public void allNulls() throws Exception {
+    SetExpressionSketchUDF udf = new SetExpressionSketchUDF();
+    udf.initialize(new ObjectInspector[] { getExpressionInspector("(A | B) & C - D"),
+        binaryInspector, binaryInspector, binaryInspector, binaryInspector });
+    BytesWritable result = (BytesWritable) udf.evaluate(getArguments(null, new BytesWritable(), null, null));
+    Assert.assertEquals(getEstimate(result), 0.0);
+  }
+
+  @Test
+  public void precedence() throws Exception {
+    // A - B | C & D = (A - B) | (C & D)
+    SetExpressionSketchUDF udf = new SetExpressionSketchUDF();
+    udf.initialize(new ObjectInspector[] { getExpressionInspector("A - B | C & D"),
+        binaryInspector, binaryInspector, binaryInspector, binaryInspector });
+    BytesWritable result = (BytesWritable) udf.evaluate(
+        getArguments(getSketch(0, 100), getSketch(50, 100), getSketch(200, 300), getSketch(250, 400)));
+    Assert.assertEquals(getEstimate(result), 100.0);
+  }
+
+  @Test
+  public void sameAsNestedUdfs() throws Exception {
+    BytesWritable a = getSketch(0, 1000);
+    BytesWritable b = getSketch(500, 1500);
+    BytesWritable c = getSketch(200, 1200);
+    BytesWritable d = getSketch(900, 1000);
+
+    BytesWritable expected = new ExcludeSketchUDF().evaluate(
+        new IntersectSketchUDF().evaluate(new UnionSketchUDF().evaluate(a, b), c), d);
+
+    SetExpressionSketchUDF udf = new SetExpressionSketchUDF();
+    udf.initialize(new ObjectInspector[] { getExpressionInspector("(A | B) & C - D"),
+        binaryInspector, binaryInspector, binaryInspector, binaryInspector });
+    // the compiled expression is reused across rows
+    for (int i = 0; i < 2; i++) {
+      BytesWritable result = (BytesWritable) udf.evaluate(getArguments(a, b, c, d));
+      Assert.assertEquals(getEstimate(result), getEstimate(expected));
+      Assert.assertEquals(getEstimate(result), 900.0);
+    }
+
+    // a missing sketch in an intersection makes it empty
+    BytesWritable result = (BytesWritable) udf.evaluate(getArguments(a, b, null, d));
+    Assert.assertEquals(getEstimate(result), 0.0);
+
+    // a missing sketch to exclude excludes nothing
+    result = (BytesWritable) udf.evaluate(getArguments(a, b, c, null));
+    Assert.assertEquals(getEstimate(result), 1000.0);
+  }
+
+  @Test
+  public void unionOfManySketches() throws Exception {
+    SetExpressionSketchUDF udf = new SetExpressionSketchUDF();
+    udf.initialize(new ObjectInspector[] { getExpressionInspector("A | B | (C | D) | E"),
+        binaryInspector, binaryInspector, binaryInspector, binaryInspector, binaryInspector });
+    BytesWritable result = (BytesWritable) udf.evaluate(getArguments(getSketch(0, 100),
+        getSketch(100, 200), getSketch(200, 300), getSketch(300, 400), getSketch(350, 500)));
+    Assert.assertEquals(getEstimate(result), 500.0);
+  }
+
+  @Test(expectedExceptions = UDFArgumentTypeException.class)
+  public void initNullExpression() throws Exception {
+    new SetExpressionSketchUDF().initialize(new ObjectInspector[] {
+        PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+            TypeInfoFactory.stringTypeInfo, null), binaryInspector });
+  }
+
+  @Test(expectedExceptions = UDFArgumentTypeException.class)
+  public void initNonConstantSize() throws Exception {
+    new SetExpressionSketchUDF().initialize(new ObjectInspector[] { getExpressionInspector("A"),
+        binaryInspector, PrimitiveObjectInspectorFactory.writableIntObjectInspector });
+  }
+
+  @Test(expectedExceptions = UDFArgumentException.class)
+  public void initInvalidSize() throws Exception {
+    new SetExpressionSketchUDF().initialize(new ObjectInspector[] { getExpressionInspector("A | B"),
+        binaryInspector, binaryInspector, getIntInspector(1) });
+  }
+
+  @Test(expectedExceptions = UDFArgumentLengthException.class)
+  public void initTooManyConstants() throws Exception {
+    new SetExpressionSketchUDF().initialize(new ObjectInspector[] { getExpressionInspector("A"),
+        binaryInspector, getIntInspector(1024), getLongInspector(1), getLongInspector(1) });
+  }
+
+  @Test
+  public void customSize() throws Exception {
+    SetExpressionSketchUDF udf = new SetExpressionSketchUDF();
+    udf.initialize(new ObjectInspector[] { getExpressionInspector("A | B"),
+        binaryInspector, binaryInspector, getIntInspector(16384) });
+    BytesWritable result = (BytesWritable) udf.evaluate(getArguments(getSketch(0, 5000),
+        getSketch(5000, 10000), new BytesWritable()));
+    Sketch sketch = Sketches.wrapSketch(Memory.wrap(result.getBytes()));
+    Assert.assertFalse(sketch.isEstimationMode());
+    Assert.assertEquals(sketch.getEstimate(), 10000.0);
+  }
+
+  @Test
+  public void customSeed() throws Exception {
+    final long seed = 1;
+    SetExpressionSketchUDF udf = new SetExpressionSketchUDF();
+    udf.initialize(new ObjectInspector[] { getExpressionInspector("A & B"),
+        binaryInspector, binaryInspector, getIntInspector(4096), getLongInspector(seed) });
+    BytesWritable result = (BytesWritable) udf.evaluate(getArguments(getSketch(0, 100, seed),
+        getSketch(50, 150, seed), new BytesWritable(), new BytesWritable()));
+    Sketch sketch = Sketches.wrapSketch(Memory.wrap(result.getBytes()), seed);
+    Assert.assertEquals(sketch.getEstimate(), 50.0);
+
+    result = (BytesWritable) udf.evaluate(getArguments(null, null, new BytesWritable(), new BytesWritable()));
+    Assert.assertEquals(Sketches.wrapSketch(Memory.wrap(result.getBytes()), seed).getEstimate(), 0.0);
+  }
+
+  private static ObjectInspector getIntInspector(final int value) {
+    return PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+        TypeInfoFactory.intTypeInfo, new IntWritable(value));
+  }
+
+  private static ObjectInspector getLongInspector(final long value) {
+    return PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+        TypeInfoFactory.longTypeInfo, new LongWritable(value));
+  }
+
+  private static ObjectInspector getExpressionInspector(final String expression) {
+    return PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+        TypeInfoFactory.stringTypeInfo, new Text(expression));
+  }
+
+  private static DeferredObject[] getArguments(final BytesWritable... sketches) {
+    DeferredObject[] arguments = new DeferredObject[sketches.length + 1];
+    arguments[0] = new DeferredJavaObject(null);
+    for (int i = 0; i < sketches.length; i++) {
+      arguments[i + 1] = new DeferredJavaObject(sketches[i]);
+    }
+    return arguments;
+  }
+
+  // sketch of values from start inclusive to end exclusive
+  private static BytesWritable getSketch(final int start, final int end) {
+    return getSketch(start, end, DEFAULT_UPDATE_SEED);
+  }
+
+  private static BytesWritable getSketch(final int start, final int end, final long seed) {
+    UpdateSketch sketch = Sketches.updateSketchBuilder().setSeed(seed).setNominalEntries(16384).build();
+    for (int i = start; i < end; i++) {
+      sketch.update(i);
+    }
+    return new BytesWritable(sketch.compact().toByteArray());
+  }
+
+  private static double getEstimate(final BytesWritable serializedSketch) {
+    Sketch sketch = Sketches.wrapSketch(Memory.wrap(serializedSketch.getBytes()));
+    return sketch.getEstimate();
+  }
+
+}
@@ -7,16 +7,26 @@ package com.yahoo.sketches.hive.theta;
 import static com.yahoo.sketches.Util.DEFAULT_NOMINAL_ENTRIES;
 import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.parse.SemanticException;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.BoundarySpec;
+import org.apache.hadoop.hive.ql.parse.WindowingSpec.Direction;
+import org.apache.hadoop.hive.ql.plan.ptf.CurrentRowDef;
+import org.apache.hadoop.hive.ql.plan.ptf.RangeBoundaryDef;
+import org.apache.hadoop.hive.ql.plan.ptf.WindowFrameDef;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.AggregationBuffer;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFEvaluator.Mode;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDAFParameterInfo;
+import org.apache.hadoop.hive.ql.udf.generic.ISupportStreamingModeForWindowing;
 import org.apache.hadoop.hive.ql.udf.generic.SimpleGenericUDAFParameterInfo;
+import org.apache.hadoop.hive.ql.util.JavaDataModel;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
@@ -24,10 +34,15 @@ import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectIn
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapred.JobConf;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.yahoo.memory.Memory;
+import com.yahoo.memory.WritableMemory;
+import com.yahoo.sketches.hive.OffHeapMemory;
+import com.yahoo.sketches.hive.ParallelMerge;
+import com.yahoo.sketches.theta.SetOperation;
 import com.yahoo.sketches.theta.Sketch;
 import com.yahoo.sketches.theta.Sketches;
 import com.yahoo.sketches.theta.UpdateSketch;
@@ -181,7 +196,74 @@ public class UnionSketchUDAFTest {
     eval.close();
   }
 
+  // large sketches are re-sampled to the given size before they are shuffled
+  @Test
+  public void partial1ModeDownsamples() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector, intInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new UnionSketchUDAF().getEvaluator(info);
+    eval.init(Mode.PARTIAL1, inspectors);
+
+    final int nomEntries = 1024;
+    UnionState state = (UnionState) eval.getNewAggregationBuffer();
+    for (int s = 0; s < 2; s++) {
+      UpdateSketch sketch = UpdateSketch.builder().setNominalEntries(16384).build();
+      for (int i = s * 50000; i < s * 50000 + 100000; i++) {
+        sketch.update(i);
+      }
+      eval.iterate(state, new Object[] {new BytesWritable(sketch.compact().toByteArray()), new IntWritable(nomEntries)});
+    }
+
+    List<?> r = (List<?>) eval.terminatePartial(state);
+    Sketch resultSketch = Sketches.wrapSketch(Memory.wrap(((BytesWritable) (r.get(2))).getBytes()));
+    Assert.assertTrue(resultSketch.getRetainedEntries(true) <= nomEntries);
+    Assert.assertEquals(resultSketch.getEstimate(), 150000.0, 150000 * 0.1);
+
+    eval.close();
+  }
+
   //PARTIAL2 mode (Combine phase in Map-Reduce): merge + terminatePartial
+  @Test
+  public void partial2ModeOrderedCompactResult() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new UnionSketchUDAF().getEvaluator(info);
+    eval.init(Mode.PARTIAL2, new ObjectInspector[] {structInspector});
+
+    UnionState state = (UnionState) eval.getNewAggregationBuffer();
+
+    // unordered, update and empty sketches
+    UpdateSketch sketch1 = UpdateSketch.builder().build();
+    UpdateSketch sketch2 = UpdateSketch.builder().build();
+    for (int i = 0; i < 1000; i++) {
+      sketch1.update(i);
+      sketch2.update(i + 500);
+    }
+    byte[][] partials = new byte[][] {
+      sketch1.compact(false, null).toByteArray(),
+      sketch2.toByteArray(),
+      UpdateSketch.builder().build().compact().toByteArray()
+    };
+    for (byte[] partial: partials) {
+      eval.merge(state, Arrays.asList(
+        new IntWritable(DEFAULT_NOMINAL_ENTRIES),
+        new LongWritable(DEFAULT_UPDATE_SEED),
+        new BytesWritable(partial))
+      );
+    }
+    // the retained entries are read from the preambles of the partials
+    Assert.assertEquals(state.estimate(), JavaDataModel.get().object() * 2
+        + JavaDataModel.get().lengthForLongArrayOfSize(UnionState.getHashTableCapacity(DEFAULT_NOMINAL_ENTRIES, 2000)));
+
+    List<?> r = (List<?>) eval.terminatePartial(state);
+    Sketch resultSketch = Sketches.wrapSketch(Memory.wrap(((BytesWritable) (r.get(2))).getBytes()));
+    Assert.assertTrue(resultSketch.isCompact());
+    Assert.assertTrue(resultSketch.isOrdered());
+    Assert.assertEquals(resultSketch.getEstimate(), 1500.0);
+
+    eval.close();
+  }
+
   @Test
   public void partial2Mode() throws Exception {
     ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
@@ -258,6 +340,147 @@ public class UnionSketchUDAFTest {
   }
 
   // COMPLETE mode (single mode, alternative to MapReduce): iterate + terminate
+  @Test
+  public void finalModeOffHeap() throws Exception {
+    JobConf conf = new JobConf();
+    conf.setBoolean(OffHeapMemory.ENABLED_CONF, true);
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new UnionSketchUDAF().getEvaluator(info);
+    eval.configure(MapredContext.init(false, conf));
+    eval.init(Mode.FINAL, new ObjectInspector[] {structInspector});
+
+    long allocations = WritableMemory.getCurrentDirectMemoryAllocations();
+    UnionState state = (UnionState) eval.getNewAggregationBuffer();
+    for (int i = 0; i < 2; i++) {
+      UpdateSketch sketch = UpdateSketch.builder().build();
+      for (int j = 0; j < 10000; j++) { sketch.update(i * 5000 + j); }
+      eval.merge(state, Arrays.asList(
+        new IntWritable(DEFAULT_NOMINAL_ENTRIES),
+        new LongWritable(DEFAULT_UPDATE_SEED),
+        new BytesWritable(sketch.compact().toByteArray())
+      ));
+    }
+    Assert.assertEquals(WritableMemory.getCurrentDirectMemoryAllocations(), allocations + 1);
+    // direct memory is part of the reported size
+    Assert.assertTrue(state.estimate() > SetOperation.getMaxUnionBytes(DEFAULT_NOMINAL_ENTRIES));
+
+    Object result = eval.terminate(state);
+    Sketch resultSketch = Sketches.wrapSketch(Memory.wrap(((BytesWritable) result).getBytes()));
+    Assert.assertEquals(resultSketch.getEstimate(), 15000, 15000 * 0.03);
+    // freed once the result is serialized, since Hive may drop the buffer without a reset
+    Assert.assertEquals(WritableMemory.getCurrentDirectMemoryAllocations(), allocations);
+
+    // freed on reset
+    eval.merge(state, Arrays.asList(
+      new IntWritable(DEFAULT_NOMINAL_ENTRIES),
+      new LongWritable(DEFAULT_UPDATE_SEED),
+      new BytesWritable(UpdateSketch.builder().build().compact().toByteArray())
+    ));
+    Assert.assertEquals(WritableMemory.getCurrentDirectMemoryAllocations(), allocations + 1);
+    eval.reset(state);
+    Assert.assertEquals(WritableMemory.getCurrentDirectMemoryAllocations(), allocations);
+
+    // freed on close if not reset
+    eval.merge(eval.getNewAggregationBuffer(), Arrays.asList(
+      new IntWritable(DEFAULT_NOMINAL_ENTRIES),
+      new LongWritable(DEFAULT_UPDATE_SEED),
+      new BytesWritable(UpdateSketch.builder().build().compact().toByteArray())
+    ));
+    Assert.assertEquals(WritableMemory.getCurrentDirectMemoryAllocations(), allocations + 1);
+    eval.close();
+    Assert.assertEquals(WritableMemory.getCurrentDirectMemoryAllocations(), allocations);
+    MapredContext.close();
+  }
+
+  @Test
+  public void finalModeParallelMerge() throws Exception {
+    JobConf conf = new JobConf();
+    conf.setInt(ParallelMerge.PARALLELISM_CONF, 4);
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new UnionSketchUDAF().getEvaluator(info);
+    eval.configure(MapredContext.init(false, conf));
+    eval.init(Mode.FINAL, new ObjectInspector[] {structInspector});
+    GenericUDAFEvaluator sequentialEval = new UnionSketchUDAF().getEvaluator(info);
+    sequentialEval.init(Mode.FINAL, new ObjectInspector[] {structInspector});
+
+    // more than one batch with a remainder to be merged at the end
+    State state = (State) eval.getNewAggregationBuffer();
+    State sequentialState = (State) sequentialEval.getNewAggregationBuffer();
+    for (int i = 0; i < 300; i++) {
+      UpdateSketch sketch = UpdateSketch.builder().build();
+      for (int j = 0; j < 20; j++) { sketch.update(i * 10 + j); }
+      List<Object> partial = Arrays.<Object>asList(
+        new IntWritable(DEFAULT_NOMINAL_ENTRIES),
+        new LongWritable(DEFAULT_UPDATE_SEED),
+        new BytesWritable(sketch.compact().toByteArray())
+      );
+      eval.merge(state, partial);
+      sequentialEval.merge(sequentialState, partial);
+    }
+
+    Sketch resultSketch = Sketches.wrapSketch(
+        Memory.wrap(((BytesWritable) eval.terminate(state)).getBytes()));
+    Sketch sequentialSketch = Sketches.wrapSketch(
+        Memory.wrap(((BytesWritable) sequentialEval.terminate(sequentialState)).getBytes()));
+    Assert.assertEquals(resultSketch.getEstimate(), 3010.0);
+    Assert.assertEquals(resultSketch.getEstimate(), sequentialSketch.getEstimate());
+    eval.close();
+    MapredContext.close();
+  }
+
+  @Test
+  public void completeModeCumulativeWindow() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    GenericUDAFEvaluator eval = new UnionSketchUDAF().getEvaluator(info);
+    eval.init(Mode.COMPLETE, inspectors);
+
+    // sliding frames are not streamed
+    Assert.assertNull(eval.getWindowingEvaluator(getFrame(2)));
+
+    // ROWS BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW
+    GenericUDAFEvaluator streamingEval = eval.getWindowingEvaluator(getFrame(BoundarySpec.UNBOUNDED_AMOUNT));
+    Assert.assertTrue(streamingEval instanceof ISupportStreamingModeForWindowing);
+    ISupportStreamingModeForWindowing streaming = (ISupportStreamingModeForWindowing) streamingEval;
+    @SuppressWarnings("deprecation")
+    AggregationBuffer buf = streamingEval.getNewAggregationBuffer();
+
+    // a leading null row has a null result
+    streamingEval.aggregate(buf, new Object[] {null});
+    Assert.assertSame(streaming.getNextResult(buf), ISupportStreamingModeForWindowing.NULL_RESULT);
+
+    List<BytesWritable> results = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      UpdateSketch sketch = UpdateSketch.builder().build();
+      for (int j = 0; j < 10; j++) { sketch.update(i * 5 + j); }
+      streamingEval.aggregate(buf, new Object[] {new BytesWritable(sketch.compact().toByteArray())});
+      results.add((BytesWritable) streaming.getNextResult(buf));
+    }
+    // results of earlier rows are not overwritten by later ones
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(Sketches.wrapSketch(Memory.wrap(results.get(i).getBytes())).getEstimate(), 10.0 + i * 5);
+    }
+    Assert.assertNotNull(streamingEval.terminate(buf));
+    Assert.assertEquals(streaming.getRowsRemainingAfterTerminate(), 0);
+
+    // the next partition starts over
+    streamingEval.reset(buf);
+    Assert.assertSame(streaming.getNextResult(buf), ISupportStreamingModeForWindowing.NULL_RESULT);
+    eval.close();
+  }
+
+  private static WindowFrameDef getFrame(final int amountPreceding) {
+    RangeBoundaryDef start = new RangeBoundaryDef();
+    start.setDirection(Direction.PRECEDING);
+    start.setAmt(amountPreceding);
+    WindowFrameDef frame = new WindowFrameDef();
+    frame.setStart(start);
+    frame.setEnd(new CurrentRowDef());
+    return frame;
+  }
+
   @Test
   public void completeModeDefaultSizeAndSeed() throws Exception {
     ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
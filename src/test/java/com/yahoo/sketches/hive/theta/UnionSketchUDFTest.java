@@ -4,6 +4,8 @@
  *******************************************************************************/
 package com.yahoo.sketches.hive.theta;
 
+import java.util.Arrays;
+
 import org.apache.hadoop.io.BytesWritable;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -83,4 +85,57 @@ public class UnionSketchUDFTest {
     Assert.assertTrue(result.getRetainedEntries(true) <= 128.0);
   }
 
+  @Test
+  public void evaluateManySketches() {
+    UnionSketchUDF testObject = new UnionSketchUDF();
+
+    BytesWritable[] inputs = new BytesWritable[7];
+    for (int day = 0; day < 7; day++) {
+      UpdateSketch sketch = Sketches.updateSketchBuilder().setNominalEntries(1024).build();
+      for (int i = day * 50; i < day * 50 + 100; i++) {
+        sketch.update(i);
+      }
+      inputs[day] = new BytesWritable(sketch.compact().toByteArray());
+    }
+    // nulls and empty inputs are skipped
+    inputs[3] = null;
+    inputs[4] = new BytesWritable();
+
+    BytesWritable output = testObject.evaluate(inputs);
+    Sketch result = Sketches.wrapSketch(Memory.wrap(output.getBytes()));
+    Assert.assertEquals(result.getEstimate(), 350.0);
+
+    BytesWritable outputFromArray = testObject.evaluate(Arrays.asList(inputs));
+    Assert.assertEquals(outputFromArray.copyBytes(), output.copyBytes());
+
+    // the same as nested calls
+    BytesWritable nested = null;
+    for (BytesWritable input: inputs) {
+      nested = testObject.evaluate(nested, input);
+    }
+    Assert.assertEquals(Sketches.wrapSketch(Memory.wrap(nested.getBytes())).getEstimate(), 350.0);
+  }
+
+  @Test
+  public void evaluateArrayExplicitSizeAndSeed() {
+    UnionSketchUDF testObject = new UnionSketchUDF();
+
+    final long seed = 1;
+    UpdateSketch sketch1 = Sketches.updateSketchBuilder().setSeed(seed).setNominalEntries(1024).build();
+    for (int i = 0; i < 128; i++) {
+      sketch1.update(i);
+    }
+
+    UpdateSketch sketch2 = Sketches.updateSketchBuilder().setSeed(seed).setNominalEntries(1024).build();
+    for (int i = 100; i < 256; i++) {
+      sketch2.update(i);
+    }
+
+    BytesWritable input1 = new BytesWritable(sketch1.compact().toByteArray());
+    BytesWritable input2 = new BytesWritable(sketch2.compact().toByteArray());
+
+    BytesWritable output = testObject.evaluate(Arrays.asList(input1, input2, null), 128, seed);
+    Assert.assertEquals(output.copyBytes(), testObject.evaluate(input1, input2, 128, seed).copyBytes());
+  }
+
 }
@@ -10,6 +10,7 @@ import static com.yahoo.sketches.Util.DEFAULT_NOMINAL_ENTRIES;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.parse.SemanticException;
@@ -33,6 +34,7 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.CountingReporter;
 import com.yahoo.sketches.tuple.ArrayOfDoublesSketch;
 import com.yahoo.sketches.tuple.ArrayOfDoublesSketches;
 import com.yahoo.sketches.tuple.ArrayOfDoublesUpdatableSketch;
@@ -376,4 +378,60 @@ public class DataToArrayOfDoublesSketchUDAFTest {
     );
   }
 
+  @Test
+  public void estimateSize() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { intInspector, doubleInspector, doubleInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    ArrayOfDoublesUpdatableSketch sketch = new ArrayOfDoublesUpdatableSketchBuilder().setNumberOfValues(2).build();
+    int sizeAfterIterate;
+    try (GenericUDAFEvaluator eval = new DataToArrayOfDoublesSketchUDAF().getEvaluator(info)) {
+      eval.init(Mode.PARTIAL1, inspectors);
+      ArrayOfDoublesState state = (ArrayOfDoublesState) eval.getNewAggregationBuffer();
+      for (int i = 0; i < 1000; i++) {
+        eval.iterate(state, new Object[] {new IntWritable(i), new DoubleWritable(1), new DoubleWritable(2)});
+        sketch.update(i, new double[] {1, 2});
+      }
+      // key and two values per slot in the hash table, which is at most half full at this point
+      sizeAfterIterate = state.estimate();
+      Assert.assertTrue(sizeAfterIterate > sketch.getRetainedEntries() * 2 * 24);
+      Assert.assertTrue(sizeAfterIterate < sketch.getRetainedEntries() * 16 * 24);
+    }
+
+    try (GenericUDAFEvaluator eval = new DataToArrayOfDoublesSketchUDAF().getEvaluator(info)) {
+      eval.init(Mode.FINAL, new ObjectInspector[] {structInspector});
+      ArrayOfDoublesState state = (ArrayOfDoublesState) eval.getNewAggregationBuffer();
+      eval.merge(state, Arrays.asList(
+        new IntWritable(DEFAULT_NOMINAL_ENTRIES),
+        new IntWritable(2),
+        new BytesWritable(sketch.compact().toByteArray()))
+      );
+      Assert.assertEquals(state.estimate(), sizeAfterIterate, sizeAfterIterate / 10);
+    }
+  }
+
+  @Test
+  public void partial1ModeCountersPublishedWhenEnabled() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { intInspector, doubleInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    CountingReporter counters = new CountingReporter("Sketches: tuple");
+    try (GenericUDAFEvaluator eval = new DataToArrayOfDoublesSketchUDAF().getEvaluator(info)) {
+      eval.configure(counters.initContext(true));
+      eval.init(Mode.PARTIAL1, inspectors);
+
+      ArrayOfDoublesState state = (ArrayOfDoublesState) eval.getNewAggregationBuffer();
+      eval.iterate(state, new Object[] {new IntWritable(1), new DoubleWritable(1.0)});
+      eval.iterate(state, new Object[] {null, new DoubleWritable(1.0)});
+      eval.iterate(state, new Object[] {new IntWritable(2), new DoubleWritable(1.0)});
+
+      List<?> result = (List<?>) eval.terminatePartial(state);
+      BytesWritable bytes = (BytesWritable) result.get(2);
+      Assert.assertEquals(counters.get("ROWS_INGESTED"), Long.valueOf(2));
+      Assert.assertEquals(counters.get("NULL_ROWS_SKIPPED"), Long.valueOf(1));
+      Assert.assertEquals(counters.get("BYTES_SERIALIZED"), Long.valueOf(bytes.getLength()));
+      Assert.assertNull(counters.get("PARTIALS_MERGED"));
+    } finally {
+      MapredContext.close();
+    }
+  }
+
 }
@@ -8,7 +8,9 @@ package com.yahoo.sketches.hive.tuple;
 import static com.yahoo.sketches.Util.DEFAULT_NOMINAL_ENTRIES;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
@@ -37,6 +39,7 @@ import com.yahoo.sketches.tuple.DoubleSummary;
 import com.yahoo.sketches.tuple.DoubleSummaryDeserializer;
 import com.yahoo.sketches.tuple.DoubleSummaryFactory;
 import com.yahoo.sketches.tuple.Sketch;
+import com.yahoo.sketches.tuple.SketchIterator;
 import com.yahoo.sketches.tuple.Sketches;
 import com.yahoo.sketches.tuple.UpdatableSketch;
 import com.yahoo.sketches.tuple.UpdatableSketchBuilder;
@@ -368,4 +371,72 @@ public class DataToDoubleSummarySketchUDAFTest {
     );
   }
 
+  @Test
+  public void estimateSize() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { intInspector, doubleInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    UpdatableSketch<Double, DoubleSummary> sketch =
+        new UpdatableSketchBuilder<Double, DoubleSummary>(new DoubleSummaryFactory()).build();
+    int sizeAfterIterate;
+    try (GenericUDAFEvaluator eval = new DataToDoubleSummarySketchUDAF().getEvaluator(info)) {
+      eval.init(Mode.PARTIAL1, inspectors);
+      @SuppressWarnings("unchecked")
+      State<DoubleSummary> state = (State<DoubleSummary>) eval.getNewAggregationBuffer();
+      for (int i = 0; i < 1000; i++) {
+        eval.iterate(state, new Object[] {new IntWritable(i), new DoubleWritable(1)});
+        sketch.update(i, 1.0);
+      }
+      // hash table of keys and references to summaries, and summaries themselves
+      sizeAfterIterate = state.estimate();
+      Assert.assertTrue(sizeAfterIterate > sketch.getCurrentCapacity() * 12 + sketch.getRetainedEntries() * 16);
+    }
+
+    try (GenericUDAFEvaluator eval = new DataToDoubleSummarySketchUDAF().getEvaluator(info)) {
+      eval.init(Mode.FINAL, new ObjectInspector[] {structInspector});
+      @SuppressWarnings("unchecked")
+      State<DoubleSummary> state = (State<DoubleSummary>) eval.getNewAggregationBuffer();
+      eval.merge(state, Arrays.asList(
+        new IntWritable(DEFAULT_NOMINAL_ENTRIES),
+        new BytesWritable(sketch.compact().toByteArray()))
+      );
+      Assert.assertEquals(state.estimate(), sizeAfterIterate, sizeAfterIterate / 10);
+    }
+  }
+
+  @Test
+  public void completeModeStringKeysHashedAsUtf8() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { stringInspector, doubleInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    try (GenericUDAFEvaluator eval = new DataToDoubleSummarySketchUDAF().getEvaluator(info)) {
+      eval.init(Mode.COMPLETE, inspectors);
+
+      final String[] keys = {"a long key to grow the buffer", "a", "\u00fc", "\u65e5\u672c"};
+      @SuppressWarnings("unchecked")
+      State<DoubleSummary> state = (State<DoubleSummary>) eval.getNewAggregationBuffer();
+      UpdatableSketch<Double, DoubleSummary> sketch =
+          new UpdatableSketchBuilder<Double, DoubleSummary>(new DoubleSummaryFactory()).build();
+      // the same Text is reused, so its backing array is longer than the later keys
+      Text text = new Text();
+      for (String key: keys) {
+        text.set(key);
+        eval.iterate(state, new Object[] {text, new DoubleWritable(1)});
+        sketch.update(key, 1.0);
+      }
+
+      Sketch<DoubleSummary> resultSketch = Sketches.heapifySketch(
+          Memory.wrap(((BytesWritable) eval.terminate(state)).getBytes()), new DoubleSummaryDeserializer());
+      // same hashes as updating with strings
+      Assert.assertEquals(getKeys(resultSketch), getKeys(sketch));
+    }
+  }
+
+  private static Set<Long> getKeys(final Sketch<DoubleSummary> sketch) {
+    final Set<Long> keys = new HashSet<>();
+    final SketchIterator<DoubleSummary> it = sketch.iterator();
+    while (it.next()) {
+      keys.add(it.getKey());
+    }
+    return keys;
+  }
+
 }
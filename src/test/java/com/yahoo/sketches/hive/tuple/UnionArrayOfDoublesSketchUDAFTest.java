@@ -10,6 +10,7 @@ import static com.yahoo.sketches.Util.DEFAULT_NOMINAL_ENTRIES;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.parse.SemanticException;
@@ -23,10 +24,12 @@ import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.Pr
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.mapred.JobConf;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.ParallelMerge;
 import com.yahoo.sketches.tuple.ArrayOfDoublesSketch;
 import com.yahoo.sketches.tuple.ArrayOfDoublesSketches;
 import com.yahoo.sketches.tuple.ArrayOfDoublesUpdatableSketch;
@@ -249,6 +252,52 @@ public class UnionArrayOfDoublesSketchUDAFTest {
     }
   }
 
+  @Test
+  public void finalModeParallelMerge() throws Exception {
+    JobConf conf = new JobConf();
+    conf.setInt(ParallelMerge.PARALLELISM_CONF, 4);
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    try (GenericUDAFEvaluator eval = new UnionArrayOfDoublesSketchUDAF().getEvaluator(info);
+        GenericUDAFEvaluator sequentialEval = new UnionArrayOfDoublesSketchUDAF().getEvaluator(info)) {
+      eval.configure(MapredContext.init(false, conf));
+      eval.init(Mode.FINAL, new ObjectInspector[] {structInspector});
+      sequentialEval.init(Mode.FINAL, new ObjectInspector[] {structInspector});
+
+      // more than one batch with a remainder to be merged at the end
+      ArrayOfDoublesState state = (ArrayOfDoublesState) eval.getNewAggregationBuffer();
+      ArrayOfDoublesState sequentialState = (ArrayOfDoublesState) sequentialEval.getNewAggregationBuffer();
+      for (int i = 0; i < 300; i++) {
+        ArrayOfDoublesUpdatableSketch sketch = new ArrayOfDoublesUpdatableSketchBuilder().build();
+        for (int j = 0; j < 20; j++) { sketch.update(i * 10 + j, new double[] {1}); }
+        List<Object> partial = Arrays.<Object>asList(
+          new IntWritable(DEFAULT_NOMINAL_ENTRIES),
+          new IntWritable(1),
+          new BytesWritable(sketch.compact().toByteArray())
+        );
+        eval.merge(state, partial);
+        sequentialEval.merge(sequentialState, partial);
+      }
+
+      ArrayOfDoublesSketch resultSketch = ArrayOfDoublesSketches.wrapSketch(
+          Memory.wrap(((BytesWritable) eval.terminate(state)).getBytes()));
+      ArrayOfDoublesSketch sequentialSketch = ArrayOfDoublesSketches.wrapSketch(
+          Memory.wrap(((BytesWritable) sequentialEval.terminate(sequentialState)).getBytes()));
+      Assert.assertEquals(resultSketch.getEstimate(), 3010.0);
+      Assert.assertEquals(resultSketch.getEstimate(), sequentialSketch.getEstimate());
+      Assert.assertEquals(sum(resultSketch), 6000.0);
+      Assert.assertEquals(sum(resultSketch), sum(sequentialSketch));
+    } finally {
+      MapredContext.close();
+    }
+  }
+
+  private static double sum(final ArrayOfDoublesSketch sketch) {
+    double sum = 0;
+    for (double[] values: sketch.getValues()) { sum += values[0]; }
+    return sum;
+  }
+
   // COMPLETE mode (single mode, alternative to MapReduce): iterate + terminate
   @Test
   public void completeModeDefaultParams() throws Exception {
@@ -10,6 +10,7 @@ import static com.yahoo.sketches.Util.DEFAULT_NOMINAL_ENTRIES;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.parse.SemanticException;
@@ -27,6 +28,7 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hive.CountingReporter;
 import com.yahoo.sketches.tuple.DoubleSummary;
 import com.yahoo.sketches.tuple.DoubleSummaryDeserializer;
 import com.yahoo.sketches.tuple.DoubleSummaryFactory;
@@ -308,4 +310,33 @@ public class UnionDoubleSummarySketchUDAFTest {
     }
   }
 
+  @Test
+  public void finalModeCountersPublishedWhenEnabled() throws Exception {
+    ObjectInspector[] inspectors = new ObjectInspector[] { binaryInspector };
+    GenericUDAFParameterInfo info = new SimpleGenericUDAFParameterInfo(inspectors, false, false);
+    CountingReporter counters = new CountingReporter("Sketches: tuple");
+    try (GenericUDAFEvaluator eval = new UnionDoubleSummarySketchUDAF().getEvaluator(info)) {
+      eval.configure(counters.initContext(false));
+      eval.init(Mode.FINAL, new ObjectInspector[] {structInspector});
+
+      @SuppressWarnings("unchecked")
+      State<DoubleSummary> state = (State<DoubleSummary>) eval.getNewAggregationBuffer();
+      long bytes = 0;
+      for (int i = 0; i < 2; i++) {
+        UpdatableSketch<Double, DoubleSummary> sketch = new UpdatableSketchBuilder<Double, DoubleSummary>(new DoubleSummaryFactory()).build();
+        sketch.update(i, 1.0);
+        BytesWritable serializedSketch = new BytesWritable(sketch.compact().toByteArray());
+        bytes += serializedSketch.getLength();
+        eval.merge(state, Arrays.asList(new IntWritable(DEFAULT_NOMINAL_ENTRIES), serializedSketch));
+      }
+
+      eval.terminate(state);
+      Assert.assertEquals(counters.get("PARTIALS_MERGED"), Long.valueOf(2));
+      Assert.assertEquals(counters.get("BYTES_DESERIALIZED"), Long.valueOf(bytes));
+      Assert.assertNull(counters.get("ROWS_INGESTED"));
+    } finally {
+      MapredContext.close();
+    }
+  }
+
 }